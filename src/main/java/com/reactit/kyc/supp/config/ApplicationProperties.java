@@ -1,6 +1,12 @@
 package com.reactit.kyc.supp.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 /**
  * Properties specific to Kycsupport.
@@ -13,12 +19,36 @@ public class ApplicationProperties {
 
     private final Liquibase liquibase = new Liquibase();
 
+    private final FaceVerification faceVerification = new FaceVerification();
+
+    private final ImageAnalysis imageAnalysis = new ImageAnalysis();
+
+    private final Storage storage = new Storage();
+
+    private final Dashboard dashboard = new Dashboard();
+
     // jhipster-needle-application-properties-property
 
     public Liquibase getLiquibase() {
         return liquibase;
     }
 
+    public FaceVerification getFaceVerification() {
+        return faceVerification;
+    }
+
+    public ImageAnalysis getImageAnalysis() {
+        return imageAnalysis;
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    public Dashboard getDashboard() {
+        return dashboard;
+    }
+
     // jhipster-needle-application-properties-property-getter
 
     public static class Liquibase {
@@ -33,5 +63,1263 @@ public class ApplicationProperties {
             this.asyncStart = asyncStart;
         }
     }
+
+    /**
+     * Settings of the HTTP client talking to the Python face-verification (DeepFace) sidecar.
+     */
+    public static class FaceVerification {
+
+        private String url = "http://localhost:8000";
+
+        /**
+         * Engine computing face embeddings: {@code http} for the Python sidecar, {@code onnx} for the in-process model. The
+         * {@code onnx} engine is experimental: it has no face detection nor alignment, and is only built with the {@code onnx}
+         * Maven profile.
+         */
+        private String engine = "http";
+
+        private final Client client = new Client();
+
+        private final Resilience resilience = new Resilience();
+
+        private final Jobs jobs = new Jobs();
+
+        private final Batch batch = new Batch();
+
+        private final Embedding embedding = new Embedding();
+
+        private final Onnx onnx = new Onnx();
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getEngine() {
+            return engine;
+        }
+
+        public void setEngine(String engine) {
+            this.engine = engine;
+        }
+
+        public Client getClient() {
+            return client;
+        }
+
+        public Resilience getResilience() {
+            return resilience;
+        }
+
+        public Jobs getJobs() {
+            return jobs;
+        }
+
+        public Batch getBatch() {
+            return batch;
+        }
+
+        public Embedding getEmbedding() {
+            return embedding;
+        }
+
+        public Onnx getOnnx() {
+            return onnx;
+        }
+
+        public static class Client {
+
+            /**
+             * Upper bound of pooled connections to the sidecar.
+             */
+            private int maxConnections = 20;
+
+            /**
+             * Maximum number of verification requests allowed in flight at the same time, the adaptive limit never exceeds it.
+             */
+            private int maxConcurrentRequests = 8;
+
+            private Duration connectTimeout = Duration.ofSeconds(2);
+
+            /**
+             * Socket read timeout, must cover a full DeepFace inference.
+             */
+            private Duration readTimeout = Duration.ofSeconds(30);
+
+            /**
+             * How long a caller waits for a concurrency slot or a pooled connection before failing fast.
+             */
+            private Duration acquireTimeout = Duration.ofSeconds(5);
+
+            /**
+             * Idle pooled connections are closed after this delay.
+             */
+            private Duration idleTimeout = Duration.ofSeconds(30);
+
+            public int getMaxConnections() {
+                return maxConnections;
+            }
+
+            public void setMaxConnections(int maxConnections) {
+                this.maxConnections = maxConnections;
+            }
+
+            public int getMaxConcurrentRequests() {
+                return maxConcurrentRequests;
+            }
+
+            public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+                this.maxConcurrentRequests = maxConcurrentRequests;
+            }
+
+            public Duration getConnectTimeout() {
+                return connectTimeout;
+            }
+
+            public void setConnectTimeout(Duration connectTimeout) {
+                this.connectTimeout = connectTimeout;
+            }
+
+            public Duration getReadTimeout() {
+                return readTimeout;
+            }
+
+            public void setReadTimeout(Duration readTimeout) {
+                this.readTimeout = readTimeout;
+            }
+
+            public Duration getAcquireTimeout() {
+                return acquireTimeout;
+            }
+
+            public void setAcquireTimeout(Duration acquireTimeout) {
+                this.acquireTimeout = acquireTimeout;
+            }
+
+            public Duration getIdleTimeout() {
+                return idleTimeout;
+            }
+
+            public void setIdleTimeout(Duration idleTimeout) {
+                this.idleTimeout = idleTimeout;
+            }
+        }
+
+        /**
+         * Circuit breaker and adaptive concurrency limit protecting the sidecar.
+         */
+        public static class Resilience {
+
+            /**
+             * Lowest value the adaptive concurrency limit may shrink to.
+             */
+            private int minConcurrentRequests = 1;
+
+            /**
+             * Calls slower than this count as congestion and shrink the concurrency limit.
+             */
+            private Duration latencyThreshold = Duration.ofSeconds(10);
+
+            /**
+             * Factor applied to the concurrency limit on congestion.
+             */
+            private double backoffRatio = 0.9;
+
+            /**
+             * Number of recent calls the failure rate is computed on.
+             */
+            private int slidingWindowSize = 20;
+
+            /**
+             * Calls needed in the window before the circuit may open.
+             */
+            private int minimumCalls = 10;
+
+            /**
+             * Percentage of failed calls opening the circuit.
+             */
+            private int failureRateThreshold = 50;
+
+            /**
+             * How long an open circuit refuses calls, advertised to clients as {@code Retry-After}.
+             */
+            private Duration openDuration = Duration.ofSeconds(30);
+
+            /**
+             * Trial calls let through once the open duration is over.
+             */
+            private int halfOpenCalls = 2;
+
+            public int getMinConcurrentRequests() {
+                return minConcurrentRequests;
+            }
+
+            public void setMinConcurrentRequests(int minConcurrentRequests) {
+                this.minConcurrentRequests = minConcurrentRequests;
+            }
+
+            public Duration getLatencyThreshold() {
+                return latencyThreshold;
+            }
+
+            public void setLatencyThreshold(Duration latencyThreshold) {
+                this.latencyThreshold = latencyThreshold;
+            }
+
+            public double getBackoffRatio() {
+                return backoffRatio;
+            }
+
+            public void setBackoffRatio(double backoffRatio) {
+                this.backoffRatio = backoffRatio;
+            }
+
+            public int getSlidingWindowSize() {
+                return slidingWindowSize;
+            }
+
+            public void setSlidingWindowSize(int slidingWindowSize) {
+                this.slidingWindowSize = slidingWindowSize;
+            }
+
+            public int getMinimumCalls() {
+                return minimumCalls;
+            }
+
+            public void setMinimumCalls(int minimumCalls) {
+                this.minimumCalls = minimumCalls;
+            }
+
+            public int getFailureRateThreshold() {
+                return failureRateThreshold;
+            }
+
+            public void setFailureRateThreshold(int failureRateThreshold) {
+                this.failureRateThreshold = failureRateThreshold;
+            }
+
+            public Duration getOpenDuration() {
+                return openDuration;
+            }
+
+            public void setOpenDuration(Duration openDuration) {
+                this.openDuration = openDuration;
+            }
+
+            public int getHalfOpenCalls() {
+                return halfOpenCalls;
+            }
+
+            public void setHalfOpenCalls(int halfOpenCalls) {
+                this.halfOpenCalls = halfOpenCalls;
+            }
+        }
+
+        /**
+         * Asynchronous face-match jobs submitted through {@code /api/verify_face_match/jobs}.
+         */
+        public static class Jobs {
+
+            /**
+             * Number of threads running inferences in the background.
+             */
+            private int poolSize = 4;
+
+            /**
+             * Jobs waiting for a thread beyond this are rejected with a 503.
+             */
+            private int queueCapacity = 100;
+
+            /**
+             * Jobs pending or running without progress for this long were lost, for example on a restart, and are failed.
+             * Longer than the longest expected wait in the queue plus inference.
+             */
+            private Duration orphanTimeout = Duration.ofMinutes(15);
+
+            /**
+             * How often lost jobs are looked for.
+             */
+            private Duration orphanCheckInterval = Duration.ofMinutes(1);
+
+            /**
+             * Hosts that may receive completion callbacks, callbacks are refused when empty.
+             */
+            private List<String> callbackAllowedHosts = new ArrayList<>();
+
+            private Duration callbackTimeout = Duration.ofSeconds(5);
+
+            public int getPoolSize() {
+                return poolSize;
+            }
+
+            public void setPoolSize(int poolSize) {
+                this.poolSize = poolSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public Duration getOrphanTimeout() {
+                return orphanTimeout;
+            }
+
+            public void setOrphanTimeout(Duration orphanTimeout) {
+                this.orphanTimeout = orphanTimeout;
+            }
+
+            public Duration getOrphanCheckInterval() {
+                return orphanCheckInterval;
+            }
+
+            public void setOrphanCheckInterval(Duration orphanCheckInterval) {
+                this.orphanCheckInterval = orphanCheckInterval;
+            }
+
+            public List<String> getCallbackAllowedHosts() {
+                return callbackAllowedHosts;
+            }
+
+            public void setCallbackAllowedHosts(List<String> callbackAllowedHosts) {
+                this.callbackAllowedHosts = callbackAllowedHosts;
+            }
+
+            public Duration getCallbackTimeout() {
+                return callbackTimeout;
+            }
+
+            public void setCallbackTimeout(Duration callbackTimeout) {
+                this.callbackTimeout = callbackTimeout;
+            }
+        }
+
+        /**
+         * Bulk re-screening of existing face matches.
+         */
+        public static class Batch {
+
+            /**
+             * Number of scores written back per JDBC batch.
+             */
+            private int batchSize = 100;
+
+            /**
+             * Number of pairs sent to the sidecar at the same time.
+             */
+            private int parallelism = 4;
+
+            /**
+             * Attempts per pair when the sidecar is busy or unreachable.
+             */
+            private int maxAttempts = 3;
+
+            /**
+             * Most face match ids and image pairs in a single request; {@code all} is not limited.
+             */
+            private int maxItems = 10000;
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public int getParallelism() {
+                return parallelism;
+            }
+
+            public void setParallelism(int parallelism) {
+                this.parallelism = parallelism;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public int getMaxItems() {
+                return maxItems;
+            }
+
+            public void setMaxItems(int maxItems) {
+                this.maxItems = maxItems;
+            }
+        }
+
+        /**
+         * Face embeddings cached by image content, so that an image already seen is never embedded twice.
+         */
+        public static class Embedding {
+
+            /**
+             * When disabled, embeddings are recomputed on every call, and the {@code http} engine sends both images to the
+             * sidecar's verify endpoint.
+             */
+            private boolean enabled = true;
+
+            /**
+             * Model the sidecar embeds faces with, embeddings stored for another model are recomputed.
+             */
+            private String model = "Facenet";
+
+            /**
+             * Cosine distance under which two faces are considered the same person with the {@code http} engine,
+             * DeepFace's value for Facenet with its detector and alignment.
+             */
+            private double threshold = 0.40;
+
+            /**
+             * Number of embeddings kept in memory in front of the database.
+             */
+            private int cacheSize = 10_000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getModel() {
+                return model;
+            }
+
+            public void setModel(String model) {
+                this.model = model;
+            }
+
+            public double getThreshold() {
+                return threshold;
+            }
+
+            public void setThreshold(double threshold) {
+                this.threshold = threshold;
+            }
+
+            public int getCacheSize() {
+                return cacheSize;
+            }
+
+            public void setCacheSize(int cacheSize) {
+                this.cacheSize = cacheSize;
+            }
+        }
+
+        /**
+         * Experimental in-process Facenet model run by ONNX Runtime, used when {@code engine} is {@code onnx}.
+         */
+        public static class Onnx {
+
+            /**
+             * Path of the exported Facenet model, taking a 160x160 BGR face scaled to [0, 1].
+             */
+            private String modelPath;
+
+            /**
+             * Name the embeddings of this model are stored under, they are not interchangeable with the sidecar's.
+             */
+            private String modelName = "Facenet-onnx";
+
+            /**
+             * Cosine distance under which two faces are considered the same person. There is no default: the center crop
+             * replacing DeepFace's detection and alignment shifts distances, so it must be calibrated on known genuine and
+             * impostor pairs, and the engine does not start without it.
+             */
+            private Double threshold;
+
+            /**
+             * Threads used by a single inference, {@code 0} lets ONNX Runtime decide.
+             */
+            private int intraOpThreads = 0;
+
+            public String getModelPath() {
+                return modelPath;
+            }
+
+            public void setModelPath(String modelPath) {
+                this.modelPath = modelPath;
+            }
+
+            public String getModelName() {
+                return modelName;
+            }
+
+            public void setModelName(String modelName) {
+                this.modelName = modelName;
+            }
+
+            public Double getThreshold() {
+                return threshold;
+            }
+
+            public void setThreshold(Double threshold) {
+                this.threshold = threshold;
+            }
+
+            public int getIntraOpThreads() {
+                return intraOpThreads;
+            }
+
+            public void setIntraOpThreads(int intraOpThreads) {
+                this.intraOpThreads = intraOpThreads;
+            }
+        }
+    }
+
+    /**
+     * Document quality checks behind {@code /api/image-analysis}, and the pool of long-lived Python analyzer processes.
+     */
+    public static class ImageAnalysis {
+
+        /**
+         * Engine running the checks: {@code python} for the analyzer processes, {@code java} for the in-process port.
+         */
+        private String engine = "python";
+
+        /**
+         * Longest side of the image the checks run on; larger uploads are shrunk and the thresholds of the checks scaled to
+         * match, 0 keeps the full resolution.
+         */
+        private int maxDimension = 1600;
+
+        private String pythonExecutable = "python";
+
+        private String scriptPath = "src/main/python/scripts/image-analyzer.py";
+
+        /**
+         * Number of analyzer processes, started on first use.
+         */
+        private int poolSize = 2;
+
+        /**
+         * An analysis taking longer is abandoned and its process restarted.
+         */
+        private Duration requestTimeout = Duration.ofSeconds(30);
+
+        /**
+         * How long a request waits for a free analyzer before failing with a 503.
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Idle analyzers are pinged at this interval and restarted when they do not answer.
+         */
+        private Duration healthCheckInterval = Duration.ofSeconds(30);
+
+        public String getEngine() {
+            return engine;
+        }
+
+        public void setEngine(String engine) {
+            this.engine = engine;
+        }
+
+        public int getMaxDimension() {
+            return maxDimension;
+        }
+
+        public void setMaxDimension(int maxDimension) {
+            this.maxDimension = maxDimension;
+        }
+
+        public String getPythonExecutable() {
+            return pythonExecutable;
+        }
+
+        public void setPythonExecutable(String pythonExecutable) {
+            this.pythonExecutable = pythonExecutable;
+        }
+
+        public String getScriptPath() {
+            return scriptPath;
+        }
+
+        public void setScriptPath(String scriptPath) {
+            this.scriptPath = scriptPath;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public Duration getRequestTimeout() {
+            return requestTimeout;
+        }
+
+        public void setRequestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+        }
+
+        public Duration getAcquireTimeout() {
+            return acquireTimeout;
+        }
+
+        public void setAcquireTimeout(Duration acquireTimeout) {
+            this.acquireTimeout = acquireTimeout;
+        }
+
+        public Duration getHealthCheckInterval() {
+            return healthCheckInterval;
+        }
+
+        public void setHealthCheckInterval(Duration healthCheckInterval) {
+            this.healthCheckInterval = healthCheckInterval;
+        }
+    }
+
+    /**
+     * Settings of the document storage in MinIO.
+     */
+    public static class Storage {
+
+        private final Multipart multipart = new Multipart();
+
+        private final DirectUpload directUpload = new DirectUpload();
+
+        private final Cache cache = new Cache();
+
+        private final Renditions renditions = new Renditions();
+
+        private final Presign presign = new Presign();
+
+        private final Upload upload = new Upload();
+
+        private final Recompression recompression = new Recompression();
+
+        public Multipart getMultipart() {
+            return multipart;
+        }
+
+        public DirectUpload getDirectUpload() {
+            return directUpload;
+        }
+
+        public Cache getCache() {
+            return cache;
+        }
+
+        public Renditions getRenditions() {
+            return renditions;
+        }
+
+        public Presign getPresign() {
+            return presign;
+        }
+
+        public Upload getUpload() {
+            return upload;
+        }
+
+        public Recompression getRecompression() {
+            return recompression;
+        }
+
+        /**
+         * Parallel multipart upload of large files.
+         */
+        public static class Multipart {
+
+            private boolean enabled = true;
+
+            /**
+             * Files of at least this size are uploaded in parts, smaller ones with a single request.
+             */
+            private DataSize threshold = DataSize.ofMegabytes(32);
+
+            /**
+             * Size of every part but the last; S3 requires at least 5MB.
+             */
+            private DataSize partSize = DataSize.ofMegabytes(8);
+
+            /**
+             * Parts uploaded at the same time, over all uploads; as many parts are buffered in memory.
+             */
+            private int concurrency = 4;
+
+            /**
+             * Attempts per part before the whole upload is aborted.
+             */
+            private int maxAttempts = 3;
+
+            private Duration retryBackoff = Duration.ofMillis(500);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public DataSize getThreshold() {
+                return threshold;
+            }
+
+            public void setThreshold(DataSize threshold) {
+                this.threshold = threshold;
+            }
+
+            public DataSize getPartSize() {
+                return partSize;
+            }
+
+            public void setPartSize(DataSize partSize) {
+                this.partSize = partSize;
+            }
+
+            public int getConcurrency() {
+                return concurrency;
+            }
+
+            public void setConcurrency(int concurrency) {
+                this.concurrency = concurrency;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public Duration getRetryBackoff() {
+                return retryBackoff;
+            }
+
+            public void setRetryBackoff(Duration retryBackoff) {
+                this.retryBackoff = retryBackoff;
+            }
+        }
+
+        /**
+         * Browser uploads sent straight to MinIO with a presigned POST policy.
+         */
+        public static class DirectUpload {
+
+            /**
+             * How long the presigned form stays valid.
+             */
+            private Duration expiry = Duration.ofMinutes(15);
+
+            private DataSize maxSize = DataSize.ofMegabytes(50);
+
+            private List<String> allowedContentTypes = new ArrayList<>(
+                List.of("image/jpeg", "image/png", "application/pdf", "video/mp4", "video/webm")
+            );
+
+            public Duration getExpiry() {
+                return expiry;
+            }
+
+            public void setExpiry(Duration expiry) {
+                this.expiry = expiry;
+            }
+
+            public DataSize getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(DataSize maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public List<String> getAllowedContentTypes() {
+                return allowedContentTypes;
+            }
+
+            public void setAllowedContentTypes(List<String> allowedContentTypes) {
+                this.allowedContentTypes = allowedContentTypes;
+            }
+        }
+
+        /**
+         * Local disk copy of the most recently served objects, in front of MinIO.
+         */
+        public static class Cache {
+
+            private boolean enabled = true;
+
+            /**
+             * Emptied on startup, the index of cached objects only lives in memory.
+             */
+            private String directory = System.getProperty("java.io.tmpdir") + "/kyc-object-cache";
+
+            private DataSize maxSize = DataSize.ofGigabytes(1);
+
+            private int maxEntries = 10000;
+
+            /**
+             * Larger objects, such as videos, are always streamed from MinIO.
+             */
+            private DataSize maxObjectSize = DataSize.ofMegabytes(20);
+
+            /**
+             * Threads copying objects to disk in the background, while ranged reads of uncached objects go to MinIO.
+             */
+            private int fillPoolSize = 2;
+
+            /**
+             * Copies waiting for a thread beyond this are skipped, the object is copied on a later read.
+             */
+            private int fillQueueCapacity = 100;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+
+            public DataSize getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(DataSize maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public int getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(int maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public DataSize getMaxObjectSize() {
+                return maxObjectSize;
+            }
+
+            public void setMaxObjectSize(DataSize maxObjectSize) {
+                this.maxObjectSize = maxObjectSize;
+            }
+
+            public int getFillPoolSize() {
+                return fillPoolSize;
+            }
+
+            public void setFillPoolSize(int fillPoolSize) {
+                this.fillPoolSize = fillPoolSize;
+            }
+
+            public int getFillQueueCapacity() {
+                return fillQueueCapacity;
+            }
+
+            public void setFillQueueCapacity(int fillQueueCapacity) {
+                this.fillQueueCapacity = fillQueueCapacity;
+            }
+        }
+
+        /**
+         * Downscaled JPEG copies of uploaded images, for list pages and previews.
+         */
+        public static class Renditions {
+
+            /**
+             * Longest side of thumbnails, in pixels.
+             */
+            private int thumbnailSize = 240;
+
+            /**
+             * Longest side of previews, in pixels.
+             */
+            private int previewSize = 1024;
+
+            /**
+             * JPEG quality, from 0 to 1.
+             */
+            private float quality = 0.8f;
+
+            /**
+             * Number of threads generating renditions.
+             */
+            private int poolSize = 2;
+
+            /**
+             * Renditions waiting for a thread beyond this are not generated on upload, and answered with a 503 on request.
+             */
+            private int queueCapacity = 100;
+
+            /**
+             * How long a request waits for a missing rendition to be generated.
+             */
+            private Duration timeout = Duration.ofSeconds(10);
+
+            public int getThumbnailSize() {
+                return thumbnailSize;
+            }
+
+            public void setThumbnailSize(int thumbnailSize) {
+                this.thumbnailSize = thumbnailSize;
+            }
+
+            public int getPreviewSize() {
+                return previewSize;
+            }
+
+            public void setPreviewSize(int previewSize) {
+                this.previewSize = previewSize;
+            }
+
+            public float getQuality() {
+                return quality;
+            }
+
+            public void setQuality(float quality) {
+                this.quality = quality;
+            }
+
+            public int getPoolSize() {
+                return poolSize;
+            }
+
+            public void setPoolSize(int poolSize) {
+                this.poolSize = poolSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public Duration getTimeout() {
+                return timeout;
+            }
+
+            public void setTimeout(Duration timeout) {
+                this.timeout = timeout;
+            }
+        }
+
+        /**
+         * Presigned download URLs, cached until shortly before they expire.
+         */
+        public static class Presign {
+
+            private Duration expiry = Duration.ofHours(1);
+
+            /**
+             * A cached URL is replaced once it has less than this left before expiry, so that the client still has time to use it.
+             */
+            private Duration safetyMargin = Duration.ofMinutes(5);
+
+            private int cacheSize = 10000;
+
+            /**
+             * Most objects signed by a single batch request.
+             */
+            private int maxBatchSize = 200;
+
+            public Duration getExpiry() {
+                return expiry;
+            }
+
+            public void setExpiry(Duration expiry) {
+                this.expiry = expiry;
+            }
+
+            public Duration getSafetyMargin() {
+                return safetyMargin;
+            }
+
+            public void setSafetyMargin(Duration safetyMargin) {
+                this.safetyMargin = safetyMargin;
+            }
+
+            public int getCacheSize() {
+                return cacheSize;
+            }
+
+            public void setCacheSize(int cacheSize) {
+                this.cacheSize = cacheSize;
+            }
+
+            public int getMaxBatchSize() {
+                return maxBatchSize;
+            }
+
+            public void setMaxBatchSize(int maxBatchSize) {
+                this.maxBatchSize = maxBatchSize;
+            }
+        }
+
+        /**
+         * Limits of files sent through {@code /api/upload}, checked from their first bytes before they reach MinIO.
+         */
+        public static class Upload {
+
+            /**
+             * Accepted types, as sniffed from the content, and their limits; any other type is refused.
+             */
+            private Map<String, Limits> types = new LinkedHashMap<>(
+                Map.of(
+                    "image/jpeg",
+                    new Limits(DataSize.ofMegabytes(20), 8000, 8000),
+                    "image/png",
+                    new Limits(DataSize.ofMegabytes(20), 8000, 8000),
+                    "application/pdf",
+                    new Limits(DataSize.ofMegabytes(50), 0, 0),
+                    "video/mp4",
+                    new Limits(DataSize.ofMegabytes(50), 0, 0),
+                    "video/webm",
+                    new Limits(DataSize.ofMegabytes(50), 0, 0)
+                )
+            );
+
+            public Map<String, Limits> getTypes() {
+                return types;
+            }
+
+            public void setTypes(Map<String, Limits> types) {
+                this.types = types;
+            }
+
+            public static class Limits {
+
+                private DataSize maxSize = DataSize.ofMegabytes(20);
+
+                /**
+                 * Widest accepted image, in pixels; 0 for no limit.
+                 */
+                private int maxWidth;
+
+                /**
+                 * Tallest accepted image, in pixels; 0 for no limit.
+                 */
+                private int maxHeight;
+
+                public Limits() {}
+
+                public Limits(DataSize maxSize, int maxWidth, int maxHeight) {
+                    this.maxSize = maxSize;
+                    this.maxWidth = maxWidth;
+                    this.maxHeight = maxHeight;
+                }
+
+                public DataSize getMaxSize() {
+                    return maxSize;
+                }
+
+                public void setMaxSize(DataSize maxSize) {
+                    this.maxSize = maxSize;
+                }
+
+                public int getMaxWidth() {
+                    return maxWidth;
+                }
+
+                public void setMaxWidth(int maxWidth) {
+                    this.maxWidth = maxWidth;
+                }
+
+                public int getMaxHeight() {
+                    return maxHeight;
+                }
+
+                public void setMaxHeight(int maxHeight) {
+                    this.maxHeight = maxHeight;
+                }
+            }
+        }
+
+        /**
+         * Re-encoding of uploaded JPEG and PNG images to a bounded resolution before they are stored.
+         */
+        public static class Recompression {
+
+            private boolean enabled = false;
+
+            /**
+             * Longest side of stored images, in pixels; larger images are scaled down.
+             */
+            private int maxDimension = 2400;
+
+            /**
+             * JPEG quality, from 0 to 1.
+             */
+            private float quality = 0.85f;
+
+            /**
+             * Also store the original upload, as when the retention policy requires the file as received; the recompressed
+             * object then references it in its {@code original} metadata.
+             */
+            private boolean keepOriginal = false;
+
+            /**
+             * Number of threads re-encoding images, bounding the memory taken by decoded images.
+             */
+            private int poolSize = 2;
+
+            /**
+             * Uploads waiting for a thread beyond this are stored as received.
+             */
+            private int queueCapacity = 20;
+
+            /**
+             * How long an upload waits for its recompression before being stored as received.
+             */
+            private Duration timeout = Duration.ofSeconds(20);
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxDimension() {
+                return maxDimension;
+            }
+
+            public void setMaxDimension(int maxDimension) {
+                this.maxDimension = maxDimension;
+            }
+
+            public float getQuality() {
+                return quality;
+            }
+
+            public void setQuality(float quality) {
+                this.quality = quality;
+            }
+
+            public boolean isKeepOriginal() {
+                return keepOriginal;
+            }
+
+            public void setKeepOriginal(boolean keepOriginal) {
+                this.keepOriginal = keepOriginal;
+            }
+
+            public int getPoolSize() {
+                return poolSize;
+            }
+
+            public void setPoolSize(int poolSize) {
+                this.poolSize = poolSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public Duration getTimeout() {
+                return timeout;
+            }
+
+            public void setTimeout(Duration timeout) {
+                this.timeout = timeout;
+            }
+        }
+    }
+
+    /**
+     * Admin dashboard statistics.
+     */
+    public static class Dashboard {
+
+        /**
+         * How often the dashboard is computed into a snapshot, served to admins until the next one.
+         */
+        private Duration snapshotRefresh = Duration.ofMinutes(1);
+
+        /**
+         * How long snapshots are kept, bounding how far back changes of the dashboard figures can be told.
+         */
+        private Duration snapshotRetention = Duration.ofDays(7);
+
+        /**
+         * How recent a snapshot must be to be served in place of the one asked for by a forced refresh, so that admins
+         * refreshing at the same time, or just after the scheduled refresh, share a single computation.
+         */
+        private Duration refreshCoalescing = Duration.ofSeconds(10);
+
+        /**
+         * When the customer counters per KYC status and the customers created per day are recounted, blocking customer saves
+         * while the table is scanned.
+         */
+        private String counterReconciliationCron = "0 0 3 * * *";
+
+        /**
+         * Number of customers with the most documents listed on the dashboard, the full list is paginated separately.
+         */
+        private int topCustomers = 10;
+
+        public Duration getSnapshotRefresh() {
+            return snapshotRefresh;
+        }
+
+        public void setSnapshotRefresh(Duration snapshotRefresh) {
+            this.snapshotRefresh = snapshotRefresh;
+        }
+
+        public Duration getSnapshotRetention() {
+            return snapshotRetention;
+        }
+
+        public void setSnapshotRetention(Duration snapshotRetention) {
+            this.snapshotRetention = snapshotRetention;
+        }
+
+        public Duration getRefreshCoalescing() {
+            return refreshCoalescing;
+        }
+
+        public void setRefreshCoalescing(Duration refreshCoalescing) {
+            this.refreshCoalescing = refreshCoalescing;
+        }
+
+        public String getCounterReconciliationCron() {
+            return counterReconciliationCron;
+        }
+
+        public void setCounterReconciliationCron(String counterReconciliationCron) {
+            this.counterReconciliationCron = counterReconciliationCron;
+        }
+
+        public int getTopCustomers() {
+            return topCustomers;
+        }
+
+        public void setTopCustomers(int topCustomers) {
+            this.topCustomers = topCustomers;
+        }
+    }
     // jhipster-needle-application-properties-property-class
 }
@@ -0,0 +1,113 @@
+package com.reactit.kyc.supp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * HTTP client used to reach the Python face-verification sidecar.
+ * <p>
+ * Connections are pooled and kept alive between calls, and every call is bounded by the
+ * connect/read timeouts configured under {@code application.face-verification.client}.
+ * Asynchronous face-match jobs run on their own bounded executor so that a burst of submissions
+ * can never exhaust the servlet or the shared task pools, and so do bulk re-screening batches.
+ */
+@Configuration
+public class FaceVerificationClientConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FaceVerificationClientConfiguration.class);
+
+    public static final String POOL_NAME = "face-verification";
+
+    @Bean
+    public CloseableHttpClient faceVerificationHttpClient(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.FaceVerification.Client client = applicationProperties.getFaceVerification().getClient();
+        LOG.debug("Creating face-verification HTTP client with a pool of {} connections", client.getMaxConnections());
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(client.getMaxConnections())
+            // the sidecar is a single route, so the whole pool may be used for it
+            .setMaxConnPerRoute(client.getMaxConnections())
+            .setDefaultConnectionConfig(
+                ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.of(client.getConnectTimeout()))
+                    .setSocketTimeout(Timeout.of(client.getReadTimeout()))
+                    .build()
+            )
+            .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, POOL_NAME).bindTo(meterRegistry);
+
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(
+                RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.of(client.getAcquireTimeout()))
+                    .setResponseTimeout(Timeout.of(client.getReadTimeout()))
+                    .build()
+            )
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.of(client.getIdleTimeout()))
+            .build();
+    }
+
+    @Bean
+    public RestTemplate faceVerificationRestTemplate(
+        @Qualifier("faceVerificationHttpClient") CloseableHttpClient faceVerificationHttpClient,
+        ApplicationProperties applicationProperties,
+        RestTemplateBuilder restTemplateBuilder
+    ) {
+        return restTemplateBuilder
+            .rootUri(applicationProperties.getFaceVerification().getUrl())
+            .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(faceVerificationHttpClient))
+            .build();
+    }
+
+    @Bean(name = "faceVerificationExecutor")
+    public ThreadPoolTaskExecutor faceVerificationExecutor(ApplicationProperties applicationProperties) {
+        ApplicationProperties.FaceVerification.Jobs jobs = applicationProperties.getFaceVerification().getJobs();
+        LOG.debug("Creating face-verification job executor with {} threads", jobs.getPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(jobs.getPoolSize());
+        executor.setMaxPoolSize(jobs.getPoolSize());
+        executor.setQueueCapacity(jobs.getQueueCapacity());
+        executor.setThreadNamePrefix("face-verification-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Runs re-screening batches one after the other, each batch then fans out to its own workers.
+     */
+    @Bean(name = "faceMatchBatchExecutor")
+    public ThreadPoolTaskExecutor faceMatchBatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10);
+        executor.setThreadNamePrefix("face-match-batch-coordinator-");
+        return executor;
+    }
+
+    @Bean
+    public RestTemplate faceMatchCallbackRestTemplate(ApplicationProperties applicationProperties, RestTemplateBuilder restTemplateBuilder) {
+        ApplicationProperties.FaceVerification.Jobs jobs = applicationProperties.getFaceVerification().getJobs();
+        return restTemplateBuilder.connectTimeout(jobs.getCallbackTimeout()).readTimeout(jobs.getCallbackTimeout()).build();
+    }
+}
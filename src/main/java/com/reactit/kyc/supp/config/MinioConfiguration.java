@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 public class MinioConfiguration {
@@ -26,4 +27,40 @@ public class MinioConfiguration {
         log.info("Initializing Minio client with URL: {}", minioUrl);
         return MinioClient.builder().endpoint(minioUrl).credentials(accessKey, secretKey).build();
     }
+
+    @Bean(name = "renditionExecutor")
+    public ThreadPoolTaskExecutor renditionExecutor(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Storage.Renditions renditions = applicationProperties.getStorage().getRenditions();
+        log.debug("Creating rendition executor with {} threads", renditions.getPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(renditions.getPoolSize());
+        executor.setMaxPoolSize(renditions.getPoolSize());
+        executor.setQueueCapacity(renditions.getQueueCapacity());
+        executor.setThreadNamePrefix("rendition-");
+        return executor;
+    }
+
+    @Bean(name = "recompressionExecutor")
+    public ThreadPoolTaskExecutor recompressionExecutor(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Storage.Recompression recompression = applicationProperties.getStorage().getRecompression();
+        log.debug("Creating recompression executor with {} threads", recompression.getPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(recompression.getPoolSize());
+        executor.setMaxPoolSize(recompression.getPoolSize());
+        executor.setQueueCapacity(recompression.getQueueCapacity());
+        executor.setThreadNamePrefix("recompression-");
+        return executor;
+    }
+
+    @Bean(name = "objectCacheExecutor")
+    public ThreadPoolTaskExecutor objectCacheExecutor(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Storage.Cache cache = applicationProperties.getStorage().getCache();
+        log.debug("Creating object cache executor with {} threads", cache.getFillPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cache.getFillPoolSize());
+        executor.setMaxPoolSize(cache.getFillPoolSize());
+        executor.setQueueCapacity(cache.getFillQueueCapacity());
+        executor.setThreadNamePrefix("object-cache-");
+        return executor;
+    }
 }
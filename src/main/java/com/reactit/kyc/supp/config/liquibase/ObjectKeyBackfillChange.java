@@ -0,0 +1,134 @@
+package com.reactit.kyc.supp.config.liquibase;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+/**
+ * Replaces presigned MinIO URLs stored in a column by the object keys they point to.
+ * <p>
+ * Rows are walked by id in batches, each batch updated and committed on its own, so that only the rows of the current
+ * batch are ever locked; run the change set outside of a transaction ({@code runInTransaction="false"}). Values that are
+ * already object keys are left alone, so the change can be rerun.
+ */
+public class ObjectKeyBackfillChange implements CustomTaskChange {
+
+    static final int BATCH_SIZE = 500;
+
+    private String tableName;
+
+    private String columnName;
+
+    private int updated;
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public void setColumnName(String columnName) {
+        this.columnName = columnName;
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        JdbcConnection connection = (JdbcConnection) database.getConnection();
+        // LIMIT in the statement, so that the database plans for one batch instead of the whole table
+        String select = "SELECT id, " + columnName + " FROM " + tableName + " WHERE id > ? ORDER BY id LIMIT ?";
+        String update = "UPDATE " + tableName + " SET " + columnName + " = ? WHERE id = ? AND " + columnName + " = ?";
+        try {
+            long lastId = Long.MIN_VALUE;
+            boolean more = true;
+            while (more) {
+                Map<Long, String> batch = new LinkedHashMap<>();
+                try (PreparedStatement statement = connection.prepareStatement(select)) {
+                    statement.setLong(1, lastId);
+                    statement.setInt(2, BATCH_SIZE);
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            lastId = rows.getLong(1);
+                            batch.put(lastId, rows.getString(2));
+                        }
+                    }
+                }
+                more = batch.size() == BATCH_SIZE;
+
+                try (PreparedStatement statement = connection.prepareStatement(update)) {
+                    for (Map.Entry<Long, String> row : batch.entrySet()) {
+                        String key = objectKeyOf(row.getValue());
+                        if (key != null && !key.equals(row.getValue())) {
+                            statement.setString(1, key);
+                            statement.setLong(2, row.getKey());
+                            // a row rewritten meanwhile keeps its new value
+                            statement.setString(3, row.getValue());
+                            statement.addBatch();
+                        }
+                    }
+                    for (int count : statement.executeBatch()) {
+                        updated += Math.max(count, 0);
+                    }
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+            }
+        } catch (DatabaseException | SQLException e) {
+            throw new CustomChangeException("Could not backfill object keys of " + tableName + "." + columnName, e);
+        }
+    }
+
+    /**
+     * The object key behind a presigned URL, {@code http://host/bucket/key?X-Amz-...}; other values are returned as is.
+     */
+    static String objectKeyOf(String value) {
+        if (value == null || !(value.startsWith("http://") || value.startsWith("https://"))) {
+            return value;
+        }
+        String path;
+        try {
+            path = URI.create(value).getRawPath();
+        } catch (IllegalArgumentException e) {
+            return value;
+        }
+        // path-style URLs, as signed by MinioService: /bucket/key
+        int keyStart = path == null ? -1 : path.indexOf('/', 1);
+        if (keyStart < 0 || keyStart == path.length() - 1) {
+            return value;
+        }
+        return URLDecoder.decode(path.substring(keyStart + 1).replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Replaced " + updated + " presigned URLs by object keys in " + tableName + "." + columnName;
+    }
+
+    @Override
+    public void setUp() {
+        // nothing to set up
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+        // no resources needed
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = new ValidationErrors();
+        errors.checkRequiredField("tableName", tableName);
+        errors.checkRequiredField("columnName", columnName);
+        return errors;
+    }
+}
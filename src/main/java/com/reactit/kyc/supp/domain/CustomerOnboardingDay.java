@@ -0,0 +1,138 @@
+package com.reactit.kyc.supp.domain;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Objects;
+
+/**
+ * The number of customers of a partner created on a day (UTC), kept up to date as customers are saved.
+ * <p>
+ * Days are split per partner so that customers of different partners created on the same day do not update the same row;
+ * the customers created on a day are the sum over partners. Customers without a partner are counted under partner
+ * {@link KycStatusCounter#NO_PARTNER}.
+ */
+@Entity
+@Table(name = "customer_onboarding_day")
+public class CustomerOnboardingDay implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "customer_count", nullable = false)
+    private Long customerCount;
+
+    public CustomerOnboardingDay() {}
+
+    public CustomerOnboardingDay(LocalDate day, Long partnerId, Long customerCount) {
+        this.key = new Key(day, partnerId);
+        this.customerCount = customerCount;
+    }
+
+    public Key getKey() {
+        return key;
+    }
+
+    public void setKey(Key key) {
+        this.key = key;
+    }
+
+    public Long getCustomerCount() {
+        return customerCount;
+    }
+
+    public void setCustomerCount(Long customerCount) {
+        this.customerCount = customerCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CustomerOnboardingDay)) {
+            return false;
+        }
+        return getKey() != null && getKey().equals(((CustomerOnboardingDay) o).getKey());
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerOnboardingDay{" + "key=" + getKey() + ", customerCount=" + getCustomerCount() + "}";
+    }
+
+    /**
+     * The day and partner a row counts customers of.
+     */
+    @Embeddable
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "day", nullable = false)
+        private LocalDate day;
+
+        @Column(name = "partner_id", nullable = false)
+        private Long partnerId;
+
+        public Key() {}
+
+        public Key(LocalDate day, Long partnerId) {
+            this.day = day;
+            this.partnerId = partnerId;
+        }
+
+        /**
+         * @return the row a customer is counted in, {@code null} if it has no creation time.
+         */
+        public static Key of(Customer customer) {
+            Instant createdAt = customer.getCreatedAt();
+            if (createdAt == null) {
+                return null;
+            }
+            Partner partner = customer.getPartner();
+            return new Key(
+                LocalDate.ofInstant(createdAt, ZoneOffset.UTC),
+                partner != null && partner.getId() != null ? partner.getId() : KycStatusCounter.NO_PARTNER
+            );
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public Long getPartnerId() {
+            return partnerId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return Objects.equals(day, other.day) && Objects.equals(partnerId, other.partnerId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, partnerId);
+        }
+
+        @Override
+        public String toString() {
+            return day + "/" + partnerId;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.reactit.kyc.supp.domain;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * The admin dashboard as computed at a point in time, stored as JSON.
+ */
+@Entity
+@Table(name = "dashboard_snapshot")
+public class DashboardSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "computed_at", nullable = false)
+    private Instant computedAt;
+
+    @Lob
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    public DashboardSnapshot() {}
+
+    public DashboardSnapshot(Instant computedAt, String payload) {
+        this.computedAt = computedAt;
+        this.payload = payload;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Instant getComputedAt() {
+        return computedAt;
+    }
+
+    public void setComputedAt(Instant computedAt) {
+        this.computedAt = computedAt;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DashboardSnapshot)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((DashboardSnapshot) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "DashboardSnapshot{" + "id=" + getId() + ", computedAt='" + getComputedAt() + "'" + "}";
+    }
+}
@@ -0,0 +1,108 @@
+package com.reactit.kyc.supp.domain;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * The face embedding of an image with a model, the image being identified by the SHA-256 of its content.
+ */
+@Entity
+@Table(name = "face_embedding")
+@IdClass(FaceEmbeddingId.class)
+public class FaceEmbedding implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Id
+    @Column(name = "model", nullable = false, length = 32)
+    private String model;
+
+    /**
+     * The embedding vector, as big-endian 32-bit floats.
+     */
+    @Column(name = "embedding", nullable = false)
+    private byte[] embedding;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public FaceEmbedding contentHash(String contentHash) {
+        this.setContentHash(contentHash);
+        return this;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public FaceEmbedding model(String model) {
+        this.setModel(model);
+        return this;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public byte[] getEmbedding() {
+        return embedding;
+    }
+
+    public FaceEmbedding embedding(byte[] embedding) {
+        this.setEmbedding(embedding);
+        return this;
+    }
+
+    public void setEmbedding(byte[] embedding) {
+        this.embedding = embedding;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public FaceEmbedding createdAt(Instant createdAt) {
+        this.setCreatedAt(createdAt);
+        return this;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FaceEmbedding)) {
+            return false;
+        }
+        FaceEmbedding other = (FaceEmbedding) o;
+        return getContentHash() != null && getContentHash().equals(other.getContentHash()) && Objects.equals(getModel(), other.getModel());
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "FaceEmbedding{" + "contentHash='" + getContentHash() + "'" + ", model='" + getModel() + "'" + ", createdAt='" + getCreatedAt() + "'" + "}";
+    }
+}
@@ -0,0 +1,53 @@
+package com.reactit.kyc.supp.domain;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The key of a {@link FaceEmbedding}: an image is embedded once per model.
+ */
+public class FaceEmbeddingId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String contentHash;
+
+    private String model;
+
+    public FaceEmbeddingId() {}
+
+    public FaceEmbeddingId(String contentHash, String model) {
+        this.contentHash = contentHash;
+        this.model = model;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FaceEmbeddingId)) {
+            return false;
+        }
+        FaceEmbeddingId other = (FaceEmbeddingId) o;
+        return Objects.equals(contentHash, other.contentHash) && Objects.equals(model, other.model);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(contentHash, model);
+    }
+
+    @Override
+    public String toString() {
+        return model + ':' + contentHash;
+    }
+}
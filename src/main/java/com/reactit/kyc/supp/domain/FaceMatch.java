@@ -1,6 +1,7 @@
 package com.reactit.kyc.supp.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.reactit.kyc.supp.domain.enumeration.FaceMatchJobStatus;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.io.Serializable;
@@ -39,6 +40,20 @@ public class FaceMatch implements Serializable {
     @Column(name = "created_at")
     private Instant createdAt;
 
+    /**
+     * Set for face matches submitted as background jobs; the job columns are only updated by the job queries of
+     * {@link com.reactit.kyc.supp.repository.FaceMatchRepository}, never when the face match itself is saved.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_status", updatable = false)
+    private FaceMatchJobStatus jobStatus;
+
+    @Column(name = "job_error", length = 1024, updatable = false)
+    private String jobError;
+
+    @Column(name = "job_updated_at", updatable = false)
+    private Instant jobUpdatedAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JsonIgnoreProperties(value = { "documents", "faceMatches", "partner" }, allowSetters = true)
     private Customer customer;
@@ -123,6 +138,45 @@ public class FaceMatch implements Serializable {
         this.createdAt = createdAt;
     }
 
+    public FaceMatchJobStatus getJobStatus() {
+        return this.jobStatus;
+    }
+
+    public FaceMatch jobStatus(FaceMatchJobStatus jobStatus) {
+        this.setJobStatus(jobStatus);
+        return this;
+    }
+
+    public void setJobStatus(FaceMatchJobStatus jobStatus) {
+        this.jobStatus = jobStatus;
+    }
+
+    public String getJobError() {
+        return this.jobError;
+    }
+
+    public FaceMatch jobError(String jobError) {
+        this.setJobError(jobError);
+        return this;
+    }
+
+    public void setJobError(String jobError) {
+        this.jobError = jobError;
+    }
+
+    public Instant getJobUpdatedAt() {
+        return this.jobUpdatedAt;
+    }
+
+    public FaceMatch jobUpdatedAt(Instant jobUpdatedAt) {
+        this.setJobUpdatedAt(jobUpdatedAt);
+        return this;
+    }
+
+    public void setJobUpdatedAt(Instant jobUpdatedAt) {
+        this.jobUpdatedAt = jobUpdatedAt;
+    }
+
     public Customer getCustomer() {
         return this.customer;
     }
@@ -165,6 +219,7 @@ public class FaceMatch implements Serializable {
             ", match='" + getMatch() + "'" +
             ", score=" + getScore() +
             ", createdAt='" + getCreatedAt() + "'" +
+            ", jobStatus='" + getJobStatus() + "'" +
             "}";
     }
 }
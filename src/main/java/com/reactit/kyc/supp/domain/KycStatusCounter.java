@@ -0,0 +1,130 @@
+package com.reactit.kyc.supp.domain;
+
+import com.reactit.kyc.supp.domain.enumeration.KycStatus;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The number of customers of a partner in a KYC status, kept up to date as customers are saved.
+ * <p>
+ * Customers without a partner are counted under partner {@link #NO_PARTNER}.
+ */
+@Entity
+@Table(name = "kyc_status_counter")
+public class KycStatusCounter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final long NO_PARTNER = 0L;
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "customer_count", nullable = false)
+    private Long customerCount;
+
+    public KycStatusCounter() {}
+
+    public KycStatusCounter(Long partnerId, KycStatus kycStatus, Long customerCount) {
+        this.key = new Key(partnerId, kycStatus);
+        this.customerCount = customerCount;
+    }
+
+    public Key getKey() {
+        return key;
+    }
+
+    public void setKey(Key key) {
+        this.key = key;
+    }
+
+    public Long getCustomerCount() {
+        return customerCount;
+    }
+
+    public void setCustomerCount(Long customerCount) {
+        this.customerCount = customerCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof KycStatusCounter)) {
+            return false;
+        }
+        return getKey() != null && getKey().equals(((KycStatusCounter) o).getKey());
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "KycStatusCounter{" + "key=" + getKey() + ", customerCount=" + getCustomerCount() + "}";
+    }
+
+    /**
+     * The partner and status a counter counts customers of.
+     */
+    @Embeddable
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "partner_id", nullable = false)
+        private Long partnerId;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "kyc_status", nullable = false)
+        private KycStatus kycStatus;
+
+        public Key() {}
+
+        public Key(Long partnerId, KycStatus kycStatus) {
+            this.partnerId = partnerId;
+            this.kycStatus = kycStatus;
+        }
+
+        /**
+         * @return the counter a customer is counted in.
+         */
+        public static Key of(Customer customer) {
+            Partner partner = customer.getPartner();
+            return new Key(partner != null && partner.getId() != null ? partner.getId() : NO_PARTNER, customer.getKycStatus());
+        }
+
+        public Long getPartnerId() {
+            return partnerId;
+        }
+
+        public KycStatus getKycStatus() {
+            return kycStatus;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return Objects.equals(partnerId, other.partnerId) && kycStatus == other.kycStatus;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(partnerId, kycStatus);
+        }
+
+        @Override
+        public String toString() {
+            return partnerId + "/" + kycStatus;
+        }
+    }
+}
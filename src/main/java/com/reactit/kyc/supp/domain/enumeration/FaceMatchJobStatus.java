@@ -0,0 +1,11 @@
+package com.reactit.kyc.supp.domain.enumeration;
+
+/**
+ * The FaceMatchJobStatus enumeration, the progress of the background inference filling in a face match.
+ */
+public enum FaceMatchJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+}
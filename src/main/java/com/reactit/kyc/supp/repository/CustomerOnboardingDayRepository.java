@@ -0,0 +1,44 @@
+package com.reactit.kyc.supp.repository;
+
+import com.reactit.kyc.supp.domain.CustomerOnboardingDay;
+import com.reactit.kyc.supp.service.dto.OnboardingCountDTO;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the CustomerOnboardingDay entity.
+ */
+@Repository
+public interface CustomerOnboardingDayRepository extends JpaRepository<CustomerOnboardingDay, CustomerOnboardingDay.Key> {
+    /**
+     * Add to the customers of a partner created on a day, creating the row if needed.
+     */
+    @Modifying
+    @Query(
+        value = "INSERT INTO customer_onboarding_day (day, partner_id, customer_count) VALUES (:day, :partnerId, :delta) " +
+        "ON CONFLICT (day, partner_id) DO UPDATE SET customer_count = customer_onboarding_day.customer_count + EXCLUDED.customer_count",
+        nativeQuery = true
+    )
+    void add(@Param("day") LocalDate day, @Param("partnerId") long partnerId, @Param("delta") long delta);
+
+    // Customers created per day, over all partners
+    @Query("SELECT new com.reactit.kyc.supp.service.dto.OnboardingCountDTO(d.key.day, SUM(d.customerCount)) " +
+        "FROM CustomerOnboardingDay d WHERE d.key.day BETWEEN :from AND :to GROUP BY d.key.day ORDER BY d.key.day")
+    List<OnboardingCountDTO> sumByDayBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    List<CustomerOnboardingDay> findByKeyPartnerId(Long partnerId);
+
+    // Partners with days, including deleted ones
+    @Query("SELECT DISTINCT d.key.partnerId FROM CustomerOnboardingDay d")
+    List<Long> findPartnerIds();
+
+    // Actual counts of a partner, partner 0 for customers without partner; created_at is stored in UTC
+    @Query("SELECT new com.reactit.kyc.supp.domain.CustomerOnboardingDay(" +
+        "CAST(c.createdAt AS LocalDate), COALESCE(c.partner.id, 0L), COUNT(c)) " +
+        "FROM Customer c WHERE c.createdAt IS NOT NULL AND (c.partner.id = :partnerId OR (:partnerId = 0 AND c.partner IS NULL)) " +
+        "GROUP BY CAST(c.createdAt AS LocalDate), COALESCE(c.partner.id, 0L)")
+    List<CustomerOnboardingDay> countCustomersOfPartner(@Param("partnerId") long partnerId);
+}
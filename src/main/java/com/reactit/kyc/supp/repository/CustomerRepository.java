@@ -1,10 +1,17 @@
 package com.reactit.kyc.supp.repository;
 import com.reactit.kyc.supp.service.dto.CustomerDocumentCountDTO;
+import com.reactit.kyc.supp.service.dto.DocumentCountBucketDTO;
 import com.reactit.kyc.supp.domain.Customer;
+import com.reactit.kyc.supp.domain.enumeration.KycStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Spring Data JPA repository for the Customer entity.
@@ -12,28 +19,48 @@ import java.util.List;
 @SuppressWarnings("unused")
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
-    // Customers with document count
+    // Customers with document count, most documents first, after (afterCount, afterId); groups every matching customer
     @Query("SELECT new com.reactit.kyc.supp.service.dto.CustomerDocumentCountDTO(c.id, c.fullName, c.kycStatus, COUNT(d)) " +
         "FROM Customer c LEFT JOIN Document d ON d.customer.id = c.id " +
-        "GROUP BY c.id, c.fullName, c.kycStatus")
-    List<CustomerDocumentCountDTO> findCustomersWithDocumentCount();
+        "WHERE (:status IS NULL OR c.kycStatus = :status) AND (:partnerId IS NULL OR c.partner.id = :partnerId) " +
+        "GROUP BY c.id, c.fullName, c.kycStatus " +
+        "HAVING :afterCount IS NULL OR COUNT(d) < :afterCount OR (COUNT(d) = :afterCount AND c.id > :afterId) " +
+        "ORDER BY COUNT(d) DESC, c.id")
+    List<CustomerDocumentCountDTO> findCustomersWithMostDocuments(
+        @Param("status") KycStatus status,
+        @Param("partnerId") Long partnerId,
+        @Param("afterCount") Long afterCount,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
 
-    // Total customers
-    @Query("SELECT COUNT(c) FROM Customer c")
-    Long countTotalCustomers();
-
-    // Pending customers
-    @Query("SELECT COUNT(c) FROM Customer c WHERE c.kycStatus = 'PENDING'")
-    Long countPendingCustomers();
+    // Customers with document count, fewest documents first, after (afterCount, afterId); groups every matching customer
+    @Query("SELECT new com.reactit.kyc.supp.service.dto.CustomerDocumentCountDTO(c.id, c.fullName, c.kycStatus, COUNT(d)) " +
+        "FROM Customer c LEFT JOIN Document d ON d.customer.id = c.id " +
+        "WHERE (:status IS NULL OR c.kycStatus = :status) AND (:partnerId IS NULL OR c.partner.id = :partnerId) " +
+        "GROUP BY c.id, c.fullName, c.kycStatus " +
+        "HAVING :afterCount IS NULL OR COUNT(d) > :afterCount OR (COUNT(d) = :afterCount AND c.id > :afterId) " +
+        "ORDER BY COUNT(d), c.id")
+    List<CustomerDocumentCountDTO> findCustomersWithFewestDocuments(
+        @Param("status") KycStatus status,
+        @Param("partnerId") Long partnerId,
+        @Param("afterCount") Long afterCount,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
 
-    // Verified customers
-    @Query("SELECT COUNT(c) FROM Customer c WHERE c.kycStatus = 'VERIFIED'")
-    Long countVerifiedCustomers();
+    // Number of customers per document count and status
+    @Query("SELECT new com.reactit.kyc.supp.service.dto.DocumentCountBucketDTO(t.documentCount, t.kycStatus, COUNT(*)) " +
+        "FROM (SELECT c.kycStatus AS kycStatus, COUNT(d) AS documentCount " +
+        "FROM Customer c LEFT JOIN Document d ON d.customer.id = c.id GROUP BY c.id, c.kycStatus) t " +
+        "GROUP BY t.documentCount, t.kycStatus ORDER BY t.documentCount")
+    List<DocumentCountBucketDTO> countCustomersByDocumentCount();
 
-    // Rejected customers
-    @Query("SELECT COUNT(c) FROM Customer c WHERE c.kycStatus = 'REJECTED'")
-    Long countRejectedCustomers();
+    // Customers added since the given instant
+    Long countByCreatedAtGreaterThanEqual(Instant createdAt);
 
-    @Query("SELECT COUNT(c) FROM Customer c WHERE MONTH(c.createdAt) = MONTH(CURRENT_DATE) AND YEAR(c.createdAt) = YEAR(CURRENT_DATE)")
-    Long countCustomersAddedThisMonth();
+    // Locks the customer until the end of the transaction, so that concurrent saves move it between status counters in turn
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Customer c WHERE c.id = :id")
+    Optional<Customer> findByIdForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,25 @@
+package com.reactit.kyc.supp.repository;
+
+import com.reactit.kyc.supp.domain.DashboardSnapshot;
+import java.time.Instant;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the DashboardSnapshot entity.
+ */
+@Repository
+public interface DashboardSnapshotRepository extends JpaRepository<DashboardSnapshot, Long> {
+    Optional<DashboardSnapshot> findFirstByOrderByComputedAtDesc();
+
+    Optional<DashboardSnapshot> findFirstByOrderByComputedAtAsc();
+
+    // The last snapshot computed at or before the given instant
+    Optional<DashboardSnapshot> findFirstByComputedAtLessThanEqualOrderByComputedAtDesc(Instant computedAt);
+
+    @Modifying
+    @Query("DELETE FROM DashboardSnapshot s WHERE s.computedAt < :computedAt")
+    int deleteByComputedAtBefore(@Param("computedAt") Instant computedAt);
+}
@@ -9,4 +9,6 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, Long> {}
+public interface DocumentRepository extends JpaRepository<Document, Long> {
+    boolean existsByFileUrl(String fileUrl);
+}
@@ -0,0 +1,12 @@
+package com.reactit.kyc.supp.repository;
+
+import com.reactit.kyc.supp.domain.FaceEmbedding;
+import com.reactit.kyc.supp.domain.FaceEmbeddingId;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the FaceEmbedding entity.
+ */
+@Repository
+public interface FaceEmbeddingRepository extends JpaRepository<FaceEmbedding, FaceEmbeddingId> {}
@@ -1,8 +1,15 @@
 package com.reactit.kyc.supp.repository;
 
 import com.reactit.kyc.supp.domain.FaceMatch;
+import com.reactit.kyc.supp.domain.enumeration.FaceMatchJobStatus;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Spring Data JPA repository for the FaceMatch entity.
@@ -11,4 +18,71 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface FaceMatchRepository extends JpaRepository<FaceMatch, Long> {
     Long countAllBy();
+
+    @Query("select faceMatch.id from FaceMatch faceMatch where faceMatch.id > :afterId order by faceMatch.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Move a job from a status to another, unless it left that status meanwhile.
+     *
+     * @return {@code 1} if the job was moved, {@code 0} otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query(
+        "update FaceMatch faceMatch set faceMatch.jobStatus = :to, faceMatch.jobUpdatedAt = :updatedAt " +
+        "where faceMatch.id = :id and faceMatch.jobStatus = :from"
+    )
+    int moveJob(
+        @Param("id") Long id,
+        @Param("from") FaceMatchJobStatus from,
+        @Param("to") FaceMatchJobStatus to,
+        @Param("updatedAt") Instant updatedAt
+    );
+
+    @Modifying
+    @Transactional
+    @Query(
+        "update FaceMatch faceMatch set faceMatch.match = :match, faceMatch.score = :score, faceMatch.jobStatus = :status, " +
+        "faceMatch.jobError = null, faceMatch.jobUpdatedAt = :updatedAt where faceMatch.id = :id"
+    )
+    void completeJob(
+        @Param("id") Long id,
+        @Param("match") Boolean match,
+        @Param("score") Double score,
+        @Param("status") FaceMatchJobStatus status,
+        @Param("updatedAt") Instant updatedAt
+    );
+
+    @Modifying
+    @Transactional
+    @Query(
+        "update FaceMatch faceMatch set faceMatch.jobStatus = :status, faceMatch.jobError = :error, " +
+        "faceMatch.jobUpdatedAt = :updatedAt where faceMatch.id = :id"
+    )
+    void failJob(
+        @Param("id") Long id,
+        @Param("status") FaceMatchJobStatus status,
+        @Param("error") String error,
+        @Param("updatedAt") Instant updatedAt
+    );
+
+    /**
+     * Fail the jobs left in the given statuses since before a time, such as jobs queued on an instance that stopped.
+     *
+     * @return the number of jobs failed.
+     */
+    @Modifying
+    @Transactional
+    @Query(
+        "update FaceMatch faceMatch set faceMatch.jobStatus = :status, faceMatch.jobError = :error, " +
+        "faceMatch.jobUpdatedAt = :updatedAt where faceMatch.jobStatus in :stale and faceMatch.jobUpdatedAt < :before"
+    )
+    int failStaleJobs(
+        @Param("stale") Collection<FaceMatchJobStatus> stale,
+        @Param("before") Instant before,
+        @Param("status") FaceMatchJobStatus status,
+        @Param("error") String error,
+        @Param("updatedAt") Instant updatedAt
+    );
 }
@@ -0,0 +1,36 @@
+package com.reactit.kyc.supp.repository;
+
+import com.reactit.kyc.supp.domain.KycStatusCounter;
+import java.util.List;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the KycStatusCounter entity.
+ */
+@Repository
+public interface KycStatusCounterRepository extends JpaRepository<KycStatusCounter, KycStatusCounter.Key> {
+    /**
+     * Add to a counter, creating it if needed; the counter row stays locked until the transaction ends.
+     */
+    @Modifying
+    @Query(
+        value = "INSERT INTO kyc_status_counter (partner_id, kyc_status, customer_count) VALUES (:partnerId, :kycStatus, :delta) " +
+        "ON CONFLICT (partner_id, kyc_status) DO UPDATE SET customer_count = kyc_status_counter.customer_count + EXCLUDED.customer_count",
+        nativeQuery = true
+    )
+    void add(@Param("partnerId") long partnerId, @Param("kycStatus") String kycStatus, @Param("delta") long delta);
+
+    List<KycStatusCounter> findByKeyPartnerId(Long partnerId);
+
+    // Partners with counters, including deleted ones
+    @Query("SELECT DISTINCT c.key.partnerId FROM KycStatusCounter c")
+    List<Long> findPartnerIds();
+
+    // Actual counts of a partner, partner 0 for customers without partner; an index range scan of customer
+    @Query("SELECT new com.reactit.kyc.supp.domain.KycStatusCounter(COALESCE(c.partner.id, 0L), c.kycStatus, COUNT(c)) " +
+        "FROM Customer c WHERE c.kycStatus IS NOT NULL AND (c.partner.id = :partnerId OR (:partnerId = 0 AND c.partner IS NULL)) " +
+        "GROUP BY COALESCE(c.partner.id, 0L), c.kycStatus")
+    List<KycStatusCounter> countCustomersOfPartner(@Param("partnerId") long partnerId);
+}
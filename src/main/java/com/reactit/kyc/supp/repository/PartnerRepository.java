@@ -1,6 +1,7 @@
 package com.reactit.kyc.supp.repository;
 
 import com.reactit.kyc.supp.domain.Partner;
+import java.util.List;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +10,7 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface PartnerRepository extends JpaRepository<Partner, Long> {}
+public interface PartnerRepository extends JpaRepository<Partner, Long> {
+    @Query("SELECT p.id FROM Partner p")
+    List<Long> findAllIds();
+}
@@ -0,0 +1,118 @@
+package com.reactit.kyc.supp.service;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrency limit adjusted from observed latency, by additive increase and multiplicative decrease (AIMD).
+ * <p>
+ * Every call completing under the latency threshold while the limit is in use grows the limit by {@code 1 / limit}, so by
+ * about one per round of calls; a slow or failed call shrinks it by {@code backoffRatio}. The limit stays between
+ * {@code minLimit} and {@code maxLimit}, the latter acting as a fixed bulkhead.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final double backoffRatio;
+
+    private double limit;
+
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, Duration latencyThreshold, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits: " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Wait for a slot under the current limit.
+     *
+     * @param timeout how long to wait at most.
+     * @return {@code true} if a slot was taken, it must then be given back with {@link #release}.
+     */
+    public boolean tryAcquire(Duration timeout) throws InterruptedException {
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give back a slot and adjust the limit.
+     *
+     * @param latencyNanos how long the call took.
+     * @param dropped whether the call failed or timed out, which always counts as congestion.
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        lock.lock();
+        try {
+            if (dropped || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlight * 2 >= limit) {
+                // only grow while the limit is actually used, an idle service says nothing about its capacity
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give back a slot without a latency sample, for calls that were never sent.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,52 +1,332 @@
 package com.reactit.kyc.supp.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.domain.DashboardSnapshot;
+import com.reactit.kyc.supp.domain.enumeration.KycStatus;
 import com.reactit.kyc.supp.repository.CustomerRepository;
+import com.reactit.kyc.supp.repository.DashboardSnapshotRepository;
 import com.reactit.kyc.supp.repository.FaceMatchRepository;
 import com.reactit.kyc.supp.repository.NotificationLogRepository;
 import com.reactit.kyc.supp.service.dto.AdminDashboardDTO;
 import com.reactit.kyc.supp.service.dto.CustomerDocumentCountDTO;
 import com.reactit.kyc.supp.service.dto.CustomerInfoDTO;
+import com.reactit.kyc.supp.service.dto.DashboardChangesDTO;
+import com.reactit.kyc.supp.service.dto.DocumentCountBucketDTO;
 import com.reactit.kyc.supp.service.dto.MailStatsDTO;
-import org.springframework.stereotype.Service;
-
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Computes the admin dashboard.
+ * <p>
+ * The dashboard is computed every {@code application.dashboard.snapshot-refresh} into {@code dashboard_snapshot}, and
+ * admins are served the latest snapshot from memory, whatever their number. Instances pick up a snapshot computed by
+ * another instance instead of computing their own while it is fresh. Snapshots are kept for
+ * {@code application.dashboard.snapshot-retention}, to tell how figures changed since an earlier time.
+ * <p>
+ * Refreshes run one at a time: a refresh asked for while another is computing waits for it, and is served any snapshot
+ * computed within {@code application.dashboard.refresh-coalescing} instead of computing its own. The time taken to compute a
+ * snapshot is recorded in {@code kyc.dashboard.refresh}, and the time taken to serve the dashboard in
+ * {@code kyc.dashboard.latency}, tagged by whether a snapshot was already in memory.
+ */
 @Service
 public class AdminDashboardService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AdminDashboardService.class);
+
+    /**
+     * The dashboard and when it was computed.
+     */
+    public static class Snapshot {
+
+        private final Instant computedAt;
+
+        private final AdminDashboardDTO data;
+
+        public Snapshot(Instant computedAt, AdminDashboardDTO data) {
+            this.computedAt = computedAt;
+            this.data = data;
+        }
+
+        public Instant getComputedAt() {
+            return computedAt;
+        }
+
+        public AdminDashboardDTO getData() {
+            return data;
+        }
+    }
+
     private final CustomerRepository customerRepository;
     private final NotificationLogRepository notificationLogRepository;
     private final FaceMatchRepository faceMatchRepository;
 
     private final KeycloakUserService keycloakUserService;
 
-    public AdminDashboardService(CustomerRepository customerRepository, NotificationLogRepository notificationLogRepository, FaceMatchRepository faceMatchRepository, KeycloakUserService keycloakUserService) {
+    private final KycStatusCounterService kycStatusCounterService;
+
+    private final DashboardSnapshotRepository dashboardSnapshotRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int topCustomers;
+
+    private final Duration snapshotRefresh;
+
+    private final Duration snapshotRetention;
+
+    private final Duration refreshCoalescing;
+
+    private final Timer refreshes;
+
+    private final Timer hits;
+
+    private final Timer misses;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Snapshot latest;
+
+    public AdminDashboardService(
+        CustomerRepository customerRepository,
+        NotificationLogRepository notificationLogRepository,
+        FaceMatchRepository faceMatchRepository,
+        KeycloakUserService keycloakUserService,
+        KycStatusCounterService kycStatusCounterService,
+        DashboardSnapshotRepository dashboardSnapshotRepository,
+        ObjectMapper objectMapper,
+        TransactionTemplate transactionTemplate,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
         this.customerRepository = customerRepository;
         this.notificationLogRepository = notificationLogRepository;
-        this.faceMatchRepository=faceMatchRepository;
+        this.faceMatchRepository = faceMatchRepository;
         this.keycloakUserService = keycloakUserService;
+        this.kycStatusCounterService = kycStatusCounterService;
+        this.dashboardSnapshotRepository = dashboardSnapshotRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.topCustomers = applicationProperties.getDashboard().getTopCustomers();
+        this.snapshotRefresh = applicationProperties.getDashboard().getSnapshotRefresh();
+        this.snapshotRetention = applicationProperties.getDashboard().getSnapshotRetention();
+        this.refreshCoalescing = applicationProperties.getDashboard().getRefreshCoalescing();
+        this.refreshes = Timer.builder("kyc.dashboard.refresh").description("Time taken to compute the dashboard").register(meterRegistry);
+        this.hits = Timer.builder("kyc.dashboard.latency").tag("cache", "hit").register(meterRegistry);
+        this.misses = Timer.builder("kyc.dashboard.latency").tag("cache", "miss").register(meterRegistry);
     }
 
-    public AdminDashboardDTO getDashboardData() {
-        // part 1: customer + document counts
-        List<CustomerDocumentCountDTO> customerDocs = customerRepository.findCustomersWithDocumentCount();
+    /**
+     * @return the latest snapshot, computed now only if there is none yet.
+     */
+    public Snapshot getDashboard() {
+        long start = System.nanoTime();
+        Snapshot snapshot = latest;
+        if (snapshot != null) {
+            hits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return snapshot;
+        }
+        refreshLock.lock();
+        try {
+            snapshot = latest;
+            if (snapshot == null) {
+                snapshot = dashboardSnapshotRepository.findFirstByOrderByComputedAtDesc().map(this::read).orElseGet(this::compute);
+                latest = snapshot;
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+        misses.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return snapshot;
+    }
 
-        // part 2: stats
-        Long total = customerRepository.countTotalCustomers();
-        Long pending = customerRepository.countPendingCustomers();
-        Long verified = customerRepository.countVerifiedCustomers();
-        Long rejected = customerRepository.countRejectedCustomers();
-        Long customersAddedThisMonth= customerRepository.countCustomersAddedThisMonth();
+    /**
+     * Compute the dashboard unless another instance just did, in which case its snapshot is served.
+     */
+    @Scheduled(fixedDelayString = "${application.dashboard.snapshot-refresh:1m}")
+    public void refreshIfStale() {
+        Optional<DashboardSnapshot> stored = dashboardSnapshotRepository.findFirstByOrderByComputedAtDesc();
+        if (stored.isPresent() && stored.get().getComputedAt().isAfter(Instant.now().minus(snapshotRefresh.dividedBy(2)))) {
+            latest = read(stored.get());
+            return;
+        }
+        refresh();
+    }
 
-        Long countFaceMatch=faceMatchRepository.countAllBy();
+    /**
+     * Compute the dashboard now, and drop the snapshots older than the retention; unless a snapshot was computed, here or
+     * by another instance, within the refresh coalescing of this call.
+     *
+     * @return the new snapshot, or the recent one served instead.
+     */
+    public Snapshot refresh() {
+        Instant recentAfter = Instant.now().minus(refreshCoalescing);
+        // the transaction starts once the lock is held: waiting refreshes do not hold a database connection
+        refreshLock.lock();
+        try {
+            Snapshot current = latest;
+            if (current != null && current.getComputedAt().isAfter(recentAfter)) {
+                return current;
+            }
+            return transactionTemplate.execute(transaction -> {
+                Optional<DashboardSnapshot> stored = dashboardSnapshotRepository.findFirstByOrderByComputedAtDesc();
+                if (stored.isPresent() && stored.get().getComputedAt().isAfter(recentAfter)) {
+                    latest = read(stored.get());
+                    return latest;
+                }
+                Snapshot snapshot = compute();
+                long dropped = dashboardSnapshotRepository.deleteByComputedAtBefore(snapshot.getComputedAt().minus(snapshotRetention));
+                LOG.debug("Dashboard computed at {}, {} old snapshots dropped", snapshot.getComputedAt(), dropped);
+                latest = snapshot;
+                return snapshot;
+            });
+        } finally {
+            refreshLock.unlock();
+        }
+    }
 
-        Integer totalUsers = keycloakUserService.getUsersCount();
+    /**
+     * Tell how the dashboard figures changed since an earlier time.
+     *
+     * @param since the earlier time; the oldest snapshot kept is used if there is none that old.
+     * @return the changes between the snapshot of that time and the latest one, empty if no snapshot was computed yet.
+     */
+    public Optional<DashboardChangesDTO> getChanges(Instant since) {
+        Snapshot current = getDashboard();
+        return dashboardSnapshotRepository
+            .findFirstByComputedAtLessThanEqualOrderByComputedAtDesc(since)
+            .or(dashboardSnapshotRepository::findFirstByOrderByComputedAtAsc)
+            .map(this::read)
+            .map(baseline -> changes(baseline, current));
+    }
+
+    /**
+     * List customers with their number of documents, a page at a time.
+     * <p>
+     * Pages are keyed on the document count and id of the last customer of the previous page rather than on an offset, so
+     * that customers created or deleted before that key do not shift the next page. The key is not stable though: a customer
+     * whose document count changes between two pages moves across it, and may be skipped or listed twice.
+     * <p>
+     * Every page still counts the documents of all matching customers before sorting them: the cost of a page grows with the
+     * number of customers, the key only saves sending the rows of the previous pages.
+     *
+     * @param status only customers in this status, {@code null} for all.
+     * @param partnerId only customers of this partner, {@code null} for all.
+     * @param direction {@link Sort.Direction#DESC} for the customers with the most documents first.
+     * @param afterCount the document count of the last customer of the previous page, {@code null} for the first page.
+     * @param afterId the id of the last customer of the previous page.
+     * @param size the number of customers in the page.
+     * @return the page of customers.
+     */
+    @Transactional(readOnly = true)
+    public List<CustomerDocumentCountDTO> getCustomerDocumentCounts(
+        KycStatus status,
+        Long partnerId,
+        Sort.Direction direction,
+        Long afterCount,
+        Long afterId,
+        int size
+    ) {
+        PageRequest page = PageRequest.of(0, size);
+        return direction.isDescending()
+            ? customerRepository.findCustomersWithMostDocuments(status, partnerId, afterCount, afterId, page)
+            : customerRepository.findCustomersWithFewestDocuments(status, partnerId, afterCount, afterId, page);
+    }
+
+    private Snapshot compute() {
+        AdminDashboardDTO data = refreshes.record(this::computeDashboardData);
+        Snapshot snapshot = new Snapshot(Instant.now(), data);
+        try {
+            dashboardSnapshotRepository.save(new DashboardSnapshot(snapshot.getComputedAt(), objectMapper.writeValueAsString(data)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store the dashboard", e);
+        }
+        return snapshot;
+    }
 
-        CustomerInfoDTO customerInfo = new CustomerInfoDTO(total, pending, verified, rejected, customersAddedThisMonth);
+    private Snapshot read(DashboardSnapshot stored) {
+        try {
+            return new Snapshot(stored.getComputedAt(), objectMapper.readValue(stored.getPayload(), AdminDashboardDTO.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read the dashboard of " + stored.getComputedAt(), e);
+        }
+    }
+
+    private static DashboardChangesDTO changes(Snapshot baseline, Snapshot current) {
+        AdminDashboardDTO before = baseline.getData();
+        AdminDashboardDTO after = current.getData();
+        return new DashboardChangesDTO(
+            baseline.getComputedAt(),
+            current.getComputedAt(),
+            difference(before, after, data -> data.getCustomerInfo().getTotalCustomers()),
+            difference(before, after, data -> data.getCustomerInfo().getPendingCustomers()),
+            difference(before, after, data -> data.getCustomerInfo().getVerifiedCustomers()),
+            difference(before, after, data -> data.getCustomerInfo().getRejectedCustomers()),
+            difference(before, after, data -> (long) data.getMailStats().getTotalEmailsSent()),
+            difference(before, after, AdminDashboardDTO::getCountFaceMatch),
+            difference(before, after, data -> data.getTotalUsers() == null ? null : data.getTotalUsers().longValue())
+        );
+    }
+
+    private static Long difference(AdminDashboardDTO before, AdminDashboardDTO after, Function<AdminDashboardDTO, Long> figure) {
+        Long from = figure.apply(before);
+        Long to = figure.apply(after);
+        return from == null || to == null ? null : to - from;
+    }
+
+    private AdminDashboardDTO computeDashboardData() {
+        // part 1: the customers with the most documents, and how many customers have each number of documents
+        List<CustomerDocumentCountDTO> customerDocs = customerRepository.findCustomersWithMostDocuments(
+            null,
+            null,
+            null,
+            null,
+            PageRequest.of(0, topCustomers)
+        );
+        List<DocumentCountBucketDTO> distribution = customerRepository.countCustomersByDocumentCount();
+
+        // part 2: stats, the status breakdown from the maintained counters
+        Map<KycStatus, Long> statusCounts = kycStatusCounterService.countByStatus();
+        Long total = statusCounts.values().stream().mapToLong(Long::longValue).sum();
+        Instant monthStart = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        Long customersAddedThisMonth = customerRepository.countByCreatedAtGreaterThanEqual(monthStart);
+        CustomerInfoDTO customerInfo = new CustomerInfoDTO(
+            total,
+            statusCounts.get(KycStatus.PENDING),
+            statusCounts.get(KycStatus.VERIFIED),
+            statusCounts.get(KycStatus.REJECTED),
+            customersAddedThisMonth
+        );
+
+        Long countFaceMatch = faceMatchRepository.countAllBy();
+
+        Integer totalUsers = keycloakUserService.getUsersCount();
 
         int totalEmailsSent = notificationLogRepository.totalEmailsSent();
         MailStatsDTO mailStats = new MailStatsDTO(totalEmailsSent);
 
-        return new AdminDashboardDTO(customerDocs, customerInfo,mailStats,countFaceMatch,totalUsers);
+        return new AdminDashboardDTO(customerDocs, distribution, customerInfo, mailStats, countFaceMatch, totalUsers);
     }
 }
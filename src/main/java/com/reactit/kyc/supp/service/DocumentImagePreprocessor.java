@@ -0,0 +1,266 @@
+package com.reactit.kyc.supp.service;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Node;
+
+/**
+ * Decodes uploaded document images to a bounded working resolution, upright.
+ * <p>
+ * Images whose longest side exceeds {@code application.image-analysis.max-dimension} are shrunk in two steps: the decoder
+ * subsamples them to at most three times the working size, so that a 48 MP photo never exists in memory at full size, and
+ * blocks of pixels are then averaged down to the working size. Averaging removes the fine detail subsampling alone would
+ * alias into false edges. The EXIF orientation of JPEG files is applied afterwards, as {@code cv2.imread} does.
+ */
+@Service
+public class DocumentImagePreprocessor {
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    private static final int APP1_MARKER = 0xE1;
+
+    private static final byte[] EXIF_HEADER = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    private final int maxDimension;
+
+    @Autowired
+    public DocumentImagePreprocessor(ApplicationProperties applicationProperties) {
+        this(applicationProperties.getImageAnalysis().getMaxDimension());
+    }
+
+    /**
+     * @param maxDimension the longest side of the working image, {@code 0} to keep the full resolution.
+     */
+    public DocumentImagePreprocessor(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * Decode an image at working resolution.
+     *
+     * @param inputStream the encoded image.
+     * @return the upright image, at most {@code maxDimension} pixels wide and high, and its scale.
+     * @throws IOException if the image cannot be decoded.
+     */
+    public WorkingImage load(InputStream inputStream) throws IOException {
+        // memory cache: the default ImageIO stream would spool the upload to a temp file
+        try (ImageInputStream input = new MemoryCacheImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported or unreadable image file");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                int orientation = orientation(reader);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int factor = subsampling(width, height);
+                // the decoder drops pixels, leave it half of the reduction so that averaging sees every other source pixel
+                int decoded = Math.max(1, factor / 2);
+                if (decoded > 1) {
+                    param.setSourceSubsampling(decoded, decoded, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+                image = shrink(image, subsampling(image.getWidth(), image.getHeight()));
+                double scale = (double) Math.max(image.getWidth(), image.getHeight()) / Math.max(width, height);
+                return new WorkingImage(orient(image, orientation), scale);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Smallest integer subsampling factor bringing the longest side within {@code maxDimension}.
+     */
+    int subsampling(int width, int height) {
+        int longest = Math.max(width, height);
+        if (maxDimension <= 0 || longest <= maxDimension) {
+            return 1;
+        }
+        return (longest + maxDimension - 1) / maxDimension;
+    }
+
+    /**
+     * Average blocks of {@code factor x factor} pixels, the blocks of the last row and column being cut short.
+     */
+    static BufferedImage shrink(BufferedImage image, int factor) {
+        if (factor <= 1) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int shrunkWidth = (width + factor - 1) / factor;
+        int shrunkHeight = (height + factor - 1) / factor;
+        boolean gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        // the decoders' usual output, read straight from its pixel bytes; anything else goes through sRGB
+        boolean raw = gray || image.getType() == BufferedImage.TYPE_3BYTE_BGR;
+        int bands = gray ? 1 : 3;
+        BufferedImage shrunk = new BufferedImage(shrunkWidth, shrunkHeight, gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR);
+        byte[] target = ((DataBufferByte) shrunk.getRaster().getDataBuffer()).getData();
+        int[] row = new int[width * bands];
+        int[] sums = new int[shrunkWidth * bands];
+        for (int y = 0; y < shrunkHeight; y++) {
+            Arrays.fill(sums, 0);
+            int rows = Math.min(factor, height - y * factor);
+            for (int sourceY = y * factor; sourceY < y * factor + rows; sourceY++) {
+                if (raw) {
+                    // TYPE_3BYTE_BGR rasters give their pixels in R, G, B order
+                    image.getRaster().getPixels(0, sourceY, width, 1, row);
+                    for (int x = 0; x < width; x++) {
+                        int sum = (x / factor) * bands;
+                        for (int band = 0; band < bands; band++) {
+                            sums[sum + bands - 1 - band] += row[x * bands + band];
+                        }
+                    }
+                } else {
+                    image.getRGB(0, sourceY, width, 1, row, 0, width);
+                    for (int x = 0; x < width; x++) {
+                        int sum = (x / factor) * 3;
+                        // TYPE_3BYTE_BGR stores blue first
+                        sums[sum] += row[x] & 0xff;
+                        sums[sum + 1] += (row[x] >> 8) & 0xff;
+                        sums[sum + 2] += (row[x] >> 16) & 0xff;
+                    }
+                }
+            }
+            for (int x = 0; x < shrunkWidth; x++) {
+                int pixels = rows * Math.min(factor, width - x * factor);
+                for (int band = 0; band < bands; band++) {
+                    int sum = sums[x * bands + band];
+                    target[(y * shrunkWidth + x) * bands + band] = (byte) ((sum + pixels / 2) / pixels);
+                }
+            }
+        }
+        return shrunk;
+    }
+
+    /**
+     * EXIF orientation of a JPEG image, from 1 (upright) to 8; 1 when absent or unreadable.
+     */
+    private static int orientation(ImageReader reader) {
+        IIOMetadata metadata;
+        try {
+            metadata = reader.getImageMetadata(0);
+        } catch (IOException | RuntimeException e) {
+            return 1;
+        }
+        if (metadata == null || !JPEG_METADATA_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+            return 1;
+        }
+        Node root = metadata.getAsTree(JPEG_METADATA_FORMAT);
+        for (Node sequence = root.getFirstChild(); sequence != null; sequence = sequence.getNextSibling()) {
+            if (!"markerSequence".equals(sequence.getNodeName())) {
+                continue;
+            }
+            for (Node marker = sequence.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                if (
+                    "unknown".equals(marker.getNodeName()) &&
+                    marker instanceof IIOMetadataNode node &&
+                    node.getUserObject() instanceof byte[] data &&
+                    String.valueOf(APP1_MARKER).equals(node.getAttribute("MarkerTag"))
+                ) {
+                    int orientation = exifOrientation(data);
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Read the orientation tag of IFD0 in an APP1 segment, {@code 0} if it is not EXIF or has no valid orientation.
+     */
+    static int exifOrientation(byte[] app1) {
+        int tiff = EXIF_HEADER.length;
+        if (app1.length < tiff + 8 || !ByteBuffer.wrap(app1, 0, tiff).equals(ByteBuffer.wrap(EXIF_HEADER))) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(app1);
+        if (app1[tiff] == 'I' && app1[tiff + 1] == 'I') {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (app1[tiff] != 'M' || app1[tiff + 1] != 'M') {
+            return 0;
+        }
+        long ifd = tiff + Integer.toUnsignedLong(buffer.getInt(tiff + 4));
+        if (ifd + 2 > app1.length) {
+            return 0;
+        }
+        int entries = Short.toUnsignedInt(buffer.getShort((int) ifd));
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > app1.length) {
+                return 0;
+            }
+            if (Short.toUnsignedInt(buffer.getShort(entry)) == ORIENTATION_TAG) {
+                int orientation = Short.toUnsignedInt(buffer.getShort(entry + 8));
+                return orientation >= 1 && orientation <= 8 ? orientation : 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Apply an EXIF orientation, turning the image upright, and convert it to 8-bit BGR or gray.
+     */
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);
+            default -> new AffineTransform();
+        };
+        int type = image.getType() == BufferedImage.TYPE_BYTE_GRAY ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR;
+        if (transform.isIdentity() && image.getType() == type) {
+            return image;
+        }
+        boolean transposed = orientation >= 5 && orientation <= 8;
+        BufferedImage oriented = new BufferedImage(transposed ? h : w, transposed ? w : h, type);
+        Graphics2D graphics = oriented.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return oriented;
+    }
+
+    /**
+     * A decoded image at working resolution.
+     *
+     * @param image the upright image.
+     * @param scale the working size over the original size, {@code 1} when the image was not shrunk.
+     */
+    public record WorkingImage(BufferedImage image, double scale) {}
+}
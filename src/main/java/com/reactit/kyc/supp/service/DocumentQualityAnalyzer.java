@@ -0,0 +1,574 @@
+package com.reactit.kyc.supp.service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import javax.imageio.ImageIO;
+import org.springframework.stereotype.Service;
+
+/**
+ * Java port of the document quality checks of {@code image-analyzer.py}: blur, glare, rotation and cut-off edges.
+ * <p>
+ * Each check reproduces the OpenCV primitive the script relies on, including its rounding and border handling, so that both
+ * implementations flag the same issues: BT.601 fixed-point grayscale, 3x3 Laplacian with reflected borders, Canny with L1
+ * gradient and standard Hough transform. Pixels are processed in primitive buffers, and every pass but edge tracking runs on
+ * bands of rows forked on a {@link ForkJoinPool}.
+ */
+@Service
+public class DocumentQualityAnalyzer {
+
+    static final double BLUR_VARIANCE_THRESHOLD = 100;
+
+    /**
+     * Shrinking an image by {@code k} multiplies the Laplacian variance by about {@code k^4} on soft edges, but much less on
+     * edges that are already sharp; this exponent, fitted with the corpus report of {@code DocumentImagePreprocessorTest},
+     * separates them the way the full resolution threshold does.
+     */
+    static final double BLUR_SCALE_EXPONENT = 2.5;
+
+    static final int GLARE_BRIGHTNESS = 240;
+
+    static final double GLARE_RATIO = 0.05;
+
+    static final int CANNY_LOW_THRESHOLD = 50;
+
+    static final int CANNY_HIGH_THRESHOLD = 150;
+
+    static final int HOUGH_THRESHOLD = 150;
+
+    static final double ROTATION_TOLERANCE_DEGREES = 5;
+
+    static final int BORDER_WIDTH = 10;
+
+    static final double CUT_OFF_BORDER_MEAN = 20;
+
+    private static final int TILE_ROWS = 64;
+
+    // OpenCV's cvtColor BGR2GRAY coefficients, in 14-bit fixed point
+    private static final int GRAY_R = 4899;
+
+    private static final int GRAY_G = 9617;
+
+    private static final int GRAY_B = 1868;
+
+    // tan(22.5°) in 15-bit fixed point, as in OpenCV's Canny
+    private static final int TAN_22_5 = (int) (0.4142135623730950488016887242097 * (1 << 15) + 0.5);
+
+    private static final byte NOT_EDGE = 0;
+
+    private static final byte WEAK = 1;
+
+    private static final byte STRONG = 2;
+
+    private static final byte EDGE = 3;
+
+    private final ForkJoinPool pool;
+
+    public DocumentQualityAnalyzer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    DocumentQualityAnalyzer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Decode and analyze an image.
+     *
+     * @param inputStream the encoded image.
+     * @return the issues found.
+     * @throws IOException if the image cannot be decoded.
+     */
+    public Report analyze(InputStream inputStream) throws IOException {
+        BufferedImage image = ImageIO.read(inputStream);
+        if (image == null) {
+            throw new IOException("Unsupported or unreadable image file");
+        }
+        return analyze(image);
+    }
+
+    public Report analyze(BufferedImage image) {
+        return analyze(image, 1);
+    }
+
+    /**
+     * Analyze an image shrunk from a larger original, with the thresholds that depend on the resolution scaled to it, so
+     * that the checks flag what they would on the original: the Laplacian variance and the gradients of soft edges grow as
+     * the image shrinks, the Hough votes of a line are its length in pixels, and the cut-off border strips are 10 pixels
+     * wide on the original.
+     *
+     * @param image the image.
+     * @param scale the size of the image over the size of the original.
+     * @return the issues found.
+     */
+    public Report analyze(BufferedImage image, double scale) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] gray = new byte[width * height];
+
+        long glarePixels = pool.invoke(new RowsTask(0, height, (from, to) -> toGray(image, gray, from, to)))[0];
+        long[] laplacian = pool.invoke(new RowsTask(0, height, (from, to) -> laplacian(gray, width, height, from, to)));
+        long pixels = (long) width * height;
+        double laplacianMean = (double) laplacian[0] / pixels;
+        double laplacianVariance = (double) laplacian[1] / pixels - laplacianMean * laplacianMean;
+        double glareRatio = (double) glarePixels / pixels;
+        double averageAngle = averageLineAngle(gray, width, height, scale);
+        boolean cutOff = isCutOff(gray, width, height, Math.max(1, (int) Math.round(BORDER_WIDTH * scale)));
+
+        return new Report(
+            laplacianVariance < BLUR_VARIANCE_THRESHOLD * Math.pow(scale, -BLUR_SCALE_EXPONENT),
+            glareRatio > GLARE_RATIO,
+            !Double.isNaN(averageAngle) && Math.abs(averageAngle) > ROTATION_TOLERANCE_DEGREES,
+            cutOff,
+            laplacianVariance,
+            glareRatio,
+            averageAngle
+        );
+    }
+
+    /**
+     * Fill the gray buffer for a band of rows.
+     *
+     * @return the number of pixels whose HSV value (brightest channel) is over the glare threshold.
+     */
+    private static long[] toGray(BufferedImage image, byte[] gray, int from, int to) {
+        int width = image.getWidth();
+        Raster raster = image.getRaster();
+        long glare = 0;
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_BYTE_GRAY) {
+            int[] row = new int[width];
+            for (int y = from; y < to; y++) {
+                raster.getSamples(0, y, width, 1, 0, row);
+                for (int x = 0; x < width; x++) {
+                    gray[y * width + x] = (byte) row[x];
+                    if (row[x] > GLARE_BRIGHTNESS) {
+                        glare++;
+                    }
+                }
+            }
+            return new long[] { glare };
+        }
+
+        // the standard RGB types expose their bands in R, G, B(, A) order, anything else is converted to sRGB
+        boolean rawBands =
+            type == BufferedImage.TYPE_3BYTE_BGR ||
+            type == BufferedImage.TYPE_4BYTE_ABGR ||
+            type == BufferedImage.TYPE_INT_RGB ||
+            type == BufferedImage.TYPE_INT_ARGB ||
+            type == BufferedImage.TYPE_INT_BGR;
+        int bands = rawBands ? raster.getNumBands() : 1;
+        int[] row = new int[width * bands];
+        for (int y = from; y < to; y++) {
+            if (rawBands) {
+                raster.getPixels(0, y, width, 1, row);
+            } else {
+                image.getRGB(0, y, width, 1, row, 0, width);
+            }
+            for (int x = 0; x < width; x++) {
+                int r;
+                int g;
+                int b;
+                if (rawBands) {
+                    r = row[x * bands];
+                    g = row[x * bands + 1];
+                    b = row[x * bands + 2];
+                } else {
+                    r = (row[x] >> 16) & 0xff;
+                    g = (row[x] >> 8) & 0xff;
+                    b = row[x] & 0xff;
+                }
+                gray[y * width + x] = (byte) ((r * GRAY_R + g * GRAY_G + b * GRAY_B + (1 << 13)) >> 14);
+                if (Math.max(r, Math.max(g, b)) > GLARE_BRIGHTNESS) {
+                    glare++;
+                }
+            }
+        }
+        return new long[] { glare };
+    }
+
+    /**
+     * Sum and sum of squares of the 4-neighbour Laplacian over a band of rows, with reflect-101 borders.
+     */
+    private static long[] laplacian(byte[] gray, int width, int height, int from, int to) {
+        long sum = 0;
+        long sumOfSquares = 0;
+        for (int y = from; y < to; y++) {
+            int up = reflect101(y - 1, height) * width;
+            int down = reflect101(y + 1, height) * width;
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int left = reflect101(x - 1, width);
+                int right = reflect101(x + 1, width);
+                int value =
+                    (gray[up + x] & 0xff) +
+                    (gray[down + x] & 0xff) +
+                    (gray[row + left] & 0xff) +
+                    (gray[row + right] & 0xff) -
+                    4 * (gray[row + x] & 0xff);
+                sum += value;
+                sumOfSquares += (long) value * value;
+            }
+        }
+        return new long[] { sum, sumOfSquares };
+    }
+
+    /**
+     * Mean angle, in degrees, of the Hough lines under 90° found on the Canny edges, {@code NaN} when there is none.
+     */
+    private double averageLineAngle(byte[] gray, int width, int height, double scale) {
+        short[] magnitude = new short[width * height];
+        pool.invoke(new RowsTask(0, height, (from, to) -> sobelMagnitude(gray, magnitude, width, height, from, to)));
+        byte[] map = new byte[width * height];
+        int low = (int) Math.round(CANNY_LOW_THRESHOLD / scale);
+        int high = (int) Math.round(CANNY_HIGH_THRESHOLD / scale);
+        pool.invoke(new RowsTask(0, height, (from, to) -> suppressNonMaxima(gray, magnitude, map, width, height, low, high, from, to)));
+        int[] edges = trackEdges(map, width, height);
+        return houghAverageAngle(edges, width, height, (int) Math.round(HOUGH_THRESHOLD * scale));
+    }
+
+    /**
+     * L1 magnitude of the 3x3 Sobel gradient over a band of rows, with replicated borders as in Canny.
+     */
+    private static long[] sobelMagnitude(byte[] gray, short[] magnitude, int width, int height, int from, int to) {
+        for (int y = from; y < to; y++) {
+            for (int x = 0; x < width; x++) {
+                magnitude[y * width + x] = (short) (Math.abs(sobelX(gray, width, height, x, y)) + Math.abs(sobelY(gray, width, height, x, y)));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Non-maximum suppression along the gradient direction, marking pixels over the low threshold as weak or strong edges.
+     */
+    private static long[] suppressNonMaxima(
+        byte[] gray,
+        short[] magnitude,
+        byte[] map,
+        int width,
+        int height,
+        int lowThreshold,
+        int highThreshold,
+        int from,
+        int to
+    ) {
+        for (int y = from; y < to; y++) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                int m = magnitude[index];
+                if (m <= lowThreshold) {
+                    continue;
+                }
+                int dx = sobelX(gray, width, height, x, y);
+                int dy = sobelY(gray, width, height, x, y);
+                long ax = Math.abs(dx);
+                long ay = (long) Math.abs(dy) << 15;
+                long tan22x = ax * TAN_22_5;
+                boolean maximum;
+                if (ay < tan22x) {
+                    maximum = m > magnitudeAt(magnitude, width, height, x - 1, y) && m >= magnitudeAt(magnitude, width, height, x + 1, y);
+                } else if (ay > tan22x + (ax << 16)) {
+                    maximum = m > magnitudeAt(magnitude, width, height, x, y - 1) && m >= magnitudeAt(magnitude, width, height, x, y + 1);
+                } else {
+                    int s = (dx ^ dy) < 0 ? -1 : 1;
+                    maximum =
+                        m > magnitudeAt(magnitude, width, height, x - s, y - 1) && m > magnitudeAt(magnitude, width, height, x + s, y + 1);
+                }
+                if (maximum) {
+                    map[index] = m > highThreshold ? STRONG : WEAK;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hysteresis: keep the weak edges 8-connected to a strong one.
+     *
+     * @return the edge pixels, as {@code x, y} pairs.
+     */
+    private static int[] trackEdges(byte[] map, int width, int height) {
+        int[] stack = new int[1024];
+        int[] edges = new int[1024];
+        int edgeCount = 0;
+        for (int start = 0; start < map.length; start++) {
+            if (map[start] != STRONG) {
+                continue;
+            }
+            map[start] = EDGE;
+            int top = 0;
+            stack[top++] = start;
+            while (top > 0) {
+                int index = stack[--top];
+                int x = index % width;
+                int y = index / width;
+                if (edgeCount + 2 > edges.length) {
+                    edges = Arrays.copyOf(edges, edges.length * 2);
+                }
+                edges[edgeCount++] = x;
+                edges[edgeCount++] = y;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                        int neighbour = ny * width + nx;
+                        if (map[neighbour] == WEAK || map[neighbour] == STRONG) {
+                            map[neighbour] = EDGE;
+                            if (top == stack.length) {
+                                stack = Arrays.copyOf(stack, stack.length * 2);
+                            }
+                            stack[top++] = neighbour;
+                        }
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(edges, edgeCount);
+    }
+
+    /**
+     * Standard Hough transform with a 1 pixel, 1 degree resolution, as OpenCV's {@code HoughLines}.
+     */
+    private double houghAverageAngle(int[] edges, int width, int height, int threshold) {
+        float thetaStep = (float) (Math.PI / 180);
+        int angles = (int) Math.floor(Math.PI / (Math.PI / 180)) + 1;
+        if (angles > 1 && Math.abs(Math.PI - (angles - 1) * (Math.PI / 180)) < (Math.PI / 180) / 2) {
+            angles--;
+        }
+        int numAngles = angles;
+        int numRho = (width + height) * 2 + 1;
+        float[] sin = new float[numAngles];
+        float[] cos = new float[numAngles];
+        float angle = 0;
+        for (int n = 0; n < numAngles; n++, angle += thetaStep) {
+            sin[n] = (float) Math.sin(angle);
+            cos[n] = (float) Math.cos(angle);
+        }
+
+        // one extra slot on every side, so that the maxima search needs no bound checks
+        int stride = numRho + 2;
+        int[] accumulator = new int[(numAngles + 2) * stride];
+        pool.invoke(
+            new RowsTask(0, numAngles, (from, to) -> {
+                for (int n = from; n < to; n++) {
+                    int base = (n + 1) * stride + 1 + (numRho - 1) / 2;
+                    for (int i = 0; i < edges.length; i += 2) {
+                        int r = (int) Math.rint(edges[i] * cos[n] + edges[i + 1] * sin[n]);
+                        accumulator[base + r]++;
+                    }
+                }
+                return null;
+            })
+        );
+
+        double angleSum = 0;
+        int lines = 0;
+        for (int n = 0; n < numAngles; n++) {
+            for (int r = 0; r < numRho; r++) {
+                int index = (n + 1) * stride + r + 1;
+                int votes = accumulator[index];
+                if (
+                    votes > threshold &&
+                    votes > accumulator[index - 1] &&
+                    votes >= accumulator[index + 1] &&
+                    votes > accumulator[index - stride] &&
+                    votes >= accumulator[index + stride]
+                ) {
+                    float degrees = (float) Math.toDegrees(n * thetaStep);
+                    if (degrees < 90) {
+                        angleSum += degrees;
+                        lines++;
+                    }
+                }
+            }
+        }
+        return lines == 0 ? Double.NaN : angleSum / lines;
+    }
+
+    /**
+     * Whether the mean of any border strip, 10 pixels wide at full resolution, is close to black.
+     */
+    private static boolean isCutOff(byte[] gray, int width, int height, int borderWidth) {
+        int rows = Math.min(borderWidth, height);
+        int columns = Math.min(borderWidth, width);
+        long top = 0;
+        long bottom = 0;
+        long left = 0;
+        long right = 0;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < width; x++) {
+                top += gray[y * width + x] & 0xff;
+                bottom += gray[(height - rows + y) * width + x] & 0xff;
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < columns; x++) {
+                left += gray[y * width + x] & 0xff;
+                right += gray[y * width + width - columns + x] & 0xff;
+            }
+        }
+        double horizontalStrip = (double) rows * width;
+        double verticalStrip = (double) height * columns;
+        return (
+            top / horizontalStrip < CUT_OFF_BORDER_MEAN ||
+            bottom / horizontalStrip < CUT_OFF_BORDER_MEAN ||
+            left / verticalStrip < CUT_OFF_BORDER_MEAN ||
+            right / verticalStrip < CUT_OFF_BORDER_MEAN
+        );
+    }
+
+    private static int sobelX(byte[] gray, int width, int height, int x, int y) {
+        int up = clamp(y - 1, height) * width;
+        int row = y * width;
+        int down = clamp(y + 1, height) * width;
+        int left = clamp(x - 1, width);
+        int right = clamp(x + 1, width);
+        return (
+            (gray[up + right] & 0xff) +
+            2 * (gray[row + right] & 0xff) +
+            (gray[down + right] & 0xff) -
+            (gray[up + left] & 0xff) -
+            2 * (gray[row + left] & 0xff) -
+            (gray[down + left] & 0xff)
+        );
+    }
+
+    private static int sobelY(byte[] gray, int width, int height, int x, int y) {
+        int up = clamp(y - 1, height) * width;
+        int down = clamp(y + 1, height) * width;
+        int left = clamp(x - 1, width);
+        int right = clamp(x + 1, width);
+        return (
+            (gray[down + left] & 0xff) +
+            2 * (gray[down + x] & 0xff) +
+            (gray[down + right] & 0xff) -
+            (gray[up + left] & 0xff) -
+            2 * (gray[up + x] & 0xff) -
+            (gray[up + right] & 0xff)
+        );
+    }
+
+    private static int magnitudeAt(short[] magnitude, int width, int height, int x, int y) {
+        return x < 0 || y < 0 || x >= width || y >= height ? 0 : magnitude[y * width + x];
+    }
+
+    private static int reflect101(int i, int size) {
+        if (size == 1) {
+            return 0;
+        }
+        if (i < 0) {
+            return -i;
+        }
+        return i >= size ? 2 * size - i - 2 : i;
+    }
+
+    private static int clamp(int i, int size) {
+        return Math.max(0, Math.min(size - 1, i));
+    }
+
+    @FunctionalInterface
+    private interface RowsFunction {
+        /**
+         * Process rows {@code [from, to)}.
+         *
+         * @return counters summed over all bands, or {@code null}.
+         */
+        long[] apply(int from, int to);
+    }
+
+    /**
+     * Splits a range of rows into bands of {@link #TILE_ROWS} processed in parallel, and sums their counters.
+     */
+    private static final class RowsTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+
+        private final int to;
+
+        private final transient RowsFunction function;
+
+        private RowsTask(int from, int to, RowsFunction function) {
+            this.from = from;
+            this.to = to;
+            this.function = function;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= TILE_ROWS) {
+                return function.apply(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RowsTask first = new RowsTask(from, middle, function);
+            first.fork();
+            long[] second = new RowsTask(middle, to, function).compute();
+            long[] firstResult = first.join();
+            if (firstResult == null) {
+                return second;
+            }
+            for (int i = 0; i < firstResult.length; i++) {
+                firstResult[i] += second[i];
+            }
+            return firstResult;
+        }
+    }
+
+    /**
+     * Outcome of the quality checks, with the measures they are based on.
+     *
+     * @param blurry whether the Laplacian variance is under 100, at full resolution.
+     * @param glare whether more than 5% of the pixels are over-exposed.
+     * @param rotated whether the lines of the document lean by more than 5° on average.
+     * @param cutOff whether a border strip is nearly black.
+     * @param laplacianVariance the variance of the Laplacian of the gray image.
+     * @param glareRatio the share of over-exposed pixels.
+     * @param averageAngle the mean angle of the detected lines under 90°, {@code NaN} when there is none.
+     */
+    public record Report(
+        boolean blurry,
+        boolean glare,
+        boolean rotated,
+        boolean cutOff,
+        double laplacianVariance,
+        double glareRatio,
+        double averageAngle
+    ) {
+        /**
+         * @return the issues, worded as by {@code image-analyzer.py}.
+         */
+        public List<String> issues() {
+            List<String> issues = new ArrayList<>();
+            if (blurry) {
+                issues.add("Image is blurry");
+            }
+            if (glare) {
+                issues.add("Glare detected");
+            }
+            if (rotated) {
+                issues.add("Image may be rotated");
+            }
+            if (cutOff) {
+                issues.add("Some edges appear cut off");
+            }
+            if (issues.isEmpty()) {
+                issues.add("None");
+            }
+            return issues;
+        }
+
+        /**
+         * @return 100 minus 20 per issue.
+         */
+        public int qualityScore() {
+            int count = (blurry ? 1 : 0) + (glare ? 1 : 0) + (rotated ? 1 : 0) + (cutOff ? 1 : 0);
+            return Math.max(100 - count * 20, 0);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.reactit.kyc.supp.service;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.repository.DocumentRepository;
+import com.reactit.kyc.supp.service.dto.CustomerDTO;
+import com.reactit.kyc.supp.service.dto.DocumentDTO;
+import com.reactit.kyc.supp.service.dto.DocumentUploadDTO;
+import com.reactit.kyc.supp.service.dto.DocumentUploadFinalizeDTO;
+import com.reactit.kyc.supp.service.dto.DocumentUploadRequestDTO;
+import io.minio.StatObjectResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Lets browsers upload documents straight to MinIO, so that file bytes never go through the application.
+ * <p>
+ * The application presigns a POST policy bound to a fresh object name, the declared content type and size; MinIO enforces
+ * it on upload, but trusts the declared type. Finalizing checks the stored object against the same constraints, and its
+ * first bytes with the {@link UploadValidator}, before recording it as a {@code Document}.
+ * <p>
+ * Object names are flat, {@code upload-<uuid>}, like the content-hash names of other stored files, so that they are served
+ * by the single-segment {@code /api/files/:objectName} and {@code /api/renditions/:rendition/:objectName}. An object is
+ * recorded at most once, enforced by the unique index {@code ux_document__upload_file_url}.
+ */
+@Service
+@Transactional
+public class DocumentUploadService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DocumentUploadService.class);
+
+    static final String OBJECT_PREFIX = "upload-";
+
+    private final MinioService minioService;
+
+    private final DocumentService documentService;
+
+    private final DocumentRepository documentRepository;
+
+    private final RenditionService renditionService;
+
+    private final UploadValidator uploadValidator;
+
+    private final ApplicationProperties.Storage.DirectUpload properties;
+
+    public DocumentUploadService(
+        MinioService minioService,
+        DocumentService documentService,
+        DocumentRepository documentRepository,
+        RenditionService renditionService,
+        UploadValidator uploadValidator,
+        ApplicationProperties applicationProperties
+    ) {
+        this.minioService = minioService;
+        this.documentService = documentService;
+        this.documentRepository = documentRepository;
+        this.renditionService = renditionService;
+        this.uploadValidator = uploadValidator;
+        this.properties = applicationProperties.getStorage().getDirectUpload();
+    }
+
+    /**
+     * Presign the upload of a file.
+     *
+     * @param request the content type and size of the file.
+     * @return the form to post the file with.
+     * @throws InvalidDocumentUploadException if the file type is not accepted or the file is too large.
+     */
+    public DocumentUploadDTO initiate(DocumentUploadRequestDTO request) {
+        checkConstraints(request.contentType(), request.size());
+        String objectName = OBJECT_PREFIX + UUID.randomUUID();
+        Instant expiresAt = Instant.now().plus(properties.getExpiry());
+        LOG.debug("Presigning direct upload of {} ({}, {} bytes)", objectName, request.contentType(), request.size());
+        return new DocumentUploadDTO(
+            objectName,
+            minioService.getBucketUrl(),
+            minioService.getPresignedPostFormData(objectName, request.contentType(), request.size(), expiresAt.atZone(ZoneOffset.UTC)),
+            expiresAt
+        );
+    }
+
+    /**
+     * Record an uploaded file as a document.
+     *
+     * @param request the uploaded object and its customer.
+     * @return the new document.
+     * @throws InvalidDocumentUploadException if the object is not a pending direct upload, breaks the upload constraints, or
+     * its content is not of the declared type.
+     * @throws IOException if the object could not be read.
+     */
+    public DocumentDTO finalizeUpload(DocumentUploadFinalizeDTO request) throws IOException {
+        String objectName = request.objectName();
+        if (!objectName.startsWith(OBJECT_PREFIX) || objectName.contains("/")) {
+            throw new InvalidDocumentUploadException("Not a direct upload: " + objectName);
+        }
+        StatObjectResponse stat = minioService
+            .findObject(objectName)
+            .orElseThrow(() -> new InvalidDocumentUploadException("Nothing was uploaded as " + objectName));
+        checkConstraints(stat.contentType(), stat.size());
+        if (documentRepository.existsByFileUrl(objectName)) {
+            throw new InvalidDocumentUploadException(objectName + " is already registered");
+        }
+        // the header is enough to sniff the type and read the dimensions, the rest of the object is not fetched
+        UploadValidator.ValidatedUpload upload;
+        try (InputStream in = minioService.getObject(objectName, 0, UploadValidator.HEADER_LIMIT)) {
+            upload = uploadValidator.validate(in, stat.size());
+        }
+        if (!upload.contentType().equals(stat.contentType())) {
+            throw new InvalidDocumentUploadException("Uploaded as " + stat.contentType() + " but is " + upload.contentType());
+        }
+
+        DocumentDTO document = new DocumentDTO();
+        document.setFileUrl(objectName);
+        document.setCreatedAt(Instant.now());
+        if (request.customerId() != null) {
+            CustomerDTO customer = new CustomerDTO();
+            customer.setId(request.customerId());
+            document.setCustomer(customer);
+        }
+        DocumentDTO saved;
+        try {
+            saved = documentService.save(document);
+            documentRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            // finalized at the same time by another request, which got past the check above as well
+            throw new InvalidDocumentUploadException(objectName + " is already registered");
+        }
+        renditionService.prepare(objectName);
+        return saved;
+    }
+
+    private void checkConstraints(String contentType, long size) {
+        if (contentType == null || !properties.getAllowedContentTypes().contains(contentType)) {
+            throw new InvalidDocumentUploadException("Content type not accepted: " + contentType);
+        }
+        if (size > properties.getMaxSize().toBytes()) {
+            throw new InvalidDocumentUploadException("File larger than " + properties.getMaxSize());
+        }
+    }
+}
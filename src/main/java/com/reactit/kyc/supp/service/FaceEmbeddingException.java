@@ -0,0 +1,13 @@
+package com.reactit.kyc.supp.service;
+
+/**
+ * Thrown when a face embedding cannot be computed for an image, the message is reported to the client as is.
+ */
+public class FaceEmbeddingException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public FaceEmbeddingException(String message) {
+        super(message);
+    }
+}
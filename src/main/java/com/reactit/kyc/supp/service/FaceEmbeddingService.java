@@ -0,0 +1,135 @@
+package com.reactit.kyc.supp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.domain.FaceEmbedding;
+import com.reactit.kyc.supp.domain.FaceEmbeddingId;
+import com.reactit.kyc.supp.repository.FaceEmbeddingRepository;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Stores face embeddings by image content.
+ * <p>
+ * Images are identified by the SHA-256 of their bytes, so the same ID photo checked against several selfies is embedded
+ * once per model. Embeddings live in the {@code face_embedding} table with an in-memory LRU in front of it.
+ */
+@Service
+public class FaceEmbeddingService {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final FaceEmbeddingRepository faceEmbeddingRepository;
+
+    private final Cache<String, float[]> embeddings;
+
+    public FaceEmbeddingService(FaceEmbeddingRepository faceEmbeddingRepository, ApplicationProperties applicationProperties) {
+        ApplicationProperties.FaceVerification.Embedding properties = applicationProperties.getFaceVerification().getEmbedding();
+        this.faceEmbeddingRepository = faceEmbeddingRepository;
+        this.embeddings = Caffeine.newBuilder().maximumSize(properties.getCacheSize()).build();
+    }
+
+    /**
+     * Hash an image, reading it once through a fixed buffer.
+     *
+     * @param content the image.
+     * @return the hex SHA-256 of the image bytes.
+     */
+    public String contentHash(InputStreamSource content) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = content.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Get a known embedding.
+     *
+     * @param contentHash the hash of the image.
+     * @param model the model the embedding must have been computed with.
+     * @return the embedding, or empty if the image was never embedded with this model.
+     */
+    public Optional<float[]> find(String contentHash, String model) {
+        float[] cached = embeddings.getIfPresent(model + ':' + contentHash);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<float[]> stored = faceEmbeddingRepository
+            .findById(new FaceEmbeddingId(contentHash, model))
+            .map(faceEmbedding -> decode(faceEmbedding.getEmbedding()));
+        stored.ifPresent(embedding -> embeddings.put(model + ':' + contentHash, embedding));
+        return stored;
+    }
+
+    /**
+     * Store the embedding of an image with a model, embeddings of other models are kept.
+     *
+     * @param contentHash the hash of the image.
+     * @param model the model the embedding was computed with.
+     * @param embedding the embedding.
+     * @return the embedding.
+     */
+    public float[] save(String contentHash, String model, float[] embedding) {
+        embeddings.put(model + ':' + contentHash, embedding);
+        try {
+            faceEmbeddingRepository.save(
+                new FaceEmbedding().contentHash(contentHash).model(model).embedding(encode(embedding)).createdAt(Instant.now())
+            );
+        } catch (DataIntegrityViolationException e) {
+            // stored concurrently by another request, both embeddings are the same
+        }
+        return embedding;
+    }
+
+    /**
+     * Cosine distance between two embeddings, as computed by DeepFace.
+     *
+     * @return {@code 0} for identical directions up to {@code 2} for opposite ones.
+     */
+    public static double cosineDistance(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Embeddings have different sizes: " + a.length + " and " + b.length);
+        }
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += (double) a[i] * b[i];
+            normA += (double) a[i] * a[i];
+            normB += (double) b[i] * b[i];
+        }
+        return 1 - dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    static float[] decode(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
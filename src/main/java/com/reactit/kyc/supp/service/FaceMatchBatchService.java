@@ -0,0 +1,374 @@
+package com.reactit.kyc.supp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.domain.FaceMatch;
+import com.reactit.kyc.supp.repository.FaceMatchRepository;
+import com.reactit.kyc.supp.service.dto.FaceMatchBatchDTO;
+import com.reactit.kyc.supp.service.dto.FaceMatchBatchRequestDTO;
+import com.reactit.kyc.supp.service.dto.FaceVerificationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.minio.StatObjectResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Re-screens face matches in bulk.
+ * <p>
+ * Images are read straight from MinIO and streamed to the sidecar by a pool of {@code parallelism} workers. A bounded window
+ * of in-flight pairs keeps the sidecar busy while the coordinator loads the next ids, and scores are written back with one
+ * JDBC batch update per {@code batchSize} results. Batches run one at a time, later submissions wait in a queue.
+ */
+@Service
+public class FaceMatchBatchService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FaceMatchBatchService.class);
+
+    private static final String UPDATE_RESULT_SQL = "update face_match set match = ?, score = ? where id = ?";
+
+    /**
+     * How long a failed batch waits for the pairs already sent to the sidecar, so that their scores are still written.
+     */
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(2);
+
+    private final FaceVerificationService faceVerificationService;
+
+    private final MinioService minioService;
+
+    private final FaceMatchRepository faceMatchRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final TaskExecutor faceMatchBatchExecutor;
+
+    private final ApplicationProperties.FaceVerification.Batch properties;
+
+    private final Counter succeededCounter;
+
+    private final Counter failedCounter;
+
+    private final Timer pairTimer;
+
+    private final Cache<String, Progress> batches = Caffeine.newBuilder().maximumSize(100).expireAfterWrite(Duration.ofDays(1)).build();
+
+    public FaceMatchBatchService(
+        FaceVerificationService faceVerificationService,
+        MinioService minioService,
+        FaceMatchRepository faceMatchRepository,
+        JdbcTemplate jdbcTemplate,
+        ObjectMapper objectMapper,
+        @Qualifier("faceMatchBatchExecutor") TaskExecutor faceMatchBatchExecutor,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.faceVerificationService = faceVerificationService;
+        this.minioService = minioService;
+        this.faceMatchRepository = faceMatchRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.faceMatchBatchExecutor = faceMatchBatchExecutor;
+        this.properties = applicationProperties.getFaceVerification().getBatch();
+        this.succeededCounter = Counter.builder("kyc.face.match.batch.pairs").tag("outcome", "succeeded").register(meterRegistry);
+        this.failedCounter = Counter.builder("kyc.face.match.batch.pairs").tag("outcome", "failed").register(meterRegistry);
+        this.pairTimer = Timer.builder("kyc.face.match.batch.pair.duration").register(meterRegistry);
+    }
+
+    /**
+     * Queue a re-screening batch.
+     *
+     * @param request the face matches to re-screen.
+     * @return the batch progress.
+     * @throws FaceVerificationUnavailableException if too many batches are already queued.
+     */
+    public FaceMatchBatchDTO submit(FaceMatchBatchRequestDTO request) {
+        Progress progress = new Progress(UUID.randomUUID().toString());
+        batches.put(progress.id, progress);
+        try {
+            faceMatchBatchExecutor.execute(() -> run(progress, request));
+        } catch (RejectedExecutionException e) {
+            batches.invalidate(progress.id);
+            throw new FaceVerificationUnavailableException("Too many face-match batches queued", e);
+        }
+        LOG.info("Queued face-match batch {}", progress.id);
+        return progress.toDto();
+    }
+
+    public Optional<FaceMatchBatchDTO> findBatch(String batchId) {
+        return Optional.ofNullable(batches.getIfPresent(batchId)).map(Progress::toDto);
+    }
+
+    private void run(Progress progress, FaceMatchBatchRequestDTO request) {
+        int batchSize = request.getBatchSize() != null ? request.getBatchSize() : properties.getBatchSize();
+        int parallelism = request.getParallelism() != null ? request.getParallelism() : properties.getParallelism();
+        progress.start();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "face-match-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // two pairs per worker: one being scored, one ready to go as soon as the worker is free
+        int window = parallelism * 2;
+        Semaphore inFlight = new Semaphore(window);
+        ConcurrentLinkedQueue<Object[]> results = new ConcurrentLinkedQueue<>();
+        try {
+            if (request.isAll()) {
+                progress.total.set(faceMatchRepository.count());
+                Long afterId = 0L;
+                List<Long> ids;
+                while (!(ids = faceMatchRepository.findIdsAfter(afterId, PageRequest.ofSize(batchSize))).isEmpty()) {
+                    dispatch(ids, workers, inFlight, results, progress);
+                    flush(results, batchSize, false);
+                    afterId = ids.get(ids.size() - 1);
+                }
+            } else {
+                List<Long> ids = new ArrayList<>(request.getFaceMatchIds());
+                ids.addAll(createFaceMatches(request.getPairs(), batchSize));
+                progress.total.set(ids.size());
+                for (int from = 0; from < ids.size(); from += batchSize) {
+                    dispatch(ids.subList(from, Math.min(from + batchSize, ids.size())), workers, inFlight, results, progress);
+                    flush(results, batchSize, false);
+                }
+            }
+            inFlight.acquire(window);
+            flush(results, batchSize, true);
+            progress.finish(FaceMatchBatchDTO.Status.COMPLETED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.finish(FaceMatchBatchDTO.Status.FAILED, "Interrupted");
+        } catch (RuntimeException e) {
+            LOG.error("Face-match batch {} failed", progress.id, e);
+            drain(workers, progress);
+            try {
+                flush(results, batchSize, true);
+            } catch (RuntimeException flushError) {
+                LOG.warn("Could not write the scores of face-match batch {}", progress.id, flushError);
+            }
+            progress.finish(FaceMatchBatchDTO.Status.FAILED, e.getMessage());
+        } finally {
+            workers.shutdownNow();
+        }
+        LOG.info(
+            "Face-match batch {} {}: {} pairs, {} failed, {} not found, {} pairs/s",
+            progress.id,
+            progress.status,
+            progress.processed.get(),
+            progress.failed.get(),
+            progress.missingIds.size(),
+            String.format("%.2f", progress.toDto().getThroughputPerSecond())
+        );
+    }
+
+    private void dispatch(
+        List<Long> ids,
+        ExecutorService workers,
+        Semaphore inFlight,
+        ConcurrentLinkedQueue<Object[]> results,
+        Progress progress
+    ) throws InterruptedException {
+        Set<Long> missing = new HashSet<>(ids);
+        for (FaceMatch faceMatch : faceMatchRepository.findAllById(ids)) {
+            missing.remove(faceMatch.getId());
+            inFlight.acquire();
+            Long id = faceMatch.getId();
+            String selfie = faceMatch.getSelfieUrl();
+            String idPhoto = faceMatch.getIdPhotoUrl();
+            workers.execute(() -> {
+                try {
+                    FaceVerificationResult result = pairTimer.record(() -> score(id, selfie, idPhoto));
+                    if (result != null) {
+                        results.add(new Object[] { result.verified(), result.distance(), id });
+                        progress.succeeded.incrementAndGet();
+                        succeededCounter.increment();
+                    } else {
+                        progress.failed.incrementAndGet();
+                        failedCounter.increment();
+                    }
+                } finally {
+                    progress.processed.incrementAndGet();
+                    inFlight.release();
+                }
+            });
+        }
+        for (Long id : ids) {
+            if (missing.contains(id)) {
+                LOG.debug("Face match {} of batch {} does not exist", id, progress.id);
+                progress.missingIds.add(id);
+                progress.failed.incrementAndGet();
+                progress.processed.incrementAndGet();
+                failedCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * Let the workers finish the pairs already dispatched, without taking new ones.
+     */
+    private void drain(ExecutorService workers, Progress progress) {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                LOG.warn("Face-match batch {} still had pairs in flight after {}, their scores are lost", progress.id, DRAIN_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private FaceVerificationResult score(Long id, String selfieReference, String idPhotoReference) {
+        for (int attempt = 1; attempt <= properties.getMaxAttempts(); attempt++) {
+            try {
+                FaceVerificationResult result = objectMapper.readValue(
+                    faceVerificationService.verifyFaceMatch(part("img1", selfieReference), part("img2", idPhotoReference)),
+                    FaceVerificationResult.class
+                );
+                if (result.error() != null || result.verified() == null) {
+                    LOG.debug("Face match {} could not be scored: {}", id, result.error());
+                    return null;
+                }
+                return result;
+            } catch (FaceVerificationUnavailableException e) {
+                LOG.debug("Sidecar unavailable for face match {}, attempt {}", id, attempt);
+                long backoff = 1000L * attempt;
+                if (e.getRetryAfter() != null) {
+                    backoff = Math.max(backoff, e.getRetryAfter().toMillis());
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            } catch (Exception e) {
+                LOG.debug("Face match {} could not be scored", id, e);
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private StreamingMultipartBody.Part part(String name, String reference) {
+        String objectName = minioService.objectNameOf(reference);
+        StatObjectResponse stat = minioService.statObject(objectName);
+        String filename = objectName.substring(objectName.lastIndexOf('/') + 1);
+        return new StreamingMultipartBody.Part(
+            name,
+            filename,
+            stat.contentType(),
+            stat.size(),
+            () -> minioService.getObject(objectName),
+            MinioService.contentHashOf(objectName)
+        );
+    }
+
+    private List<Long> createFaceMatches(List<FaceMatchBatchRequestDTO.ImagePair> pairs, int batchSize) {
+        List<Long> ids = new ArrayList<>(pairs.size());
+        Instant now = Instant.now();
+        for (int from = 0; from < pairs.size(); from += batchSize) {
+            List<FaceMatch> faceMatches = pairs
+                .subList(from, Math.min(from + batchSize, pairs.size()))
+                .stream()
+                .map(pair ->
+                    new FaceMatch()
+                        .selfieUrl(minioService.objectNameOf(pair.selfieUrl()))
+                        .idPhotoUrl(minioService.objectNameOf(pair.idPhotoUrl()))
+                        .createdAt(now)
+                )
+                .toList();
+            faceMatchRepository.saveAll(faceMatches).forEach(faceMatch -> ids.add(faceMatch.getId()));
+        }
+        return ids;
+    }
+
+    private void flush(ConcurrentLinkedQueue<Object[]> results, int batchSize, boolean force) {
+        while (results.size() >= batchSize || (force && !results.isEmpty())) {
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            Object[] row;
+            while (batch.size() < batchSize && (row = results.poll()) != null) {
+                batch.add(row);
+            }
+            jdbcTemplate.batchUpdate(UPDATE_RESULT_SQL, batch);
+        }
+    }
+
+    private static final class Progress {
+
+        private final String id;
+
+        private final AtomicLong total = new AtomicLong();
+
+        private final AtomicLong processed = new AtomicLong();
+
+        private final AtomicLong succeeded = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private final ConcurrentLinkedQueue<Long> missingIds = new ConcurrentLinkedQueue<>();
+
+        private volatile FaceMatchBatchDTO.Status status = FaceMatchBatchDTO.Status.QUEUED;
+
+        private volatile Instant startedAt;
+
+        private volatile Instant finishedAt;
+
+        private volatile String error;
+
+        private Progress(String id) {
+            this.id = id;
+        }
+
+        private void start() {
+            startedAt = Instant.now();
+            status = FaceMatchBatchDTO.Status.RUNNING;
+        }
+
+        private void finish(FaceMatchBatchDTO.Status status, String error) {
+            this.finishedAt = Instant.now();
+            this.error = error;
+            this.status = status;
+        }
+
+        private FaceMatchBatchDTO toDto() {
+            FaceMatchBatchDTO dto = new FaceMatchBatchDTO();
+            dto.setBatchId(id);
+            dto.setStatus(status);
+            dto.setTotal(total.get());
+            dto.setProcessed(processed.get());
+            dto.setSucceeded(succeeded.get());
+            dto.setFailed(failed.get());
+            dto.setMissingIds(new ArrayList<>(missingIds));
+            dto.setStartedAt(startedAt);
+            dto.setFinishedAt(finishedAt);
+            dto.setError(error);
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.reactit.kyc.supp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.domain.FaceMatch;
+import com.reactit.kyc.supp.domain.enumeration.FaceMatchJobStatus;
+import com.reactit.kyc.supp.repository.CustomerRepository;
+import com.reactit.kyc.supp.repository.FaceMatchRepository;
+import com.reactit.kyc.supp.service.dto.FaceMatchJobDTO;
+import com.reactit.kyc.supp.service.dto.FaceVerificationResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Runs face matches in the background so that servlet threads are not held during DeepFace inference.
+ * <p>
+ * A submitted job is stored right away as a {@link FaceMatch} row without result; its id is the job id. The inference runs on
+ * the bounded {@code faceVerificationExecutor} and fills in {@code match} and {@code score} when it completes. The job status
+ * and error are kept on the row, so that any instance can tell it, for as long as the face match exists. Clients poll the job
+ * status or get it pushed to a callback URL.
+ * <p>
+ * Jobs queued or running on an instance that stops are lost with its queue; they are failed once they made no progress for
+ * {@code application.face-verification.jobs.orphan-timeout}, without callback, and can be run again as a batch.
+ */
+@Service
+public class FaceMatchJobService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FaceMatchJobService.class);
+
+    static final String ORPHANED_ERROR = "The job was lost before completing, for example on a restart; submit it again";
+
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private final FaceVerificationService faceVerificationService;
+
+    private final ImageRecompressionService imageRecompressionService;
+
+    private final UploadValidator uploadValidator;
+
+    private final RenditionService renditionService;
+
+    private final FaceMatchRepository faceMatchRepository;
+
+    private final CustomerRepository customerRepository;
+
+    private final FaceMatchService faceMatchService;
+
+    private final TaskExecutor faceVerificationExecutor;
+
+    private final RestTemplate callbackRestTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final List<String> callbackAllowedHosts;
+
+    private final Duration orphanTimeout;
+
+    public FaceMatchJobService(
+        FaceVerificationService faceVerificationService,
+        ImageRecompressionService imageRecompressionService,
+        UploadValidator uploadValidator,
+        RenditionService renditionService,
+        FaceMatchRepository faceMatchRepository,
+        CustomerRepository customerRepository,
+        FaceMatchService faceMatchService,
+        @Qualifier("faceVerificationExecutor") TaskExecutor faceVerificationExecutor,
+        @Qualifier("faceMatchCallbackRestTemplate") RestTemplate callbackRestTemplate,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.FaceVerification.Jobs jobsProperties = applicationProperties.getFaceVerification().getJobs();
+        this.faceVerificationService = faceVerificationService;
+        this.imageRecompressionService = imageRecompressionService;
+        this.uploadValidator = uploadValidator;
+        this.renditionService = renditionService;
+        this.faceMatchRepository = faceMatchRepository;
+        this.customerRepository = customerRepository;
+        this.faceMatchService = faceMatchService;
+        this.faceVerificationExecutor = faceVerificationExecutor;
+        this.callbackRestTemplate = callbackRestTemplate;
+        this.objectMapper = objectMapper;
+        this.callbackAllowedHosts = jobsProperties.getCallbackAllowedHosts();
+        this.orphanTimeout = jobsProperties.getOrphanTimeout();
+    }
+
+    /**
+     * Stores both images, records the face match and queues its inference.
+     *
+     * @param selfie the selfie of the customer.
+     * @param idPhoto the photo of the customer ID document.
+     * @param customerId the customer the face match belongs to, may be {@code null}.
+     * @param callbackUrl the URL the final job status is posted to, may be {@code null}.
+     * @return the job, in {@link FaceMatchJobDTO.Status#PENDING} state.
+     * @throws InvalidCallbackUrlException if the callback URL is not allowed.
+     * @throws InvalidDocumentUploadException if an upload is not an accepted image.
+     * @throws FaceVerificationUnavailableException if the job queue is full.
+     */
+    public FaceMatchJobDTO submit(MultipartFile selfie, MultipartFile idPhoto, Long customerId, String callbackUrl) throws IOException {
+        URI callback = callbackUrl != null ? checkCallback(callbackUrl) : null;
+        String selfieType = validateImage(selfie);
+        String idPhotoType = validateImage(idPhoto);
+
+        // Undertow deletes the uploads when the request completes, keep our own copy for the worker
+        Path selfieCopy = spool(selfie);
+        Path idPhotoCopy;
+        try {
+            idPhotoCopy = spool(idPhoto);
+        } catch (IOException e) {
+            deleteQuietly(List.of(selfieCopy));
+            throw e;
+        }
+        List<Path> copies = List.of(selfieCopy, idPhotoCopy);
+
+        Long jobId = null;
+        try {
+            Instant now = Instant.now();
+            FaceMatch faceMatch = new FaceMatch()
+                .selfieUrl(imageRecompressionService.store(selfie, selfieType))
+                .idPhotoUrl(imageRecompressionService.store(idPhoto, idPhotoType))
+                .createdAt(now)
+                .jobStatus(FaceMatchJobStatus.PENDING)
+                .jobUpdatedAt(now);
+            if (customerId != null) {
+                faceMatch.setCustomer(customerRepository.getReferenceById(customerId));
+            }
+            faceMatch = faceMatchRepository.save(faceMatch);
+            jobId = faceMatch.getId();
+            renditionService.prepare(faceMatch.getSelfieUrl());
+            renditionService.prepare(faceMatch.getIdPhotoUrl());
+
+            StreamingMultipartBody.Part selfiePart = part("img1", selfie, selfieType, selfieCopy);
+            StreamingMultipartBody.Part idPhotoPart = part("img2", idPhoto, idPhotoType, idPhotoCopy);
+            FaceMatchJobDTO job = new FaceMatchJobDTO(jobId, FaceMatchJobDTO.Status.PENDING, null);
+            Long queuedJobId = jobId;
+            faceVerificationExecutor.execute(() -> run(queuedJobId, selfiePart, idPhotoPart, callback, copies));
+            LOG.debug("Queued face-match job {}", jobId);
+            return job;
+        } catch (RejectedExecutionException e) {
+            discard(jobId, copies);
+            throw new FaceVerificationUnavailableException("Too many face-match jobs queued", e);
+        } catch (IOException | RuntimeException e) {
+            discard(jobId, copies);
+            throw e;
+        }
+    }
+
+    /**
+     * Check an upload from its first bytes, as {@code /api/upload} does.
+     *
+     * @return the sniffed type, to store the image with.
+     */
+    private String validateImage(MultipartFile file) throws IOException {
+        UploadValidator.ValidatedUpload upload;
+        try (InputStream in = file.getInputStream()) {
+            upload = uploadValidator.validate(in, file.getSize());
+        }
+        if (!upload.contentType().startsWith("image/")) {
+            throw new InvalidDocumentUploadException(file.getName() + " is not an image: " + upload.contentType());
+        }
+        return upload.contentType();
+    }
+
+    /**
+     * Undo a submission that could not be queued: the job would otherwise stay without result forever. The stored images are
+     * kept, they are addressed by content and may be shared with other documents.
+     */
+    private void discard(Long jobId, List<Path> copies) {
+        deleteQuietly(copies);
+        if (jobId != null) {
+            faceMatchRepository.deleteById(jobId);
+        }
+    }
+
+    /**
+     * Get the status of a job, with its face match.
+     *
+     * @param jobId the job id.
+     * @return the job, or empty if there is no such face match.
+     */
+    public Optional<FaceMatchJobDTO> findJob(Long jobId) {
+        return faceMatchService
+            .findOne(jobId)
+            .map(faceMatch -> {
+                FaceMatchJobDTO job;
+                if (faceMatch.getJobStatus() != null) {
+                    FaceMatchJobDTO.Status status = FaceMatchJobDTO.Status.valueOf(faceMatch.getJobStatus().name());
+                    job = new FaceMatchJobDTO(jobId, status, faceMatch.getJobError());
+                    job.setUpdatedAt(faceMatch.getJobUpdatedAt());
+                } else if (faceMatch.getMatch() != null) {
+                    job = new FaceMatchJobDTO(jobId, FaceMatchJobDTO.Status.COMPLETED, null);
+                } else {
+                    job = new FaceMatchJobDTO(jobId, FaceMatchJobDTO.Status.UNKNOWN, null);
+                }
+                job.setFaceMatch(faceMatch);
+                return job;
+            });
+    }
+
+    /**
+     * Fail the jobs that made no progress for the orphan timeout: their instance stopped with them in its queue, or while
+     * running them. Every instance checks, the update is the same whichever does.
+     *
+     * @return the number of jobs failed.
+     */
+    @Scheduled(fixedDelayString = "${application.face-verification.jobs.orphan-check-interval:1m}")
+    public int failOrphanedJobs() {
+        Instant now = Instant.now();
+        int failed = faceMatchRepository.failStaleJobs(
+            List.of(FaceMatchJobStatus.PENDING, FaceMatchJobStatus.RUNNING),
+            now.minus(orphanTimeout),
+            FaceMatchJobStatus.FAILED,
+            ORPHANED_ERROR,
+            now
+        );
+        if (failed > 0) {
+            LOG.warn("Failed {} face-match jobs without progress for {}", failed, orphanTimeout);
+        }
+        return failed;
+    }
+
+    private void run(Long jobId, StreamingMultipartBody.Part selfie, StreamingMultipartBody.Part idPhoto, URI callback, List<Path> files) {
+        try {
+            if (faceMatchRepository.moveJob(jobId, FaceMatchJobStatus.PENDING, FaceMatchJobStatus.RUNNING, Instant.now()) == 0) {
+                LOG.info("Face-match job {} was failed or removed while queued, not run", jobId);
+                return;
+            }
+            String error;
+            try {
+                FaceVerificationResult result = objectMapper.readValue(
+                    faceVerificationService.verifyFaceMatch(selfie, idPhoto),
+                    FaceVerificationResult.class
+                );
+                error = result.error() != null || result.verified() == null ? String.valueOf(result.error()) : null;
+                if (error == null) {
+                    faceMatchRepository.completeJob(
+                        jobId,
+                        result.verified(),
+                        result.distance(),
+                        FaceMatchJobStatus.COMPLETED,
+                        Instant.now()
+                    );
+                }
+            } catch (Exception e) {
+                LOG.warn("Face-match job {} failed: {}", jobId, e.getMessage());
+                error = String.valueOf(e.getMessage());
+            }
+            if (error != null) {
+                faceMatchRepository.failJob(jobId, FaceMatchJobStatus.FAILED, StringUtils.truncate(error, MAX_ERROR_LENGTH), Instant.now());
+            }
+        } catch (RuntimeException e) {
+            // the status could not be written, the job is failed as orphaned once the timeout elapses
+            LOG.error("Could not record the outcome of face-match job {}", jobId, e);
+            return;
+        } finally {
+            deleteQuietly(files);
+        }
+        if (callback != null) {
+            notify(callback, jobId);
+        }
+    }
+
+    private void notify(URI callback, Long jobId) {
+        try {
+            findJob(jobId).ifPresent(job -> callbackRestTemplate.postForLocation(callback, job));
+        } catch (RestClientException e) {
+            LOG.warn("Could not notify {} of face-match job {}: {}", callback, jobId, e.getMessage());
+        }
+    }
+
+    private URI checkCallback(String callbackUrl) {
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCallbackUrlException("Invalid callback URL", e);
+        }
+        boolean httpScheme = "https".equalsIgnoreCase(uri.getScheme()) || "http".equalsIgnoreCase(uri.getScheme());
+        if (!httpScheme || uri.getHost() == null || callbackAllowedHosts.stream().noneMatch(uri.getHost()::equalsIgnoreCase)) {
+            throw new InvalidCallbackUrlException("Callback URL host is not allowed");
+        }
+        return uri;
+    }
+
+    private static Path spool(MultipartFile file) throws IOException {
+        Path copy = Files.createTempFile("face-match-", ".img");
+        try {
+            file.transferTo(copy);
+        } catch (IOException e) {
+            Files.deleteIfExists(copy);
+            throw e;
+        }
+        return copy;
+    }
+
+    private static StreamingMultipartBody.Part part(String name, MultipartFile file, String contentType, Path copy) throws IOException {
+        return new StreamingMultipartBody.Part(
+            name,
+            file.getOriginalFilename(),
+            contentType,
+            Files.size(copy),
+            new FileSystemResource(copy)
+        );
+    }
+
+    private static void deleteQuietly(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.warn("Could not delete temporary file {}", file, e);
+            }
+        }
+    }
+}
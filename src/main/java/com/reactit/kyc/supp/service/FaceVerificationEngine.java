@@ -0,0 +1,32 @@
+package com.reactit.kyc.supp.service;
+
+import java.io.IOException;
+
+/**
+ * Computes face embeddings compared by {@link FaceVerificationService}.
+ */
+public interface FaceVerificationEngine {
+    /**
+     * @return the value of {@code application.face-verification.engine} selecting this engine.
+     */
+    String name();
+
+    /**
+     * @return the model embeddings are computed with; embeddings of different models cannot be compared.
+     */
+    String model();
+
+    /**
+     * @return the cosine distance under which two embeddings of {@link #model()} are the same person.
+     */
+    double threshold();
+
+    /**
+     * Compute the face embedding of an image.
+     *
+     * @param image the image.
+     * @return the embedding.
+     * @throws FaceEmbeddingException if the image holds no usable face.
+     */
+    float[] embed(StreamingMultipartBody.Part image) throws IOException;
+}
@@ -1,35 +1,107 @@
 package com.reactit.kyc.supp.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
 import java.io.IOException;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
 public class FaceVerificationService {
 
-    @Value("${face.verification.api.url:http://localhost:8000}")
-    private String pythonApiUrl;
+    private static final Logger LOG = LoggerFactory.getLogger(FaceVerificationService.class);
 
-    public String verifyFaceMatch(MultipartFile img1, MultipartFile img2) throws IOException {
-        String endpoint = pythonApiUrl + "/api/verify_face_match";
+    private final HttpFaceVerificationEngine httpEngine;
+
+    private final FaceVerificationEngine engine;
+
+    private final FaceEmbeddingService faceEmbeddingService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationProperties.FaceVerification.Embedding embeddingProperties;
 
-        RestTemplate restTemplate = new RestTemplate();
+    public FaceVerificationService(
+        HttpFaceVerificationEngine httpEngine,
+        List<FaceVerificationEngine> engines,
+        FaceEmbeddingService faceEmbeddingService,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties
+    ) {
+        String engineName = applicationProperties.getFaceVerification().getEngine();
+        this.httpEngine = httpEngine;
+        this.engine = engines
+            .stream()
+            .filter(candidate -> candidate.name().equals(engineName))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("Unknown face verification engine: " + engineName));
+        this.faceEmbeddingService = faceEmbeddingService;
+        this.objectMapper = objectMapper;
+        this.embeddingProperties = applicationProperties.getFaceVerification().getEmbedding();
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+    public String verifyFaceMatch(MultipartFile img1, MultipartFile img2) throws IOException {
+        // the uploads are streamed from Undertow's temporary storage, never copied onto the heap
+        return verifyFaceMatch(StreamingMultipartBody.Part.of("img1", img1), StreamingMultipartBody.Part.of("img2", img2));
+    }
 
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("img1", new MultipartInputResource(img1));
-        body.add("img2", new MultipartInputResource(img2));
+    /**
+     * Compare the faces of two images.
+     * <p>
+     * Embeddings are computed by the configured engine and compared locally; with the embedding cache enabled, only images
+     * never seen before are embedded. When the in-process engine fails, the comparison is redone through the sidecar. The
+     * response has the same shape as DeepFace's {@code verify}.
+     *
+     * @return the DeepFace verify response, or {@code {"error": ...}} if a face could not be processed.
+     */
+    public String verifyFaceMatch(StreamingMultipartBody.Part img1, StreamingMultipartBody.Part img2) throws IOException {
+        if (engine == httpEngine && !embeddingProperties.isEnabled()) {
+            return httpEngine.verify(img1, img2);
+        }
+        try {
+            return compare(engine, img1, img2);
+        } catch (FaceEmbeddingException e) {
+            return objectMapper.writeValueAsString(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            if (engine == httpEngine) {
+                throw e;
+            }
+            LOG.warn("Face verification engine {} failed, falling back to {}: {}", engine.name(), httpEngine.name(), e.getMessage());
+        }
+        try {
+            return compare(httpEngine, img1, img2);
+        } catch (FaceEmbeddingException e) {
+            return objectMapper.writeValueAsString(Map.of("error", e.getMessage()));
+        }
+    }
 
-        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+    private String compare(FaceVerificationEngine engine, StreamingMultipartBody.Part img1, StreamingMultipartBody.Part img2)
+        throws IOException {
+        double distance = FaceEmbeddingService.cosineDistance(embedding(engine, img1), embedding(engine, img2));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("verified", distance <= engine.threshold());
+        result.put("distance", distance);
+        result.put("threshold", engine.threshold());
+        result.put("model", engine.model());
+        result.put("distance_metric", "cosine");
+        return objectMapper.writeValueAsString(result);
+    }
 
-        ResponseEntity<String> response = restTemplate.postForEntity(endpoint, requestEntity, String.class);
-        return response.getBody();
+    private float[] embedding(FaceVerificationEngine engine, StreamingMultipartBody.Part image) throws IOException {
+        if (!embeddingProperties.isEnabled()) {
+            return engine.embed(image);
+        }
+        String contentHash = image.contentHash() != null ? image.contentHash() : faceEmbeddingService.contentHash(image.content());
+        Optional<float[]> known = faceEmbeddingService.find(contentHash, engine.model());
+        if (known.isPresent()) {
+            return known.get();
+        }
+        return faceEmbeddingService.save(contentHash, engine.model(), engine.embed(image));
     }
 }
@@ -0,0 +1,36 @@
+package com.reactit.kyc.supp.service;
+
+import java.time.Duration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the face-verification sidecar cannot take a request right now.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Face verification service is busy")
+public class FaceVerificationUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public FaceVerificationUnavailableException(String message) {
+        this(message, null, null);
+    }
+
+    public FaceVerificationUnavailableException(String message, Throwable cause) {
+        this(message, null, cause);
+    }
+
+    public FaceVerificationUnavailableException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return how long clients should wait before retrying, or {@code null} if unknown.
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,210 @@
+package com.reactit.kyc.supp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.service.dto.FaceEmbeddingResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Face verification through the Python DeepFace sidecar.
+ * <p>
+ * Always available, it is also the fallback when the in-process engine fails. Calls go through a circuit breaker, which
+ * fails fast while the sidecar is down, and an adaptive concurrency limit capped by {@code max-concurrent-requests}, which
+ * backs off when the sidecar slows down. Refused calls raise a {@link FaceVerificationUnavailableException} telling clients
+ * when to retry.
+ */
+@Component
+public class HttpFaceVerificationEngine implements FaceVerificationEngine {
+
+    public static final String NAME = "http";
+
+    private static final String VERIFY_ENDPOINT = "/api/verify_face_match";
+
+    private static final String REPRESENT_ENDPOINT = "/api/represent";
+
+    private final RestTemplate restTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Duration acquireTimeout;
+
+    private final Timer successTimer;
+
+    private final Timer failureTimer;
+
+    private final Counter circuitOpenRejections;
+
+    private final Counter limitRejections;
+
+    private final String model;
+
+    private final double threshold;
+
+    public HttpFaceVerificationEngine(
+        @Qualifier("faceVerificationRestTemplate") RestTemplate restTemplate,
+        ObjectMapper objectMapper,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.FaceVerification.Client client = applicationProperties.getFaceVerification().getClient();
+        ApplicationProperties.FaceVerification.Resilience resilience = applicationProperties.getFaceVerification().getResilience();
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.limiter = new AdaptiveConcurrencyLimiter(
+            Math.min(resilience.getMinConcurrentRequests(), client.getMaxConcurrentRequests()),
+            client.getMaxConcurrentRequests(),
+            resilience.getLatencyThreshold(),
+            resilience.getBackoffRatio()
+        );
+        this.circuitBreaker = new CircuitBreaker(
+            resilience.getSlidingWindowSize(),
+            resilience.getMinimumCalls(),
+            resilience.getFailureRateThreshold() / 100.0,
+            resilience.getOpenDuration(),
+            resilience.getHalfOpenCalls()
+        );
+        this.acquireTimeout = client.getAcquireTimeout();
+        this.model = applicationProperties.getFaceVerification().getEmbedding().getModel();
+        this.threshold = applicationProperties.getFaceVerification().getEmbedding().getThreshold();
+
+        Gauge.builder("kyc.face.verification.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("kyc.face.verification.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight).register(
+            meterRegistry
+        );
+        Gauge.builder("kyc.face.verification.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+            .description("0 closed, 1 open, 2 half-open")
+            .register(meterRegistry);
+        this.successTimer = Timer.builder("kyc.face.verification.requests").tag("outcome", "success").register(meterRegistry);
+        this.failureTimer = Timer.builder("kyc.face.verification.requests").tag("outcome", "failure").register(meterRegistry);
+        this.circuitOpenRejections = Counter.builder("kyc.face.verification.rejected").tag("reason", "circuit_open").register(meterRegistry);
+        this.limitRejections = Counter.builder("kyc.face.verification.rejected").tag("reason", "concurrency_limit").register(meterRegistry);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public double threshold() {
+        return threshold;
+    }
+
+    @Override
+    public float[] embed(StreamingMultipartBody.Part image) throws IOException {
+        StreamingMultipartBody.Part part = new StreamingMultipartBody.Part(
+            "img",
+            image.filename(),
+            image.contentType(),
+            image.size(),
+            image.content()
+        );
+        FaceEmbeddingResult result = objectMapper.readValue(post(REPRESENT_ENDPOINT, List.of(part)), FaceEmbeddingResult.class);
+        if (result.error() != null) {
+            throw new FaceEmbeddingException(result.error());
+        }
+        if (result.embedding() == null || result.embedding().isEmpty()) {
+            throw new FaceEmbeddingException("No face embedding returned for " + image.name());
+        }
+        float[] embedding = new float[result.embedding().size()];
+        for (int i = 0; i < embedding.length; i++) {
+            embedding[i] = result.embedding().get(i).floatValue();
+        }
+        return embedding;
+    }
+
+    /**
+     * Have the sidecar compare both images in a single call, without reusing any embedding.
+     *
+     * @return the DeepFace verify response.
+     */
+    public String verify(StreamingMultipartBody.Part img1, StreamingMultipartBody.Part img2) {
+        return post(VERIFY_ENDPOINT, List.of(img1, img2));
+    }
+
+    private String post(String endpoint, List<StreamingMultipartBody.Part> parts) {
+        StreamingMultipartBody body = new StreamingMultipartBody(parts);
+
+        if (!circuitBreaker.tryAcquirePermission()) {
+            circuitOpenRejections.increment();
+            throw new FaceVerificationUnavailableException(
+                "Face verification service is failing, calls are suspended",
+                circuitBreaker.getRemainingOpenDuration(),
+                null
+            );
+        }
+        acquireSlot();
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            String response = restTemplate.execute(endpoint, HttpMethod.POST, body, clientResponse ->
+                StreamUtils.copyToString(clientResponse.getBody(), StandardCharsets.UTF_8)
+            );
+            failed = false;
+            return response;
+        } catch (HttpClientErrorException e) {
+            // a rejected request says nothing about the health of the sidecar
+            failed = false;
+            throw e;
+        } catch (ResourceAccessException e) {
+            throw new FaceVerificationUnavailableException("Face verification service could not be reached", acquireTimeout, e);
+        } finally {
+            long latency = System.nanoTime() - start;
+            limiter.release(latency, failed);
+            (failed ? failureTimer : successTimer).record(Duration.ofNanos(latency));
+            if (failed) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        }
+    }
+
+    private void acquireSlot() {
+        boolean acquired = false;
+        try {
+            acquired = limiter.tryAcquire(acquireTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.releasePermission();
+            throw new FaceVerificationUnavailableException("Interrupted while waiting for a face verification slot", e);
+        }
+        if (!acquired) {
+            circuitBreaker.releasePermission();
+            limitRejections.increment();
+            throw new FaceVerificationUnavailableException("Too many face verifications in progress", acquireTimeout, null);
+        }
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+}
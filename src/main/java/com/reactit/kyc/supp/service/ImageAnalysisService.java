@@ -0,0 +1,208 @@
+package com.reactit.kyc.supp.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Runs document image quality checks on a pool of long-lived Python analyzers, or in process with the
+ * {@link DocumentQualityAnalyzer} when {@code application.image-analysis.engine} is {@code java}.
+ * <p>
+ * Analyzers are started on first use, so that the interpreter start-up and the OpenCV import are paid once per process
+ * instead of once per upload. An analyzer that crashes or exceeds the request timeout is killed and replaced; idle analyzers
+ * are pinged periodically and replaced when they do not answer.
+ */
+@Service
+public class ImageAnalysisService implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImageAnalysisService.class);
+
+    private static final Duration PING_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ObjectMapper objectMapper;
+
+    private final DocumentImagePreprocessor documentImagePreprocessor;
+
+    private final DocumentQualityAnalyzer documentQualityAnalyzer;
+
+    private final boolean javaEngine;
+
+    private final List<String> command;
+
+    private final Duration requestTimeout;
+
+    private final Duration acquireTimeout;
+
+    /**
+     * One permit per analyzer process, held while the analyzer serves a request or a health check.
+     */
+    private final Semaphore slots;
+
+    private final BlockingQueue<ImageAnalyzerWorker> idle = new LinkedBlockingQueue<>();
+
+    public ImageAnalysisService(
+        ObjectMapper objectMapper,
+        DocumentImagePreprocessor documentImagePreprocessor,
+        DocumentQualityAnalyzer documentQualityAnalyzer,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.ImageAnalysis properties = applicationProperties.getImageAnalysis();
+        this.objectMapper = objectMapper;
+        this.documentImagePreprocessor = documentImagePreprocessor;
+        this.documentQualityAnalyzer = documentQualityAnalyzer;
+        this.javaEngine = "java".equals(properties.getEngine());
+        this.command = List.of(properties.getPythonExecutable(), properties.getScriptPath(), "--serve");
+        this.requestTimeout = properties.getRequestTimeout();
+        this.acquireTimeout = properties.getAcquireTimeout();
+        this.slots = new Semaphore(properties.getPoolSize(), true);
+    }
+
+    /**
+     * Analyze the quality of an uploaded image, at the working resolution of the {@link DocumentImagePreprocessor}.
+     *
+     * @param file the image.
+     * @return the analyzer response: {@code qualityScore} and {@code issues}, or {@code error}.
+     * @throws IOException if the image could not be stored or the analyzer failed.
+     * @throws ImageAnalysisUnavailableException if no analyzer became free in time.
+     */
+    public Map<String, Object> analyze(MultipartFile file) throws IOException {
+        DocumentImagePreprocessor.WorkingImage image;
+        try (InputStream inputStream = file.getInputStream()) {
+            image = documentImagePreprocessor.load(inputStream);
+        } catch (IOException e) {
+            if (javaEngine) {
+                // an undecodable image is reported like the Python analyzer does
+                return Map.of("error", e.getMessage());
+            }
+            // OpenCV reads a few formats ImageIO does not, the analyzer gets the upload as is
+            image = null;
+        }
+        if (javaEngine) {
+            DocumentQualityAnalyzer.Report report = documentQualityAnalyzer.analyze(image.image(), image.scale());
+            return Map.of("qualityScore", report.qualityScore(), "issues", report.issues());
+        }
+
+        Path tempFile = Files.createTempFile("uploaded-", image == null ? ".img" : ".bmp");
+        try {
+            if (image == null) {
+                file.transferTo(tempFile);
+            } else {
+                // uncompressed: cheaper to write and read back than the upload
+                ImageIO.write(image.image(), "bmp", tempFile.toFile());
+            }
+            ObjectNode request = objectMapper
+                .createObjectNode()
+                .put("path", tempFile.toAbsolutePath().toString())
+                .put("scale", image == null ? 1 : image.scale());
+            Map<String, Object> response = objectMapper.convertValue(call(request, requestTimeout), new TypeReference<>() {});
+            response.remove("id");
+            return response;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private JsonNode call(ObjectNode request, Duration timeout) throws IOException {
+        try {
+            if (!slots.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ImageAnalysisUnavailableException("All image analyzers are busy");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImageAnalysisUnavailableException("Interrupted while waiting for an image analyzer");
+        }
+        try {
+            ImageAnalyzerWorker worker = idle.poll();
+            if (worker == null || !worker.isAlive()) {
+                if (worker != null) {
+                    worker.close();
+                }
+                worker = ImageAnalyzerWorker.start(command, objectMapper);
+            }
+            return call(worker, request, timeout);
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Send a request to a worker held by the caller; the worker goes back to the pool when it answered, or is killed.
+     */
+    private JsonNode call(ImageAnalyzerWorker worker, ObjectNode request, Duration timeout) throws IOException {
+        boolean healthy = false;
+        try {
+            JsonNode response = worker.request(request, timeout);
+            healthy = true;
+            return response;
+        } catch (TimeoutException e) {
+            throw new IOException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for image analyzer " + worker.pid(), e);
+        } finally {
+            if (healthy) {
+                idle.add(worker);
+            } else {
+                LOG.warn("Restarting image analyzer {}", worker.pid());
+                worker.close();
+            }
+        }
+    }
+
+    /**
+     * Ping idle analyzers, replacing those that crashed or hang.
+     */
+    @Scheduled(fixedDelayString = "${application.image-analysis.health-check-interval:30s}")
+    public void checkAnalyzers() {
+        int checked = 0;
+        for (int i = idle.size(); i > 0 && slots.tryAcquire(); i--) {
+            try {
+                ImageAnalyzerWorker worker = idle.poll();
+                if (worker == null) {
+                    break;
+                }
+                checked++;
+                try {
+                    call(worker, objectMapper.createObjectNode().put("ping", true), PING_TIMEOUT);
+                } catch (IOException e) {
+                    LOG.warn("Image analyzer {} failed its health check: {}", worker.pid(), e.getMessage());
+                    idle.add(ImageAnalyzerWorker.start(command, objectMapper));
+                }
+            } catch (IOException e) {
+                LOG.error("Could not restart an image analyzer", e);
+            } finally {
+                slots.release();
+            }
+        }
+        LOG.debug("Checked {} idle image analyzers", checked);
+    }
+
+    @Override
+    public void destroy() {
+        ImageAnalyzerWorker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.close();
+        }
+    }
+}
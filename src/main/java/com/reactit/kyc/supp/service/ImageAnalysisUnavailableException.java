@@ -0,0 +1,17 @@
+package com.reactit.kyc.supp.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when every image analyzer is busy.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Image analysis is busy")
+public class ImageAnalysisUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ImageAnalysisUnavailableException(String message) {
+        super(message);
+    }
+}
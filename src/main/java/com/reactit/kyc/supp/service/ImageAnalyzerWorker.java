@@ -0,0 +1,138 @@
+package com.reactit.kyc.supp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A long-lived {@code image-analyzer.py --serve} process, exchanging one JSON document per line over stdin/stdout.
+ * <p>
+ * Not thread-safe: a worker serves one request at a time, {@link ImageAnalysisService} hands it to a single caller.
+ */
+class ImageAnalyzerWorker implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImageAnalyzerWorker.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    private final Process process;
+
+    private final BufferedWriter stdin;
+
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+
+    private final ObjectMapper objectMapper;
+
+    private long lastRequestId;
+
+    private ImageAnalyzerWorker(Process process, ObjectMapper objectMapper) {
+        this.process = process;
+        this.objectMapper = objectMapper;
+        this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    static ImageAnalyzerWorker start(List<String> command, ObjectMapper objectMapper) throws IOException {
+        Process process = new ProcessBuilder(command).start();
+        ImageAnalyzerWorker worker = new ImageAnalyzerWorker(process, objectMapper);
+        String name = "image-analyzer-" + process.pid();
+        Thread stdout = new Thread(worker::readResponses, name + "-out");
+        stdout.setDaemon(true);
+        stdout.start();
+        // stderr must be drained too, a full pipe would block the analyzer
+        Thread stderr = new Thread(worker::logErrors, name + "-err");
+        stderr.setDaemon(true);
+        stderr.start();
+        LOG.debug("Started image analyzer {}", process.pid());
+        return worker;
+    }
+
+    /**
+     * Send a request and wait for its response.
+     *
+     * @param request the request, its {@code id} is set by the worker.
+     * @param timeout how long to wait for the response.
+     * @return the response.
+     * @throws IOException if the process died.
+     * @throws TimeoutException if no response came in time, the worker must then be closed.
+     */
+    JsonNode request(ObjectNode request, Duration timeout) throws IOException, TimeoutException, InterruptedException {
+        long requestId = ++lastRequestId;
+        request.put("id", requestId);
+        stdin.write(objectMapper.writeValueAsString(request));
+        stdin.newLine();
+        stdin.flush();
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            String line = responses.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (line != null) {
+                JsonNode response = objectMapper.readTree(line);
+                if (response.path("id").asLong() == requestId) {
+                    return response;
+                }
+                // a late answer to a request given up on, or stray output
+                continue;
+            }
+            if (!process.isAlive() && responses.isEmpty()) {
+                throw new IOException("Image analyzer " + process.pid() + " exited with code " + process.exitValue());
+            }
+            if (System.nanoTime() >= deadline) {
+                throw new TimeoutException("Image analyzer " + process.pid() + " did not answer within " + timeout);
+            }
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    long pid() {
+        return process.pid();
+    }
+
+    @Override
+    public void close() {
+        process.destroyForcibly();
+        LOG.debug("Stopped image analyzer {}", process.pid());
+    }
+
+    private void readResponses() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("{")) {
+                    responses.add(line);
+                } else {
+                    LOG.debug("Image analyzer {}: {}", process.pid(), line);
+                }
+            }
+        } catch (IOException e) {
+            LOG.debug("Image analyzer {} output closed: {}", process.pid(), e.getMessage());
+        }
+    }
+
+    private void logErrors() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                LOG.warn("Image analyzer {}: {}", process.pid(), line);
+            }
+        } catch (IOException e) {
+            LOG.debug("Image analyzer {} error output closed: {}", process.pid(), e.getMessage());
+        }
+    }
+}
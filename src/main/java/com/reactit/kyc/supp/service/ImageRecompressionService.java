@@ -0,0 +1,142 @@
+package com.reactit.kyc.supp.service;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Stores uploaded images re-encoded as JPEG at a bounded resolution, when {@code application.storage.recompression} is
+ * enabled.
+ * <p>
+ * Images are decoded upright, so the EXIF orientation is applied to the pixels and every other metadata is dropped.
+ * Re-encoding runs on the bounded {@code recompressionExecutor}; an upload that cannot be re-encoded in time, or that would
+ * not get smaller, is stored as received. The bytes saved per upload are recorded in {@code kyc.storage.recompression.saved}.
+ */
+@Service
+public class ImageRecompressionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImageRecompressionService.class);
+
+    private static final String CONTENT_TYPE = "image/jpeg";
+
+    /**
+     * User metadata of a recompressed object holding the key of the original, when it is kept.
+     */
+    static final String ORIGINAL_METADATA = "original";
+
+    private final MinioService minioService;
+
+    private final AsyncTaskExecutor recompressionExecutor;
+
+    private final ApplicationProperties.Storage.Recompression properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final DistributionSummary saved;
+
+    public ImageRecompressionService(
+        MinioService minioService,
+        @Qualifier("recompressionExecutor") AsyncTaskExecutor recompressionExecutor,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.minioService = minioService;
+        this.recompressionExecutor = recompressionExecutor;
+        this.properties = applicationProperties.getStorage().getRecompression();
+        this.meterRegistry = meterRegistry;
+        this.saved = DistributionSummary.builder("kyc.storage.recompression.saved").baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * Store an uploaded file, recompressed if it is an image.
+     *
+     * @param file the uploaded file.
+     * @param contentType the media type of the file.
+     * @return the key of the stored object.
+     */
+    public String store(MultipartFile file, String contentType) {
+        if (!properties.isEnabled() || !("image/jpeg".equals(contentType) || "image/png".equals(contentType))) {
+            return minioService.uploadFile(file, contentType);
+        }
+
+        Optional<byte[]> recompressed = recompress(file);
+        if (recompressed.isEmpty()) {
+            return minioService.uploadFile(file, contentType);
+        }
+        long savedBytes = file.getSize() - recompressed.get().length;
+        if (savedBytes <= 0) {
+            count("unchanged");
+            saved.record(0);
+            return minioService.uploadFile(file, contentType);
+        }
+
+        Map<String, String> metadata = Map.of();
+        if (properties.isKeepOriginal()) {
+            metadata = Map.of(ORIGINAL_METADATA, minioService.uploadFile(file, contentType));
+        }
+        String objectName = minioService.uploadContent(recompressed.get(), CONTENT_TYPE, metadata);
+        count("recompressed");
+        saved.record(savedBytes);
+        LOG.debug("Stored {} recompressed as {}, {} bytes saved", file.getOriginalFilename(), objectName, savedBytes);
+        return objectName;
+    }
+
+    private Optional<byte[]> recompress(MultipartFile file) {
+        Future<byte[]> task;
+        try {
+            task = recompressionExecutor.submit(() -> {
+                try (InputStream in = file.getInputStream()) {
+                    return recompress(in);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Recompression queue full, storing {} as received", file.getOriginalFilename());
+            count("skipped");
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(task.get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            LOG.debug("Recompression of {} too slow, storing it as received", file.getOriginalFilename());
+            count("skipped");
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            count("skipped");
+        } catch (ExecutionException e) {
+            LOG.debug("Could not recompress {}, storing it as received: {}", file.getOriginalFilename(), e.getCause().getMessage());
+            count("failed");
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Decode an image upright, scale it down to the configured resolution and encode it as JPEG.
+     */
+    byte[] recompress(InputStream in) throws IOException {
+        // subsampled while decoding to twice the target, smoothed down from there
+        BufferedImage image = new DocumentImagePreprocessor(2 * properties.getMaxDimension()).load(in).image();
+        return RenditionService.encode(RenditionService.scale(image, properties.getMaxDimension()), properties.getQuality());
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("kyc.storage.recompression.uploads", "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,17 @@
+package com.reactit.kyc.supp.service;
+
+/**
+ * Thrown when the callback URL of a face-match job is malformed or its host is not allowed.
+ */
+public class InvalidCallbackUrlException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCallbackUrlException(String message) {
+        super(message);
+    }
+
+    public InvalidCallbackUrlException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
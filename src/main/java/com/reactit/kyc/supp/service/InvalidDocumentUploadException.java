@@ -0,0 +1,17 @@
+package com.reactit.kyc.supp.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a file is uploaded, or a direct upload requested or finalized, that the storage must not accept.
+ */
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Invalid document upload")
+public class InvalidDocumentUploadException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidDocumentUploadException(String message) {
+        super(message);
+    }
+}
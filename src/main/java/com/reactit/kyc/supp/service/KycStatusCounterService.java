@@ -0,0 +1,160 @@
+package com.reactit.kyc.supp.service;
+
+import com.reactit.kyc.supp.domain.KycStatusCounter;
+import com.reactit.kyc.supp.domain.enumeration.KycStatus;
+import com.reactit.kyc.supp.repository.KycStatusCounterRepository;
+import com.reactit.kyc.supp.repository.PartnerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the number of customers per partner and KYC status in {@code kyc_status_counter}, so that the admin dashboard
+ * reads a handful of rows instead of counting customers.
+ * <p>
+ * Counters are updated in the transaction saving the customer, one row per partner and status so that writes for different
+ * partners do not wait for each other. A scheduled recount, {@code application.dashboard.counter-reconciliation-cron},
+ * corrects counters drifting because of customers written by other means, such as SQL scripts; it locks the counters of one
+ * partner at a time.
+ */
+@Service
+public class KycStatusCounterService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KycStatusCounterService.class);
+
+    /**
+     * The order of the primary key of {@code kyc_status_counter}, {@code (partner_id, kyc_status)}.
+     */
+    private static final Comparator<KycStatusCounter.Key> KEY_ORDER = Comparator.comparing(KycStatusCounter.Key::getPartnerId)
+        .thenComparing(key -> key.getKycStatus().name());
+
+    private final KycStatusCounterRepository kycStatusCounterRepository;
+
+    private final PartnerRepository partnerRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter drift;
+
+    public KycStatusCounterService(
+        KycStatusCounterRepository kycStatusCounterRepository,
+        PartnerRepository partnerRepository,
+        TransactionTemplate transactionTemplate,
+        MeterRegistry meterRegistry
+    ) {
+        this.kycStatusCounterRepository = kycStatusCounterRepository;
+        this.partnerRepository = partnerRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.drift = Counter.builder("kyc.customers.status.counter.drift")
+            .description("Customers counted in the wrong counter, as found by the recount")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Move a customer between counters, in the transaction saving the customer.
+     *
+     * @param before the counter the customer was counted in, {@code null} for a new customer.
+     * @param after the counter the customer is now counted in, {@code null} for a deleted customer.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void customerChanged(KycStatusCounter.Key before, KycStatusCounter.Key after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        boolean decrement = before != null && before.getKycStatus() != null;
+        boolean increment = after != null && after.getKycStatus() != null;
+        // rows are always locked in key order: two customers moving in opposite directions between the same counters
+        // would otherwise each hold the row the other one waits for
+        if (decrement && increment && KEY_ORDER.compare(after, before) < 0) {
+            add(after, 1);
+            add(before, -1);
+            return;
+        }
+        if (decrement) {
+            add(before, -1);
+        }
+        if (increment) {
+            add(after, 1);
+        }
+    }
+
+    private void add(KycStatusCounter.Key key, long delta) {
+        kycStatusCounterRepository.add(key.getPartnerId(), key.getKycStatus().name(), delta);
+    }
+
+    /**
+     * @return the number of customers in each status, over all partners.
+     */
+    @Transactional(readOnly = true)
+    public Map<KycStatus, Long> countByStatus() {
+        Map<KycStatus, Long> counts = new EnumMap<>(KycStatus.class);
+        for (KycStatus status : KycStatus.values()) {
+            counts.put(status, 0L);
+        }
+        for (KycStatusCounter counter : kycStatusCounterRepository.findAll()) {
+            counts.merge(counter.getKey().getKycStatus(), counter.getCustomerCount(), Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Recount customers and correct the counters that drifted, one partner at a time.
+     * <p>
+     * Each partner is recounted in a transaction of its own, which locks the counters of that partner only: saves of its
+     * customers wait for the recount of the partner, other partners are not held up.
+     *
+     * @return the number of customers that were counted in the wrong counter.
+     */
+    @Scheduled(cron = "${application.dashboard.counter-reconciliation-cron:0 0 3 * * *}")
+    public long reconcile() {
+        Set<Long> partnerIds = new TreeSet<>(partnerRepository.findAllIds());
+        partnerIds.addAll(kycStatusCounterRepository.findPartnerIds());
+        partnerIds.add(KycStatusCounter.NO_PARTNER);
+        long drifted = 0;
+        for (Long partnerId : partnerIds) {
+            drifted += Objects.requireNonNull(transactionTemplate.execute(transaction -> reconcile(partnerId)));
+        }
+        drift.increment(drifted);
+        LOG.debug("Recounted customers of {} partners, {} miscounted", partnerIds.size(), drifted);
+        return drifted;
+    }
+
+    private long reconcile(long partnerId) {
+        // create and lock every counter of the partner, in key order: customers saved from now on wait for the recount, and
+        // those saved before are committed, so seen by the count
+        Arrays.stream(KycStatus.values())
+            .map(status -> new KycStatusCounter.Key(partnerId, status))
+            .sorted(KEY_ORDER)
+            .forEach(key -> add(key, 0));
+        Map<KycStatusCounter.Key, Long> actual = new HashMap<>();
+        for (KycStatusCounter count : kycStatusCounterRepository.countCustomersOfPartner(partnerId)) {
+            actual.put(count.getKey(), count.getCustomerCount());
+        }
+
+        long drifted = 0;
+        for (KycStatusCounter counter : kycStatusCounterRepository.findByKeyPartnerId(partnerId)) {
+            long expected = actual.getOrDefault(counter.getKey(), 0L);
+            long counted = counter.getCustomerCount();
+            if (counted != expected) {
+                LOG.warn("Customer counter {} was {} instead of {}, corrected", counter.getKey(), counted, expected);
+                drifted += Math.abs(counted - expected);
+                counter.setCustomerCount(expected);
+            }
+        }
+        return drifted;
+    }
+}
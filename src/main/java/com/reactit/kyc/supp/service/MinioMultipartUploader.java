@@ -0,0 +1,273 @@
+package com.reactit.kyc.supp.service;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.minio.MinioAsyncClient;
+import io.minio.messages.Part;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uploads large files to MinIO as S3 multipart uploads, with the parts sent in parallel.
+ * <p>
+ * The file is read sequentially by the caller into part buffers, and each buffer is uploaded on a shared pool of
+ * {@code concurrency} threads; the caller blocks while {@code concurrency} buffers are in use, so memory stays bounded
+ * whatever the number of uploads. A failed part is retried on its own; when it keeps failing, the whole upload is aborted.
+ * The object only becomes visible once the upload is completed.
+ */
+class MinioMultipartUploader implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MinioMultipartUploader.class);
+
+    private final MultipartClient client;
+
+    private final int partSize;
+
+    private final int maxAttempts;
+
+    private final long retryBackoffMillis;
+
+    private final Semaphore buffers;
+
+    private final ExecutorService executor;
+
+    private final Timer partTimer;
+
+    private final Timer failedPartTimer;
+
+    private final DistributionSummary partThroughput;
+
+    private final Counter retries;
+
+    private final MeterRegistry meterRegistry;
+
+    MinioMultipartUploader(MinioAsyncClient client, ApplicationProperties.Storage.Multipart properties, MeterRegistry meterRegistry) {
+        this(client, properties, meterRegistry, uploadExecutor(properties.getConcurrency()));
+    }
+
+    MinioMultipartUploader(
+        MinioAsyncClient client,
+        ApplicationProperties.Storage.Multipart properties,
+        MeterRegistry meterRegistry,
+        ExecutorService executor
+    ) {
+        this.client = new MultipartClient(client);
+        this.partSize = (int) properties.getPartSize().toBytes();
+        this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+        this.retryBackoffMillis = properties.getRetryBackoff().toMillis();
+        this.buffers = new Semaphore(properties.getConcurrency());
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.partTimer = Timer.builder("kyc.storage.multipart.part.duration").tag("outcome", "success").register(meterRegistry);
+        this.failedPartTimer = Timer.builder("kyc.storage.multipart.part.duration").tag("outcome", "failure").register(meterRegistry);
+        this.partThroughput = DistributionSummary.builder("kyc.storage.multipart.part.throughput")
+            .baseUnit("bytes.per.second")
+            .register(meterRegistry);
+        this.retries = Counter.builder("kyc.storage.multipart.part.retries").register(meterRegistry);
+    }
+
+    private static ExecutorService uploadExecutor(int concurrency) {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "minio-upload-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Upload a file in parts.
+     *
+     * @param bucket the bucket.
+     * @param objectName the name of the object to create.
+     * @param contentType the content type of the object, or {@code null}.
+     * @param inputStream the content, read up to its end.
+     * @throws IOException if reading the content failed or a part could not be uploaded; the upload is then aborted.
+     */
+    void upload(String bucket, String objectName, String contentType, InputStream inputStream) throws IOException {
+        Multimap<String, String> headers = contentType == null
+            ? ImmutableMultimap.of()
+            : ImmutableMultimap.of("Content-Type", contentType);
+        String uploadId = client.create(bucket, objectName, headers);
+        List<CompletableFuture<Part>> parts = new ArrayList<>();
+        try {
+            for (int partNumber = 1;; partNumber++) {
+                buffers.acquire();
+                byte[] buffer;
+                try {
+                    buffer = inputStream.readNBytes(partSize);
+                } catch (IOException | RuntimeException e) {
+                    buffers.release();
+                    throw e;
+                }
+                if (buffer.length == 0 && partNumber > 1) {
+                    buffers.release();
+                    break;
+                }
+                int number = partNumber;
+                CompletableFuture<Part> part;
+                try {
+                    part = CompletableFuture.supplyAsync(() -> uploadPart(bucket, objectName, uploadId, number, buffer), executor);
+                } catch (RuntimeException e) {
+                    buffers.release();
+                    throw e;
+                }
+                // released when the part completes in any way, cancelled before it started included
+                part.whenComplete((uploaded, failure) -> buffers.release());
+                parts.add(part);
+                if (buffer.length < partSize) {
+                    break;
+                }
+            }
+
+            Part[] uploaded = new Part[parts.size()];
+            for (int i = 0; i < uploaded.length; i++) {
+                uploaded[i] = parts.get(i).get();
+            }
+            client.complete(bucket, objectName, uploadId, uploaded);
+            meterRegistry.counter("kyc.storage.multipart.uploads", "outcome", "completed").increment();
+        } catch (IOException | InterruptedException | ExecutionException | RuntimeException e) {
+            parts.forEach(part -> part.cancel(false));
+            // parts already being sent are let finish, so that none is stored after the upload is aborted
+            parts.forEach(MinioMultipartUploader::awaitQuietly);
+            abort(bucket, objectName, uploadId);
+            meterRegistry.counter("kyc.storage.multipart.uploads", "outcome", "aborted").increment();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw cause instanceof IOException io ? io : new IOException("Multipart upload of " + objectName + " failed", cause);
+        }
+    }
+
+    private static void awaitQuietly(CompletableFuture<Part> part) {
+        try {
+            part.join();
+        } catch (CancellationException | CompletionException e) {
+            // the failure is the one of the upload, or the part was not needed any more
+        }
+    }
+
+    /**
+     * @return the number of part buffers not in use, by any upload.
+     */
+    int availableBuffers() {
+        return buffers.availablePermits();
+    }
+
+    private Part uploadPart(String bucket, String objectName, String uploadId, int partNumber, byte[] data) {
+        for (int attempt = 1;; attempt++) {
+            long start = System.nanoTime();
+            try {
+                String etag = client.uploadPart(bucket, objectName, uploadId, partNumber, data);
+                long nanos = System.nanoTime() - start;
+                partTimer.record(nanos, TimeUnit.NANOSECONDS);
+                partThroughput.record(data.length * 1e9 / Math.max(nanos, 1));
+                return new Part(partNumber, etag);
+            } catch (IOException e) {
+                failedPartTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (attempt >= maxAttempts) {
+                    throw new MultipartUploadException("Part " + partNumber + " of " + objectName + " failed " + attempt + " times", e);
+                }
+                LOG.warn("Part {} of {} failed (attempt {}/{}): {}", partNumber, objectName, attempt, maxAttempts, e.getMessage());
+                retries.increment();
+                try {
+                    Thread.sleep(retryBackoffMillis * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new MultipartUploadException("Interrupted while retrying part " + partNumber + " of " + objectName, e);
+                }
+            }
+        }
+    }
+
+    private void abort(String bucket, String objectName, String uploadId) {
+        try {
+            client.abort(bucket, objectName, uploadId);
+        } catch (IOException e) {
+            LOG.warn("Could not abort multipart upload {} of {}, it is left to the bucket lifecycle", uploadId, objectName, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static class MultipartUploadException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        MultipartUploadException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Exposes the multipart primitives the MinIO client keeps protected.
+     */
+    private static final class MultipartClient extends MinioAsyncClient {
+
+        MultipartClient(MinioAsyncClient client) {
+            super(client);
+        }
+
+        String create(String bucket, String objectName, Multimap<String, String> headers) throws IOException {
+            return await(() -> createMultipartUploadAsync(bucket, null, objectName, headers, null)).result().uploadId();
+        }
+
+        String uploadPart(String bucket, String objectName, String uploadId, int partNumber, byte[] data) throws IOException {
+            return await(() ->
+                uploadPartAsync(bucket, null, objectName, new ByteArrayInputStream(data), data.length, uploadId, partNumber, null, null)
+            ).etag();
+        }
+
+        void complete(String bucket, String objectName, String uploadId, Part[] parts) throws IOException {
+            await(() -> completeMultipartUploadAsync(bucket, null, objectName, uploadId, parts, null, null));
+        }
+
+        void abort(String bucket, String objectName, String uploadId) throws IOException {
+            await(() -> abortMultipartUploadAsync(bucket, null, objectName, uploadId, null, null));
+        }
+
+        private static <T> T await(AsyncCall<T> call) throws IOException {
+            try {
+                return call.start().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for MinIO", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+                throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface AsyncCall<T> {
+        CompletableFuture<T> start() throws Exception;
+    }
+}
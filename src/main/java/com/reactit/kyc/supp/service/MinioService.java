@@ -1,16 +1,41 @@
 package com.reactit.kyc.supp.service;
 
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import io.minio.*;
+import io.minio.errors.ErrorResponseException;
 import io.minio.errors.MinioException;
 import io.minio.http.Method;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -19,17 +44,59 @@ public class MinioService {
 
     private static final Logger log = LoggerFactory.getLogger(MinioService.class);
 
+    /**
+     * Streamed uploads are written here until their content hash, hence their key, is known.
+     */
+    static final String STAGING_PREFIX = "staging/";
+
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+
     private final MinioClient minioClient;
 
+    private final String url;
+
+    private final MinioMultipartUploader multipartUploader;
+
+    private final ApplicationProperties.Storage.Multipart multipart;
+
+    private final int presignExpirySeconds;
+
+    private final Cache<String, String> presignedUrls;
+
     @Value("${minio.bucket-name}")
     private String bucketName;
 
     public MinioService(
         @Value("${minio.url}") String url,
         @Value("${minio.access-key}") String accessKey,
-        @Value("${minio.secret-key}") String secretKey
+        @Value("${minio.secret-key}") String secretKey,
+        @Value("${minio.region:}") String region,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
     ) {
-        this.minioClient = MinioClient.builder().endpoint(url).credentials(accessKey, secretKey).build();
+        // a known region saves a bucket location lookup before signing
+        MinioClient.Builder builder = MinioClient.builder().endpoint(url).credentials(accessKey, secretKey);
+        this.minioClient = region.isEmpty() ? builder.build() : builder.region(region).build();
+        this.url = url;
+        this.multipart = applicationProperties.getStorage().getMultipart();
+        this.multipartUploader = new MinioMultipartUploader(
+            MinioAsyncClient.builder().endpoint(url).credentials(accessKey, secretKey).build(),
+            multipart,
+            meterRegistry
+        );
+        ApplicationProperties.Storage.Presign presign = applicationProperties.getStorage().getPresign();
+        this.presignExpirySeconds = (int) presign.getExpiry().toSeconds();
+        this.presignedUrls = Caffeine.newBuilder()
+            .maximumSize(presign.getCacheSize())
+            .expireAfterWrite(presign.getExpiry().minus(presign.getSafetyMargin()))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, presignedUrls, "kyc.storage.presigned.urls");
+    }
+
+    @PreDestroy
+    public void close() {
+        multipartUploader.close();
     }
 
     @PostConstruct
@@ -47,48 +114,369 @@ public class MinioService {
         }
     }
 
+    /**
+     * Get a presigned download URL of an object, valid for at least the configured safety margin.
+     * <p>
+     * URLs are cached and only signed again shortly before they expire.
+     *
+     * @param fileName the object.
+     * @return the URL.
+     */
     public String getPresignedUrl(String fileName) {
+        return presignedUrls.get(fileName, this::presign);
+    }
+
+    /**
+     * Get presigned download URLs of a page of stored file references, such as the {@code fileUrl} of documents, signing
+     * only the ones that are not cached.
+     *
+     * @param references the stored references, see {@link #objectNameOf(String)}.
+     * @return the URL of each reference, in the order of {@code references}.
+     */
+    public Map<String, String> getPresignedUrls(Collection<String> references) {
+        Map<String, String> objectNames = new LinkedHashMap<>();
+        for (String reference : references) {
+            objectNames.put(reference, objectNameOf(reference));
+        }
+        Map<String, String> urls = presignedUrls.getAll(new LinkedHashSet<>(objectNames.values()), missing -> {
+            Map<String, String> signed = new HashMap<>();
+            for (String objectName : missing) {
+                signed.put(objectName, presign(objectName));
+            }
+            return signed;
+        });
+        Map<String, String> result = new LinkedHashMap<>();
+        objectNames.forEach((reference, objectName) -> result.put(reference, urls.get(objectName)));
+        return result;
+    }
+
+    String presign(String objectName) {
         try {
             return minioClient.getPresignedObjectUrl(
                 GetPresignedObjectUrlArgs.builder()
                     .bucket(bucketName)
-                    .object(fileName)
+                    .object(objectName)
                     .method(Method.GET)
-                    .expiry(60 * 60) // expire dans 1 heure
+                    .expiry(presignExpirySeconds)
                     .build()
             );
         } catch (Exception e) {
-            log.error("Error generating presigned URL for file {}", fileName, e);
+            log.error("Error generating presigned URL for file {}", objectName, e);
             throw new RuntimeException("Error generating presigned URL", e);
         }
     }
 
-    public String uploadFile(MultipartFile file) {
+    /**
+     * Resolve the object name behind a stored file reference.
+     * <p>
+     * References are object names, or URLs pointing into the bucket, such as the presigned URLs older uploads used to
+     * store or URLs sent by API clients.
+     *
+     * @param reference the stored reference.
+     * @return the object name.
+     */
+    public String objectNameOf(String reference) {
+        if (reference == null || !(reference.startsWith("http://") || reference.startsWith("https://"))) {
+            return reference;
+        }
+        String path = URI.create(reference).getRawPath();
+        String bucketPrefix = "/" + bucketName + "/";
+        if (path.startsWith(bucketPrefix)) {
+            path = path.substring(bucketPrefix.length());
+        } else if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        return URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The content hash an object is stored under, known without reading it: objects uploaded through this service are
+     * named by the hex SHA-256 of their bytes.
+     *
+     * @param objectName the object name.
+     * @return the hex SHA-256 of the object bytes, {@code null} if the object is not named by it.
+     */
+    public static String contentHashOf(String objectName) {
+        return objectName != null && CONTENT_HASH.matcher(objectName).matches() ? objectName : null;
+    }
+
+    /**
+     * Presign a browser form upload of one object, to be posted to {@link #getBucketUrl()}.
+     *
+     * @param objectName the name the object must be stored under.
+     * @param contentType the content type the object must be sent with.
+     * @param maxSize the largest accepted size, in bytes.
+     * @param expiration when the form stops being accepted.
+     * @return the form fields, {@code key} and {@code Content-Type} included.
+     */
+    public Map<String, String> getPresignedPostFormData(String objectName, String contentType, long maxSize, ZonedDateTime expiration) {
+        PostPolicy policy = new PostPolicy(bucketName, expiration);
+        policy.addEqualsCondition("key", objectName);
+        policy.addEqualsCondition("Content-Type", contentType);
+        policy.addContentLengthRangeCondition(1, maxSize);
+        try {
+            Map<String, String> formData = new LinkedHashMap<>();
+            formData.put("key", objectName);
+            formData.put("Content-Type", contentType);
+            formData.putAll(minioClient.getPresignedPostFormData(policy));
+            return formData;
+        } catch (Exception e) {
+            log.error("Error presigning upload of {}", objectName, e);
+            throw new RuntimeException("Error presigning upload", e);
+        }
+    }
+
+    /**
+     * @return the URL browser form uploads are posted to.
+     */
+    public String getBucketUrl() {
+        return (url.endsWith("/") ? url : url + "/") + bucketName;
+    }
+
+    /**
+     * Read the metadata of an object, if it exists.
+     *
+     * @param objectName the object.
+     * @return the metadata, or empty if there is no such object.
+     */
+    public Optional<StatObjectResponse> findObject(String objectName) {
+        try {
+            return Optional.of(minioClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build()));
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return Optional.empty();
+            }
+            throw new RuntimeException("Error reading metadata of " + objectName + " from MinIO", e);
+        } catch (Exception e) {
+            throw new RuntimeException("Error reading metadata of " + objectName + " from MinIO", e);
+        }
+    }
+
+    public StatObjectResponse statObject(String objectName) {
+        try {
+            return minioClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        } catch (Exception e) {
+            throw new RuntimeException("Error reading metadata of " + objectName + " from MinIO", e);
+        }
+    }
+
+    public InputStream getObject(String objectName) throws IOException {
+        try {
+            return minioClient.getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error reading " + objectName + " from MinIO", e);
+        }
+    }
+
+    /**
+     * Read part of an object.
+     *
+     * @param objectName the object.
+     * @param offset the first byte to read.
+     * @param length the most bytes to read.
+     * @return the bytes of the range, fewer if the object ends before.
+     */
+    public InputStream getObject(String objectName, long offset, long length) throws IOException {
         try {
-            String fileName = System.currentTimeMillis() + "-" + file.getOriginalFilename();
-            InputStream inputStream = file.getInputStream();
+            return minioClient.getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).offset(offset).length(length).build());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error reading " + objectName + " from MinIO", e);
+        }
+    }
 
+    /**
+     * Store a generated file, replacing any object of the same name.
+     *
+     * @param objectName the object.
+     * @param content the file content.
+     * @param contentType the media type of the file.
+     */
+    public void putObject(String objectName, byte[] content, String contentType) {
+        try {
             minioClient.putObject(
                 PutObjectArgs.builder()
                     .bucket(bucketName)
-                    .object(fileName)
-                    .stream(inputStream, file.getSize(), -1)
-                    .contentType(file.getContentType())
+                    .object(objectName)
+                    .stream(new ByteArrayInputStream(content), content.length, -1)
+                    .contentType(contentType)
                     .build()
             );
-            inputStream.close();
+        } catch (Exception e) {
+            throw new RuntimeException("Error writing " + objectName + " to MinIO", e);
+        }
+    }
 
-            // Retourne une URL signée valide pour accéder au fichier uploadé
-            return minioClient.getPresignedObjectUrl(
-                GetPresignedObjectUrlArgs.builder()
-                    .bucket(bucketName)
-                    .object(fileName)
-                    .method(Method.GET)
-                    .build()
-            );
+    /**
+     * Store an uploaded file under the SHA-256 of its content.
+     * <p>
+     * An upload whose content is already in the bucket, such as a retry or a resubmitted document, is not sent again. Files
+     * over the multipart threshold are sent in parts uploaded in parallel.
+     *
+     * @param file the uploaded file.
+     * @return the key of the stored object, the reference to persist; URLs are signed when the file is read.
+     */
+    public String uploadFile(MultipartFile file) {
+        return uploadFile(file, file.getContentType());
+    }
+
+    /**
+     * Store an uploaded file under the SHA-256 of its content, see {@link #uploadFile(MultipartFile)}.
+     *
+     * @param file the uploaded file.
+     * @param contentType the media type to store the file with, instead of the one declared by the client.
+     * @return the key of the stored object.
+     */
+    public String uploadFile(MultipartFile file, String contentType) {
+        try {
+            String fileName = contentHash(file);
+
+            if (findObject(fileName).isPresent()) {
+                log.debug("File {} already stored as {}, skipping upload", file.getOriginalFilename(), fileName);
+            } else if (multipart.isEnabled() && file.getSize() >= multipart.getThreshold().toBytes()) {
+                try (InputStream inputStream = file.getInputStream()) {
+                    multipartUploader.upload(bucketName, fileName, contentType, inputStream);
+                }
+            } else {
+                try (InputStream inputStream = file.getInputStream()) {
+                    minioClient.putObject(
+                        PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(fileName)
+                            .stream(inputStream, file.getSize(), -1)
+                            .contentType(contentType)
+                            .build()
+                    );
+                }
+            }
+
+            return fileName;
         } catch (Exception e) {
             log.error("Error uploading file to MinIO", e);
             throw new RuntimeException("Error uploading file to MinIO", e);
         }
     }
+
+    /**
+     * Store generated content under its SHA-256, unless the same content is already stored.
+     *
+     * @param content the file content.
+     * @param contentType the media type of the file.
+     * @param userMetadata metadata stored with the object, such as the key of the file it was generated from.
+     * @return the key of the stored object.
+     */
+    public String uploadContent(byte[] content, String contentType, Map<String, String> userMetadata) {
+        try {
+            String fileName = contentHash(new ByteArrayResource(content));
+            if (findObject(fileName).isPresent()) {
+                log.debug("Content already stored as {}, skipping upload", fileName);
+            } else {
+                minioClient.putObject(
+                    PutObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(fileName)
+                        .stream(new ByteArrayInputStream(content), content.length, -1)
+                        .contentType(contentType)
+                        .userMetadata(userMetadata)
+                        .build()
+                );
+            }
+            return fileName;
+        } catch (Exception e) {
+            log.error("Error uploading content to MinIO", e);
+            throw new RuntimeException("Error uploading content to MinIO", e);
+        }
+    }
+
+    /**
+     * Store a file streamed from the client under the SHA-256 of its content, without a local copy.
+     * <p>
+     * The content is hashed while it is sent to a staging object, which is then copied to its key by MinIO, or dropped if
+     * the same content is already stored.
+     *
+     * @param content the file content.
+     * @param contentType the media type of the file.
+     * @param size the size of the file, or -1 if unknown.
+     * @return the key of the stored object.
+     * @throws InvalidDocumentUploadException if reading the content failed validation.
+     */
+    public String uploadStream(InputStream content, String contentType, long size) {
+        String stagingName = STAGING_PREFIX + UUID.randomUUID();
+        boolean staged = false;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream inputStream = new DigestInputStream(content, digest)) {
+                if (multipart.isEnabled() && (size < 0 || size >= multipart.getThreshold().toBytes())) {
+                    multipartUploader.upload(bucketName, stagingName, contentType, inputStream);
+                } else {
+                    minioClient.putObject(
+                        PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(stagingName)
+                            .stream(inputStream, size, size < 0 ? multipart.getPartSize().toBytes() : -1)
+                            .contentType(contentType)
+                            .build()
+                    );
+                }
+            }
+            staged = true;
+
+            String fileName = HexFormat.of().formatHex(digest.digest());
+            if (findObject(fileName).isPresent()) {
+                log.debug("Streamed upload already stored as {}, dropping it", fileName);
+            } else {
+                minioClient.copyObject(
+                    CopyObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(fileName)
+                        .source(CopySource.builder().bucket(bucketName).object(stagingName).build())
+                        .build()
+                );
+            }
+            return fileName;
+        } catch (Exception e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof InvalidDocumentUploadException invalid) {
+                    throw invalid;
+                }
+            }
+            log.error("Error streaming file to MinIO", e);
+            throw new RuntimeException("Error streaming file to MinIO", e);
+        } finally {
+            if (staged) {
+                removeQuietly(stagingName);
+            }
+        }
+    }
+
+    private void removeQuietly(String objectName) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        } catch (Exception e) {
+            log.warn("Could not remove {} from MinIO", objectName, e);
+        }
+    }
+
+    /**
+     * Hex SHA-256 of a file, read from the local multipart storage before anything is sent to MinIO.
+     */
+    static String contentHash(InputStreamSource content) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = content.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 }
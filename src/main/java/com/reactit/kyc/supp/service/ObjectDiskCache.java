@@ -0,0 +1,355 @@
+package com.reactit.kyc.supp.service;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Read-through cache of MinIO objects on the local disk, bounded in total size and number of entries and evicting the least
+ * recently read objects first.
+ * <p>
+ * Entries are keyed by object name and checked against the ETag of the current object: a stale copy of an overwritten
+ * object is dropped and read again. An object is copied to disk once however many requests miss it at the same time: a
+ * request for the whole object waits for the copy, a request for a range is served from MinIO while the copy is made in the
+ * background.
+ * <p>
+ * Cached bytes are read from the file into the servlet output stream, which is not a channel: they go through a heap buffer,
+ * the cache saves the MinIO round trip, not the copy.
+ */
+@Service
+public class ObjectDiskCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObjectDiskCache.class);
+
+    /**
+     * Opens a byte range of the object in MinIO.
+     */
+    @FunctionalInterface
+    public interface ObjectLoader {
+        /**
+         * @param offset the first byte to read.
+         * @param length the number of bytes to read, or a negative value for the rest of the object.
+         */
+        InputStream open(long offset, long length) throws Exception;
+    }
+
+    private record Entry(String etag, Path file, long size) {}
+
+    private record Version(String objectName, String etag) {}
+
+    private final ApplicationProperties.Storage.Cache properties;
+
+    private final Path directory;
+
+    // access ordered, guarded by itself
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalSize;
+
+    // copies being made, at most one per object version
+    private final ConcurrentHashMap<Version, CompletableFuture<Void>> fills = new ConcurrentHashMap<>();
+
+    private final Executor fillExecutor;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter bypasses;
+
+    private final Counter capacityEvictions;
+
+    private final Counter staleEvictions;
+
+    @Autowired
+    public ObjectDiskCache(
+        ApplicationProperties applicationProperties,
+        @Qualifier("objectCacheExecutor") TaskExecutor objectCacheExecutor,
+        MeterRegistry meterRegistry
+    ) {
+        this(applicationProperties.getStorage().getCache(), objectCacheExecutor, meterRegistry);
+    }
+
+    ObjectDiskCache(ApplicationProperties.Storage.Cache properties, Executor fillExecutor, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.fillExecutor = fillExecutor;
+        this.directory = Paths.get(properties.getDirectory());
+        if (properties.isEnabled()) {
+            clear();
+        }
+        this.hits = meterRegistry.counter("kyc.storage.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("kyc.storage.cache.requests", "result", "miss");
+        this.bypasses = meterRegistry.counter("kyc.storage.cache.requests", "result", "bypass");
+        this.capacityEvictions = meterRegistry.counter("kyc.storage.cache.evictions", "cause", "capacity");
+        this.staleEvictions = meterRegistry.counter("kyc.storage.cache.evictions", "cause", "stale");
+        Gauge.builder("kyc.storage.cache.size", this, ObjectDiskCache::getTotalSize).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("kyc.storage.cache.entries", this, ObjectDiskCache::getEntryCount).register(meterRegistry);
+    }
+
+    /**
+     * Read a byte range of an object from the cache. On a miss, the whole object is read once the copy to disk is made, and a
+     * range is read from MinIO while the copy is made.
+     *
+     * @param objectName the object.
+     * @param etag the ETag of the current version of the object.
+     * @param size the size of the object.
+     * @param offset the first byte to read.
+     * @param length the number of bytes to read, or a negative value for the rest of the object.
+     * @param loader opens the object in MinIO, on a miss.
+     * @return the bytes, or empty if the cache is disabled or the object is too large to be cached.
+     * @throws IOException if the object could not be read or written to disk.
+     */
+    public Optional<InputStream> read(String objectName, String etag, long size, long offset, long length, ObjectLoader loader)
+        throws IOException {
+        if (!properties.isEnabled() || size > properties.getMaxObjectSize().toBytes() || size > properties.getMaxSize().toBytes()) {
+            bypasses.increment();
+            return Optional.empty();
+        }
+        FileChannel channel = open(objectName, etag);
+        if (channel != null) {
+            hits.increment();
+            return Optional.of(range(channel, offset, length));
+        }
+        misses.increment();
+        CompletableFuture<Void> fill = fill(objectName, etag, loader);
+        if (offset == 0 && (length < 0 || length >= size)) {
+            await(objectName, fill);
+            channel = open(objectName, etag);
+            if (channel != null) {
+                return Optional.of(range(channel, offset, length));
+            }
+            // evicted right away by concurrent copies
+        }
+        return Optional.of(openObject(objectName, loader, offset, length));
+    }
+
+    private static FileRangeInputStream range(FileChannel channel, long offset, long length) throws IOException {
+        long end = length < 0 ? channel.size() : Math.min(channel.size(), offset + length);
+        return new FileRangeInputStream(channel, offset, end);
+    }
+
+    public long getTotalSize() {
+        synchronized (entries) {
+            return totalSize;
+        }
+    }
+
+    public int getEntryCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Open the cached copy of the current version of an object, dropping an outdated one.
+     * <p>
+     * The file is opened while holding the lock, so that a concurrent eviction can only delete it once it is open.
+     */
+    private FileChannel open(String objectName, String etag) throws IOException {
+        synchronized (entries) {
+            Entry entry = entries.get(objectName);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.etag().equals(etag)) {
+                return FileChannel.open(entry.file());
+            }
+            remove(objectName, entry);
+            staleEvictions.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Start copying a version of an object to disk, unless it is already being copied.
+     *
+     * @return completes once the copy is in the cache, or failed.
+     */
+    private CompletableFuture<Void> fill(String objectName, String etag, ObjectLoader loader) {
+        Version version = new Version(objectName, etag);
+        CompletableFuture<Void> fill = new CompletableFuture<>();
+        CompletableFuture<Void> running = fills.putIfAbsent(version, fill);
+        if (running != null) {
+            return running;
+        }
+        try {
+            fillExecutor.execute(() -> {
+                try {
+                    load(objectName, etag, loader);
+                    fill.complete(null);
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Could not cache {}: {}", objectName, e.getMessage());
+                    fill.completeExceptionally(e);
+                } finally {
+                    fills.remove(version, fill);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fills.remove(version, fill);
+            fill.completeExceptionally(e);
+        }
+        return fill;
+    }
+
+    private static void await(String objectName, CompletableFuture<Void> fill) throws IOException {
+        try {
+            fill.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (!(e.getCause() instanceof RejectedExecutionException)) {
+                throw new IOException("Error caching " + objectName, e.getCause());
+            }
+            // too many copies waiting, read from MinIO instead
+        }
+    }
+
+    private static InputStream openObject(String objectName, ObjectLoader loader, long offset, long length) throws IOException {
+        try {
+            return loader.open(offset, length);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error reading " + objectName + " from MinIO", e);
+        }
+    }
+
+    private void load(String objectName, String etag, ObjectLoader loader) throws IOException {
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, "load-", ".tmp");
+        long size;
+        try (InputStream in = openObject(objectName, loader, 0, -1)) {
+            size = Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Path file = directory.resolve(UUID.randomUUID().toString());
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        LOG.debug("Cached {} ({} bytes) as {}", objectName, size, file.getFileName());
+
+        synchronized (entries) {
+            Entry previous = entries.put(objectName, new Entry(etag, file, size));
+            if (previous != null) {
+                // loaded concurrently, or replaced by a newer version
+                totalSize -= previous.size();
+                delete(previous.file());
+            }
+            totalSize += size;
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (
+            (totalSize > properties.getMaxSize().toBytes() || entries.size() > properties.getMaxEntries()) && eldest.hasNext()
+        ) {
+            Entry entry = eldest.next().getValue();
+            eldest.remove();
+            totalSize -= entry.size();
+            delete(entry.file());
+            capacityEvictions.increment();
+        }
+    }
+
+    private void remove(String objectName, Entry entry) {
+        entries.remove(objectName);
+        totalSize -= entry.size();
+        delete(entry.file());
+    }
+
+    private void clear() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(ObjectDiskCache::delete);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not clear object cache " + directory, e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            // open channels keep reading the deleted file
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Could not delete cached object {}", file, e);
+        }
+    }
+
+    /**
+     * Bytes {@code [position, end)} of a file, closing it once read.
+     */
+    private static class FileRangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+
+        private long position;
+
+        private final long end;
+
+        FileRangeInputStream(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
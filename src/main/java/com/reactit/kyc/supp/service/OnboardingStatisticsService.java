@@ -0,0 +1,203 @@
+package com.reactit.kyc.supp.service;
+
+import com.reactit.kyc.supp.domain.CustomerOnboardingDay;
+import com.reactit.kyc.supp.domain.KycStatusCounter;
+import com.reactit.kyc.supp.repository.CustomerOnboardingDayRepository;
+import com.reactit.kyc.supp.repository.PartnerRepository;
+import com.reactit.kyc.supp.service.dto.OnboardingCountDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the number of customers created per day in {@code customer_onboarding_day}, so that onboarding charts read
+ * one row per day and partner instead of scanning customers.
+ * <p>
+ * Days are updated in the transaction saving the customer, one row per day and partner so that customers of different
+ * partners onboarded at the same time do not wait for each other, and recounted along with the KYC status counters, on
+ * {@code application.dashboard.counter-reconciliation-cron}.
+ */
+@Service
+public class OnboardingStatisticsService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OnboardingStatisticsService.class);
+
+    /**
+     * The periods customers can be counted over; weeks start on Monday.
+     */
+    public enum Interval {
+        DAY,
+        WEEK,
+        MONTH;
+
+        LocalDate start(LocalDate day) {
+            return switch (this) {
+                case DAY -> day;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> day.withDayOfMonth(1);
+            };
+        }
+
+        LocalDate next(LocalDate start) {
+            return switch (this) {
+                case DAY -> start.plusDays(1);
+                case WEEK -> start.plusWeeks(1);
+                case MONTH -> start.plusMonths(1);
+            };
+        }
+    }
+
+    /**
+     * The order of the primary key of {@code customer_onboarding_day}, {@code (day, partner_id)}.
+     */
+    private static final Comparator<CustomerOnboardingDay.Key> KEY_ORDER = Comparator.comparing(CustomerOnboardingDay.Key::getDay)
+        .thenComparing(CustomerOnboardingDay.Key::getPartnerId);
+
+    private final CustomerOnboardingDayRepository customerOnboardingDayRepository;
+
+    private final PartnerRepository partnerRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter drift;
+
+    public OnboardingStatisticsService(
+        CustomerOnboardingDayRepository customerOnboardingDayRepository,
+        PartnerRepository partnerRepository,
+        TransactionTemplate transactionTemplate,
+        MeterRegistry meterRegistry
+    ) {
+        this.customerOnboardingDayRepository = customerOnboardingDayRepository;
+        this.partnerRepository = partnerRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.drift = Counter.builder("kyc.customers.onboarding.counter.drift")
+            .description("Customers counted on the wrong day, as found by the recount")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Move a customer between days, in the transaction saving the customer.
+     *
+     * @param before the row the customer was counted in, {@code null} for a new customer.
+     * @param after the row the customer is now counted in, {@code null} for a deleted customer.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void customerChanged(CustomerOnboardingDay.Key before, CustomerOnboardingDay.Key after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        // rows are locked in key order, as status counters are
+        if (before != null && after != null && KEY_ORDER.compare(after, before) < 0) {
+            add(after, 1);
+            add(before, -1);
+            return;
+        }
+        if (before != null) {
+            add(before, -1);
+        }
+        if (after != null) {
+            add(after, 1);
+        }
+    }
+
+    private void add(CustomerOnboardingDay.Key key, long delta) {
+        customerOnboardingDayRepository.add(key.getDay(), key.getPartnerId(), delta);
+    }
+
+    /**
+     * Count the customers created in each period between two days, periods without customers included.
+     *
+     * @param interval the length of the periods.
+     * @param from the first day, counted from the start of its period.
+     * @param to the last day, included.
+     * @return the number of customers per period, oldest first.
+     */
+    @Transactional(readOnly = true)
+    public List<OnboardingCountDTO> getOnboardingCounts(Interval interval, LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> counts = new TreeMap<>();
+        for (LocalDate start = interval.start(from); !start.isAfter(to); start = interval.next(start)) {
+            counts.put(start, 0L);
+        }
+        for (OnboardingCountDTO day : customerOnboardingDayRepository.sumByDayBetween(interval.start(from), to)) {
+            counts.merge(interval.start(day.getPeriodStart()), day.getCustomers(), Long::sum);
+        }
+        List<OnboardingCountDTO> result = new ArrayList<>(counts.size());
+        counts.forEach((start, customers) -> result.add(new OnboardingCountDTO(start, customers)));
+        return result;
+    }
+
+    /**
+     * Recount customers per day and correct the days that drifted, one partner at a time.
+     * <p>
+     * Each partner is recounted in a transaction of its own, which locks the days of that partner only, as status counters
+     * are recounted.
+     *
+     * @return the number of customers that were counted on the wrong day.
+     */
+    @Scheduled(cron = "${application.dashboard.counter-reconciliation-cron:0 0 3 * * *}")
+    public long reconcile() {
+        Set<Long> partnerIds = new TreeSet<>(partnerRepository.findAllIds());
+        partnerIds.addAll(customerOnboardingDayRepository.findPartnerIds());
+        partnerIds.add(KycStatusCounter.NO_PARTNER);
+        long drifted = 0;
+        for (Long partnerId : partnerIds) {
+            // the days to recount, read before locking: days counted so far and days with customers
+            Set<CustomerOnboardingDay.Key> keys = new TreeSet<>(KEY_ORDER);
+            customerOnboardingDayRepository.findByKeyPartnerId(partnerId).forEach(day -> keys.add(day.getKey()));
+            customerOnboardingDayRepository.countCustomersOfPartner(partnerId).forEach(count -> keys.add(count.getKey()));
+            drifted += Objects.requireNonNull(transactionTemplate.execute(transaction -> reconcile(partnerId, keys)));
+        }
+        drift.increment(drifted);
+        LOG.debug("Recounted customers of {} partners, {} miscounted", partnerIds.size(), drifted);
+        return drifted;
+    }
+
+    private long reconcile(long partnerId, Set<CustomerOnboardingDay.Key> keys) {
+        // create and lock the days, in key order: customers saved from now on wait for the recount, and those saved before
+        // are committed, so seen by the count; days first used since are right, and left to the next recount
+        keys.forEach(key -> add(key, 0));
+        Map<CustomerOnboardingDay.Key, Long> actual = new HashMap<>();
+        for (CustomerOnboardingDay count : customerOnboardingDayRepository.countCustomersOfPartner(partnerId)) {
+            actual.put(count.getKey(), count.getCustomerCount());
+        }
+
+        long drifted = 0;
+        for (CustomerOnboardingDay day : customerOnboardingDayRepository.findByKeyPartnerId(partnerId)) {
+            if (!keys.contains(day.getKey())) {
+                continue;
+            }
+            long expected = actual.getOrDefault(day.getKey(), 0L);
+            long counted = day.getCustomerCount();
+            if (counted != expected) {
+                LOG.warn(
+                    "Customers of partner {} created on {} were {} instead of {}, corrected",
+                    partnerId,
+                    day.getKey().getDay(),
+                    counted,
+                    expected
+                );
+                drifted += Math.abs(counted - expected);
+                day.setCustomerCount(expected);
+            }
+        }
+        return drifted;
+    }
+}
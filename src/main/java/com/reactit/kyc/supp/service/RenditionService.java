@@ -0,0 +1,237 @@
+package com.reactit.kyc.supp.service;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.minio.StatObjectResponse;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Generates downscaled JPEG renditions of uploaded images and stores them in MinIO next to the original, under
+ * {@code renditions/<rendition>/<object name>.jpg}.
+ * <p>
+ * Renditions are queued on upload and otherwise generated on first request, on the bounded {@code renditionExecutor}; a
+ * rendition requested while it is being generated waits for the same generation.
+ */
+@Service
+public class RenditionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RenditionService.class);
+
+    static final String OBJECT_PREFIX = "renditions/";
+
+    private static final String CONTENT_TYPE = "image/jpeg";
+
+    public enum Rendition {
+        THUMBNAIL,
+        PREVIEW;
+
+        /**
+         * @param name the rendition name, as in URLs.
+         * @return the rendition, or empty if there is no such rendition.
+         */
+        public static Optional<Rendition> of(String name) {
+            for (Rendition rendition : values()) {
+                if (rendition.getName().equals(name)) {
+                    return Optional.of(rendition);
+                }
+            }
+            return Optional.empty();
+        }
+
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * @param objectName the original object.
+         * @return the object the rendition of the original is stored as.
+         */
+        public String objectName(String objectName) {
+            return OBJECT_PREFIX + getName() + "/" + objectName + ".jpg";
+        }
+    }
+
+    private final MinioService minioService;
+
+    private final TaskExecutor renditionExecutor;
+
+    private final ApplicationProperties.Storage.Renditions properties;
+
+    private final Map<String, CompletableFuture<Boolean>> inProgress = new ConcurrentHashMap<>();
+
+    public RenditionService(
+        MinioService minioService,
+        @Qualifier("renditionExecutor") TaskExecutor renditionExecutor,
+        ApplicationProperties applicationProperties
+    ) {
+        this.minioService = minioService;
+        this.renditionExecutor = renditionExecutor;
+        this.properties = applicationProperties.getStorage().getRenditions();
+    }
+
+    /**
+     * Queue the generation of every rendition of a freshly uploaded object; renditions that cannot be queued are generated on
+     * first request instead.
+     *
+     * @param objectName the uploaded object.
+     */
+    public void prepare(String objectName) {
+        for (Rendition rendition : Rendition.values()) {
+            try {
+                generate(objectName, rendition);
+            } catch (RejectedExecutionException e) {
+                LOG.debug("Rendition queue full, {} of {} left for its first request", rendition.getName(), objectName);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Generate a rendition, unless it is already being generated.
+     *
+     * @param objectName the original object.
+     * @param rendition the rendition.
+     * @return completes with {@code true} once the rendition is stored, or {@code false} if the original is not an image.
+     * @throws RejectedExecutionException if the rendition queue is full.
+     */
+    public CompletableFuture<Boolean> generate(String objectName, Rendition rendition) {
+        if (objectName.startsWith(OBJECT_PREFIX)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String renditionName = rendition.objectName(objectName);
+        CompletableFuture<Boolean> created = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = inProgress.putIfAbsent(renditionName, created);
+        if (running != null) {
+            return running;
+        }
+        try {
+            renditionExecutor.execute(() -> {
+                try {
+                    created.complete(render(objectName, rendition));
+                } catch (Exception e) {
+                    LOG.warn("Could not generate the {} of {}", rendition.getName(), objectName, e);
+                    created.completeExceptionally(e);
+                } finally {
+                    inProgress.remove(renditionName, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inProgress.remove(renditionName, created);
+            throw e;
+        }
+        return created;
+    }
+
+    /**
+     * Wait for a rendition, generating it if needed.
+     *
+     * @param objectName the original object.
+     * @param rendition the rendition.
+     * @return {@code true} once the rendition is stored, or {@code false} if the original is not an image.
+     * @throws RenditionUnavailableException if the rendition could not be generated in time.
+     */
+    public boolean await(String objectName, Rendition rendition) {
+        try {
+            return generate(objectName, rendition).get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException | TimeoutException e) {
+            throw new RenditionUnavailableException("The " + rendition.getName() + " of " + objectName + " is not ready", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RenditionUnavailableException("Interrupted while generating the " + rendition.getName() + " of " + objectName, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not generate the " + rendition.getName() + " of " + objectName, e.getCause());
+        }
+    }
+
+    private boolean render(String objectName, Rendition rendition) throws IOException {
+        String renditionName = rendition.objectName(objectName);
+        if (minioService.findObject(renditionName).isPresent()) {
+            return true;
+        }
+        Optional<StatObjectResponse> original = minioService.findObject(objectName);
+        if (original.isEmpty() || original.get().contentType() == null || !original.get().contentType().startsWith("image/")) {
+            return false;
+        }
+
+        int size = rendition == Rendition.THUMBNAIL ? properties.getThumbnailSize() : properties.getPreviewSize();
+        BufferedImage image;
+        try (InputStream in = minioService.getObject(objectName)) {
+            // subsampled while decoding to twice the target, smoothed down from there
+            image = new DocumentImagePreprocessor(2 * size).load(in).image();
+        } catch (IOException e) {
+            LOG.debug("No {} for {}, not a decodable image: {}", rendition.getName(), objectName, e.getMessage());
+            return false;
+        }
+        byte[] jpeg = encode(scale(image, size), properties.getQuality());
+        minioService.putObject(renditionName, jpeg, CONTENT_TYPE);
+        LOG.debug("Stored the {} of {} ({} bytes)", rendition.getName(), objectName, jpeg.length);
+        return true;
+    }
+
+    /**
+     * Scale an image so that its longest side is at most {@code size} pixels.
+     */
+    static BufferedImage scale(BufferedImage image, int size) {
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        if (longest <= size) {
+            return image;
+        }
+        int width = Math.max(1, Math.round((float) image.getWidth() * size / longest));
+        int height = Math.max(1, Math.round((float) image.getHeight() * size / longest));
+        BufferedImage scaled = new BufferedImage(width, height, image.getType());
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Encode an image as JPEG, without any metadata.
+     *
+     * @param quality the JPEG quality, from 0 to 1.
+     */
+    static byte[] encode(BufferedImage image, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType(CONTENT_TYPE);
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
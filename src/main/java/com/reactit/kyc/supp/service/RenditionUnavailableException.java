@@ -0,0 +1,17 @@
+package com.reactit.kyc.supp.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a missing rendition cannot be generated in time, because the rendition queue is full or busy.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Rendition is being generated")
+public class RenditionUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RenditionUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,151 @@
+package com.reactit.kyc.supp.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * A {@code multipart/form-data} request body whose parts are streamed straight from their source.
+ * <p>
+ * Every part has a known size, so the full body length is computed up front and sent as {@code Content-Length}
+ * instead of chunking. Part content is copied through a single fixed-size buffer and is never materialised on the heap,
+ * which keeps memory per request constant whatever the size of the uploaded images.
+ */
+public class StreamingMultipartBody implements RequestCallback, StreamingHttpOutputMessage.Body {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    private static final byte[] DASH_DASH = { '-', '-' };
+
+    private final List<Part> parts;
+
+    private final byte[] boundary;
+
+    private final List<byte[]> partHeaders = new ArrayList<>();
+
+    private final long contentLength;
+
+    public StreamingMultipartBody(List<Part> parts) {
+        this.parts = List.copyOf(parts);
+        this.boundary = MimeTypeUtils.generateMultipartBoundary();
+        long length = 0;
+        for (Part part : this.parts) {
+            byte[] headers = part.headers();
+            partHeaders.add(headers);
+            length += DASH_DASH.length + boundary.length + CRLF.length + headers.length + CRLF.length + part.size() + CRLF.length;
+        }
+        this.contentLength = length + DASH_DASH.length + boundary.length + DASH_DASH.length + CRLF.length;
+    }
+
+    public MediaType getContentType() {
+        return new MediaType(MediaType.MULTIPART_FORM_DATA, Map.of("boundary", new String(boundary, StandardCharsets.US_ASCII)));
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void doWithRequest(ClientHttpRequest request) throws IOException {
+        request.getHeaders().setContentType(getContentType());
+        request.getHeaders().setContentLength(contentLength);
+        if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+            streamingRequest.setBody(this);
+        } else {
+            writeTo(request.getBody());
+        }
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int i = 0; i < parts.size(); i++) {
+            Part part = parts.get(i);
+            outputStream.write(DASH_DASH);
+            outputStream.write(boundary);
+            outputStream.write(CRLF);
+            outputStream.write(partHeaders.get(i));
+            outputStream.write(CRLF);
+            try (InputStream inputStream = part.content().getInputStream()) {
+                copyExactly(inputStream, outputStream, part.size(), buffer, part.name());
+            }
+            outputStream.write(CRLF);
+        }
+        outputStream.write(DASH_DASH);
+        outputStream.write(boundary);
+        outputStream.write(DASH_DASH);
+        outputStream.write(CRLF);
+        outputStream.flush();
+    }
+
+    @Override
+    public boolean repeatable() {
+        return true;
+    }
+
+    private static void copyExactly(InputStream in, OutputStream out, long size, byte[] buffer, String partName) throws IOException {
+        long remaining = size;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new IOException("Part '" + partName + "' ended " + remaining + " bytes before its declared size of " + size);
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+        if (in.read() != -1) {
+            throw new IOException("Part '" + partName + "' is longer than its declared size of " + size);
+        }
+    }
+
+    /**
+     * A single form field holding a file.
+     *
+     * @param name the form field name.
+     * @param filename the file name announced to the receiver.
+     * @param contentType the part content type, {@code application/octet-stream} when unknown.
+     * @param size the exact number of bytes {@code content} provides.
+     * @param content the source of the part bytes, opened once per write.
+     * @param contentHash the hex SHA-256 of the part bytes when already known, {@code null} otherwise.
+     */
+    public record Part(String name, String filename, String contentType, long size, InputStreamSource content, String contentHash) {
+        public Part(String name, String filename, String contentType, long size, InputStreamSource content) {
+            this(name, filename, contentType, size, content, null);
+        }
+
+        public static Part of(String name, MultipartFile file) {
+            return new Part(name, file.getOriginalFilename(), file.getContentType(), file.getSize(), file);
+        }
+
+        byte[] headers() {
+            StringBuilder headers = new StringBuilder("Content-Disposition: form-data; name=\"").append(escape(name)).append('"');
+            if (filename != null) {
+                headers.append("; filename=\"").append(escape(filename)).append('"');
+            }
+            headers
+                .append("\r\nContent-Type: ")
+                .append(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE)
+                .append("\r\nContent-Length: ")
+                .append(size)
+                .append("\r\n");
+            return headers.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static String escape(String value) {
+            return value.replace("\"", "%22").replace("\r", "%0D").replace("\n", "%0A");
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.reactit.kyc.supp.service;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Checks uploaded files against the per-type limits of {@code application.storage.upload}, from their first bytes and
+ * before anything is sent to MinIO.
+ * <p>
+ * The type is sniffed from the magic bytes, whatever the client declared, and the dimensions of images are read from
+ * their headers (PNG {@code IHDR}, JPEG start of frame) without decoding any pixel. The content is then handed on as a
+ * stream that fails as soon as it grows past the size limit of its type, so a file sent without a length is cut early
+ * too.
+ */
+@Service
+public class UploadValidator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UploadValidator.class);
+
+    /**
+     * Most bytes read ahead to find the type and dimensions, enough for EXIF and ICC segments before a JPEG frame header.
+     */
+    static final int HEADER_LIMIT = 512 * 1024;
+
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    private static final byte[] PDF_SIGNATURE = { '%', 'P', 'D', 'F', '-' };
+
+    private static final byte[] EBML_SIGNATURE = { 0x1A, 0x45, (byte) 0xDF, (byte) 0xA3 };
+
+    private static final byte[] FTYP = { 'f', 't', 'y', 'p' };
+
+    private final Map<String, ApplicationProperties.Storage.Upload.Limits> limits;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * An upload that passed the checks.
+     *
+     * @param contentType the sniffed type, to store the file with.
+     * @param size the declared size, or -1 if unknown.
+     * @param width the width of an image, 0 for other files.
+     * @param height the height of an image, 0 for other files.
+     * @param content the whole file, failing with an {@link InvalidDocumentUploadException} past the size limit.
+     */
+    public record ValidatedUpload(String contentType, long size, int width, int height, InputStream content) {}
+
+    public UploadValidator(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.limits = applicationProperties.getStorage().getUpload().getTypes();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Check an upload from its first bytes.
+     *
+     * @param in the uploaded content, read from its start.
+     * @param size the size the client declared, or -1 if unknown.
+     * @return the upload, its content still to be read from the start.
+     * @throws InvalidDocumentUploadException if the type is not accepted, or the file is too large or too wide.
+     * @throws IOException if the content could not be read.
+     */
+    public ValidatedUpload validate(InputStream in, long size) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 16 * 1024);
+        buffered.mark(HEADER_LIMIT);
+        DataInputStream header = new DataInputStream(new HeaderInputStream(buffered));
+
+        byte[] magic = header.readNBytes(12);
+        String contentType = sniff(magic);
+        ApplicationProperties.Storage.Upload.Limits typeLimits = contentType == null ? null : limits.get(contentType);
+        if (typeLimits == null) {
+            throw reject("type", "File type not accepted" + (contentType == null ? "" : ": " + contentType));
+        }
+        long maxSize = typeLimits.getMaxSize().toBytes();
+        if (size > maxSize) {
+            throw reject("size", contentType + " larger than " + typeLimits.getMaxSize());
+        }
+
+        int[] dimensions = { 0, 0 };
+        try {
+            if ("image/png".equals(contentType)) {
+                dimensions = pngDimensions(magic, header);
+            } else if ("image/jpeg".equals(contentType)) {
+                dimensions = jpegDimensions(magic, header);
+            }
+        } catch (EOFException e) {
+            throw reject("corrupt", "Truncated " + contentType + " header");
+        }
+        int width = dimensions[0];
+        int height = dimensions[1];
+        if (
+            (typeLimits.getMaxWidth() > 0 && width > typeLimits.getMaxWidth()) ||
+            (typeLimits.getMaxHeight() > 0 && height > typeLimits.getMaxHeight())
+        ) {
+            throw reject(
+                "dimensions",
+                "Image of " + width + "x" + height + " larger than " + typeLimits.getMaxWidth() + "x" + typeLimits.getMaxHeight()
+            );
+        }
+
+        buffered.reset();
+        LOG.debug("Accepted upload of {} ({}x{}, {} bytes)", contentType, width, height, size);
+        return new ValidatedUpload(contentType, size, width, height, new SizeLimitedInputStream(buffered, maxSize, contentType));
+    }
+
+    /**
+     * @return the type of a file from its first 12 bytes, or {@code null} if unknown.
+     */
+    static String sniff(byte[] magic) {
+        if (magic.length >= 3 && (magic[0] & 0xFF) == 0xFF && (magic[1] & 0xFF) == 0xD8 && (magic[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (startsWith(magic, 0, PNG_SIGNATURE)) {
+            return "image/png";
+        }
+        if (startsWith(magic, 0, PDF_SIGNATURE)) {
+            return "application/pdf";
+        }
+        if (startsWith(magic, 4, FTYP)) {
+            return "video/mp4";
+        }
+        if (startsWith(magic, 0, EBML_SIGNATURE)) {
+            return "video/webm";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+        return bytes.length >= offset + prefix.length && Arrays.equals(bytes, offset, offset + prefix.length, prefix, 0, prefix.length);
+    }
+
+    private int[] pngDimensions(byte[] magic, DataInputStream header) throws IOException {
+        // signature (8), then the IHDR chunk: length (4), "IHDR" (4), width (4), height (4)
+        byte[] chunkType = new byte[4];
+        header.readFully(chunkType);
+        if (!"IHDR".equals(new String(chunkType, StandardCharsets.US_ASCII)) || magic[11] != 13) {
+            throw reject("corrupt", "PNG without an IHDR chunk");
+        }
+        return new int[] { header.readInt(), header.readInt() };
+    }
+
+    private int[] jpegDimensions(byte[] magic, DataInputStream header) throws IOException {
+        // SOI (2) was sniffed, walk the marker segments from the first one up to a start of frame
+        PushbackBytes bytes = new PushbackBytes(magic, 2, header);
+        while (true) {
+            if (bytes.read() != 0xFF) {
+                throw reject("corrupt", "Malformed JPEG marker");
+            }
+            int marker;
+            do {
+                marker = bytes.read();
+            } while (marker == 0xFF);
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                throw reject("corrupt", "JPEG without a frame header");
+            }
+            int length = bytes.readUnsignedShort();
+            if (length < 2) {
+                throw reject("corrupt", "Malformed JPEG segment");
+            }
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                bytes.read(); // sample precision
+                int height = bytes.readUnsignedShort();
+                int width = bytes.readUnsignedShort();
+                return new int[] { width, height };
+            }
+            bytes.skip(length - 2);
+        }
+    }
+
+    private InvalidDocumentUploadException reject(String reason, String message) {
+        Counter.builder("kyc.storage.upload.rejected").tag("reason", reason).register(meterRegistry).increment();
+        return new InvalidDocumentUploadException(message);
+    }
+
+    /**
+     * The sniffed bytes followed by the rest of the header.
+     */
+    private static final class PushbackBytes {
+
+        private final byte[] head;
+
+        private int position;
+
+        private final DataInputStream rest;
+
+        PushbackBytes(byte[] head, int position, DataInputStream rest) {
+            this.head = head;
+            this.position = position;
+            this.rest = rest;
+        }
+
+        int read() throws IOException {
+            return position < head.length ? head[position++] & 0xFF : rest.readUnsignedByte();
+        }
+
+        int readUnsignedShort() throws IOException {
+            return (read() << 8) | read();
+        }
+
+        void skip(int count) throws IOException {
+            int fromHead = Math.min(count, head.length - position);
+            position += fromHead;
+            rest.skipNBytes(count - fromHead);
+        }
+    }
+
+    /**
+     * Refuses to read past {@link #HEADER_LIMIT}, the mark the content is reset to once checked.
+     */
+    private final class HeaderInputStream extends FilterInputStream {
+
+        private long read;
+
+        HeaderInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            check(1);
+            int b = super.read();
+            read += b < 0 ? 0 : 1;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            check(len);
+            int count = super.read(b, off, len);
+            read += Math.max(count, 0);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            check(n);
+            long count = super.skip(n);
+            read += count;
+            return count;
+        }
+
+        private void check(long count) {
+            if (read + count > HEADER_LIMIT) {
+                throw reject("corrupt", "No image header in the first " + HEADER_LIMIT + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Fails as soon as more than the size limit of the upload type was read.
+     */
+    private final class SizeLimitedInputStream extends FilterInputStream {
+
+        private final long maxSize;
+
+        private final String contentType;
+
+        private long read;
+
+        SizeLimitedInputStream(InputStream in, long maxSize, String contentType) {
+            super(in);
+            this.maxSize = maxSize;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                count(count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long count = super.skip(n);
+            count(count);
+            return count;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long count) {
+            read += count;
+            if (read > maxSize) {
+                throw reject("size", contentType + " larger than " + maxSize + " bytes");
+            }
+        }
+    }
+}
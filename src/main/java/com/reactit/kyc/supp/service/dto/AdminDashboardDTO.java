@@ -5,14 +5,23 @@ import java.util.List;
 public class AdminDashboardDTO {
 
     private List<CustomerDocumentCountDTO> customerDocumentCounts;
+    private List<DocumentCountBucketDTO> documentCountDistribution;
     private CustomerInfoDTO customerInfo;
     private MailStatsDTO mailStats;
     private Long countFaceMatch;
 
     private Integer totalUsers;
 
-    public AdminDashboardDTO(List<CustomerDocumentCountDTO> customerDocumentCounts, CustomerInfoDTO customerInfo, MailStatsDTO mailStats, Long countFaceMatch, Integer totalUsers) {
+    public AdminDashboardDTO(
+        List<CustomerDocumentCountDTO> customerDocumentCounts,
+        List<DocumentCountBucketDTO> documentCountDistribution,
+        CustomerInfoDTO customerInfo,
+        MailStatsDTO mailStats,
+        Long countFaceMatch,
+        Integer totalUsers
+    ) {
         this.customerDocumentCounts = customerDocumentCounts;
+        this.documentCountDistribution = documentCountDistribution;
         this.customerInfo = customerInfo;
         this.mailStats = mailStats;
         this.countFaceMatch = countFaceMatch;
@@ -22,6 +31,11 @@ public class AdminDashboardDTO {
     public List<CustomerDocumentCountDTO> getCustomerDocumentCounts() {
         return customerDocumentCounts;
     }
+
+    public List<DocumentCountBucketDTO> getDocumentCountDistribution() {
+        return documentCountDistribution;
+    }
+
     public CustomerInfoDTO getCustomerInfo() {
         return customerInfo;
     }
@@ -0,0 +1,77 @@
+package com.reactit.kyc.supp.service.dto;
+
+import java.time.Instant;
+
+/**
+ * How the dashboard figures changed between two snapshots.
+ */
+public class DashboardChangesDTO {
+
+    private Instant since;
+    private Instant until;
+    private Long totalCustomers;
+    private Long pendingCustomers;
+    private Long verifiedCustomers;
+    private Long rejectedCustomers;
+    private Long emailsSent;
+    private Long faceMatches;
+    private Long users;
+
+    public DashboardChangesDTO(
+        Instant since,
+        Instant until,
+        Long totalCustomers,
+        Long pendingCustomers,
+        Long verifiedCustomers,
+        Long rejectedCustomers,
+        Long emailsSent,
+        Long faceMatches,
+        Long users
+    ) {
+        this.since = since;
+        this.until = until;
+        this.totalCustomers = totalCustomers;
+        this.pendingCustomers = pendingCustomers;
+        this.verifiedCustomers = verifiedCustomers;
+        this.rejectedCustomers = rejectedCustomers;
+        this.emailsSent = emailsSent;
+        this.faceMatches = faceMatches;
+        this.users = users;
+    }
+
+    public Instant getSince() {
+        return since;
+    }
+
+    public Instant getUntil() {
+        return until;
+    }
+
+    public Long getTotalCustomers() {
+        return totalCustomers;
+    }
+
+    public Long getPendingCustomers() {
+        return pendingCustomers;
+    }
+
+    public Long getVerifiedCustomers() {
+        return verifiedCustomers;
+    }
+
+    public Long getRejectedCustomers() {
+        return rejectedCustomers;
+    }
+
+    public Long getEmailsSent() {
+        return emailsSent;
+    }
+
+    public Long getFaceMatches() {
+        return faceMatches;
+    }
+
+    public Long getUsers() {
+        return users;
+    }
+}
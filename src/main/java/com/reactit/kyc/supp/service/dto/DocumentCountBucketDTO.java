@@ -0,0 +1,31 @@
+package com.reactit.kyc.supp.service.dto;
+
+import com.reactit.kyc.supp.domain.enumeration.KycStatus;
+
+/**
+ * The number of customers in a KYC status having a given number of documents.
+ */
+public class DocumentCountBucketDTO {
+
+    private Long documentCount;
+    private KycStatus kycStatus;
+    private Long customers;
+
+    public DocumentCountBucketDTO(Long documentCount, KycStatus kycStatus, Long customers) {
+        this.documentCount = documentCount;
+        this.kycStatus = kycStatus;
+        this.customers = customers;
+    }
+
+    public Long getDocumentCount() {
+        return documentCount;
+    }
+
+    public KycStatus getKycStatus() {
+        return kycStatus;
+    }
+
+    public Long getCustomers() {
+        return customers;
+    }
+}
@@ -0,0 +1,15 @@
+package com.reactit.kyc.supp.service.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A presigned form the browser posts the file to, as {@code multipart/form-data} with the fields in order and the file last.
+ *
+ * @param objectName the name the file is stored under, to pass when finalizing the upload.
+ * @param url the URL to post the form to.
+ * @param formData the form fields.
+ * @param expiresAt when the form stops being accepted.
+ */
+public record DocumentUploadDTO(String objectName, String url, Map<String, String> formData, Instant expiresAt) implements Serializable {}
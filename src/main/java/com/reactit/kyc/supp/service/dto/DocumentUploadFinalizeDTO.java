@@ -0,0 +1,12 @@
+package com.reactit.kyc.supp.service.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import java.io.Serializable;
+
+/**
+ * Registers a file uploaded straight to the storage as a document.
+ *
+ * @param objectName the object name returned with the presigned form.
+ * @param customerId the customer the document belongs to, if any.
+ */
+public record DocumentUploadFinalizeDTO(@NotBlank String objectName, Long customerId) implements Serializable {}
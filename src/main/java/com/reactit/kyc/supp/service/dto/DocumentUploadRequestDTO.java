@@ -0,0 +1,14 @@
+package com.reactit.kyc.supp.service.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+
+/**
+ * A request to upload a document straight to the storage.
+ *
+ * @param contentType the content type of the file.
+ * @param size the size of the file, in bytes.
+ */
+public record DocumentUploadRequestDTO(@NotBlank String contentType, @NotNull @Min(1) Long size) implements Serializable {}
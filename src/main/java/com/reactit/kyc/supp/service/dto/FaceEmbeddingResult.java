@@ -0,0 +1,14 @@
+package com.reactit.kyc.supp.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.List;
+
+/**
+ * The face embedding of one image returned by the face-verification sidecar.
+ *
+ * @param model the model that computed the embedding.
+ * @param embedding the embedding vector, {@code null} when the image could not be processed.
+ * @param error the error raised by the sidecar, if any.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record FaceEmbeddingResult(String model, List<Double> embedding, String error) {}
@@ -0,0 +1,150 @@
+package com.reactit.kyc.supp.service.dto;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of a face-match re-screening batch.
+ */
+public class FaceMatchBatchDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+    }
+
+    private String batchId;
+
+    private Status status;
+
+    private long total;
+
+    private long processed;
+
+    private long succeeded;
+
+    private long failed;
+
+    private List<Long> missingIds = new ArrayList<>();
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    private String error;
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(long succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * @return the requested face matches that do not exist, they are counted as processed and failed.
+     */
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    /**
+     * @return the average number of pairs processed per second since the batch started.
+     */
+    public double getThroughputPerSecond() {
+        if (startedAt == null) {
+            return 0;
+        }
+        long millis = Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis();
+        return millis > 0 ? processed * 1000.0 / millis : 0;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "FaceMatchBatchDTO{" +
+            "batchId='" + getBatchId() + "'" +
+            ", status='" + getStatus() + "'" +
+            ", total=" + getTotal() +
+            ", processed=" + getProcessed() +
+            ", succeeded=" + getSucceeded() +
+            ", failed=" + getFailed() +
+            ", missingIds=" + getMissingIds().size() +
+            "}";
+    }
+}
@@ -0,0 +1,77 @@
+package com.reactit.kyc.supp.service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A request to re-screen face matches in bulk.
+ * <p>
+ * Existing face matches are selected by id, or all of them with {@code all}; image pairs that have no face match yet are
+ * recorded as new face matches before being scored.
+ */
+public class FaceMatchBatchRequestDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<Long> faceMatchIds = new ArrayList<>();
+
+    @Valid
+    private List<ImagePair> pairs = new ArrayList<>();
+
+    private boolean all;
+
+    @Min(1)
+    @Max(1000)
+    private Integer batchSize;
+
+    @Min(1)
+    @Max(64)
+    private Integer parallelism;
+
+    public record ImagePair(@NotNull String selfieUrl, @NotNull String idPhotoUrl) implements Serializable {}
+
+    public List<Long> getFaceMatchIds() {
+        return faceMatchIds;
+    }
+
+    public void setFaceMatchIds(List<Long> faceMatchIds) {
+        this.faceMatchIds = faceMatchIds != null ? faceMatchIds : new ArrayList<>();
+    }
+
+    public List<ImagePair> getPairs() {
+        return pairs;
+    }
+
+    public void setPairs(List<ImagePair> pairs) {
+        this.pairs = pairs != null ? pairs : new ArrayList<>();
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    public void setAll(boolean all) {
+        this.all = all;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+}
@@ -1,5 +1,6 @@
 package com.reactit.kyc.supp.service.dto;
 
+import com.reactit.kyc.supp.domain.enumeration.FaceMatchJobStatus;
 import jakarta.validation.constraints.*;
 import java.io.Serializable;
 import java.time.Instant;
@@ -25,6 +26,12 @@ public class FaceMatchDTO implements Serializable {
 
     private Instant createdAt;
 
+    private FaceMatchJobStatus jobStatus;
+
+    private String jobError;
+
+    private Instant jobUpdatedAt;
+
     private CustomerDTO customer;
 
     public Long getId() {
@@ -75,6 +82,30 @@ public class FaceMatchDTO implements Serializable {
         this.createdAt = createdAt;
     }
 
+    public FaceMatchJobStatus getJobStatus() {
+        return jobStatus;
+    }
+
+    public void setJobStatus(FaceMatchJobStatus jobStatus) {
+        this.jobStatus = jobStatus;
+    }
+
+    public String getJobError() {
+        return jobError;
+    }
+
+    public void setJobError(String jobError) {
+        this.jobError = jobError;
+    }
+
+    public Instant getJobUpdatedAt() {
+        return jobUpdatedAt;
+    }
+
+    public void setJobUpdatedAt(Instant jobUpdatedAt) {
+        this.jobUpdatedAt = jobUpdatedAt;
+    }
+
     public CustomerDTO getCustomer() {
         return customer;
     }
@@ -114,6 +145,7 @@ public class FaceMatchDTO implements Serializable {
             ", match='" + getMatch() + "'" +
             ", score=" + getScore() +
             ", createdAt='" + getCreatedAt() + "'" +
+            ", jobStatus='" + getJobStatus() + "'" +
             ", customer=" + getCustomer() +
             "}";
     }
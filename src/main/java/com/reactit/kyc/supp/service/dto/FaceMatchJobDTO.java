@@ -0,0 +1,93 @@
+package com.reactit.kyc.supp.service.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Status of an asynchronous face-match job, the job id is the id of the {@link com.reactit.kyc.supp.domain.FaceMatch} it fills in.
+ */
+public class FaceMatchJobDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        /**
+         * The face match was not submitted as a job and has no result yet.
+         */
+        UNKNOWN,
+    }
+
+    private Long jobId;
+
+    private Status status;
+
+    private String error;
+
+    private Instant updatedAt;
+
+    private FaceMatchDTO faceMatch;
+
+    public FaceMatchJobDTO() {}
+
+    public FaceMatchJobDTO(Long jobId, Status status, String error) {
+        this.jobId = jobId;
+        this.status = status;
+        this.error = error;
+        this.updatedAt = Instant.now();
+    }
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Long jobId) {
+        this.jobId = jobId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public FaceMatchDTO getFaceMatch() {
+        return faceMatch;
+    }
+
+    public void setFaceMatch(FaceMatchDTO faceMatch) {
+        this.faceMatch = faceMatch;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "FaceMatchJobDTO{" +
+            "jobId=" + getJobId() +
+            ", status='" + getStatus() + "'" +
+            ", error='" + getError() + "'" +
+            ", updatedAt='" + getUpdatedAt() + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,14 @@
+package com.reactit.kyc.supp.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The part of the DeepFace {@code verify} response the application relies on.
+ *
+ * @param verified whether both images show the same person.
+ * @param distance the distance between both face embeddings, lower means more similar.
+ * @param threshold the distance under which DeepFace considers faces identical.
+ * @param error the error reported by the sidecar, {@code null} on success.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record FaceVerificationResult(Boolean verified, Double distance, Double threshold, String error) {}
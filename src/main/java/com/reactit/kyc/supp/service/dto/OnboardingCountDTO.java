@@ -0,0 +1,25 @@
+package com.reactit.kyc.supp.service.dto;
+
+import java.time.LocalDate;
+
+/**
+ * The number of customers created in a day, week or month.
+ */
+public class OnboardingCountDTO {
+
+    private LocalDate periodStart;
+    private Long customers;
+
+    public OnboardingCountDTO(LocalDate periodStart, Long customers) {
+        this.periodStart = periodStart;
+        this.customers = customers;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public Long getCustomers() {
+        return customers;
+    }
+}
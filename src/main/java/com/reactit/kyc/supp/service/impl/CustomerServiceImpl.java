@@ -1,8 +1,12 @@
 package com.reactit.kyc.supp.service.impl;
 
 import com.reactit.kyc.supp.domain.Customer;
+import com.reactit.kyc.supp.domain.CustomerOnboardingDay;
+import com.reactit.kyc.supp.domain.KycStatusCounter;
 import com.reactit.kyc.supp.repository.CustomerRepository;
 import com.reactit.kyc.supp.service.CustomerService;
+import com.reactit.kyc.supp.service.KycStatusCounterService;
+import com.reactit.kyc.supp.service.OnboardingStatisticsService;
 import com.reactit.kyc.supp.service.dto.CustomerDTO;
 import com.reactit.kyc.supp.service.mapper.CustomerMapper;
 import java.util.Optional;
@@ -26,9 +30,20 @@ public class CustomerServiceImpl implements CustomerService {
 
     private final CustomerMapper customerMapper;
 
-    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper) {
+    private final KycStatusCounterService kycStatusCounterService;
+
+    private final OnboardingStatisticsService onboardingStatisticsService;
+
+    public CustomerServiceImpl(
+        CustomerRepository customerRepository,
+        CustomerMapper customerMapper,
+        KycStatusCounterService kycStatusCounterService,
+        OnboardingStatisticsService onboardingStatisticsService
+    ) {
         this.customerRepository = customerRepository;
         this.customerMapper = customerMapper;
+        this.kycStatusCounterService = kycStatusCounterService;
+        this.onboardingStatisticsService = onboardingStatisticsService;
     }
 
     @Override
@@ -36,14 +51,21 @@ public class CustomerServiceImpl implements CustomerService {
         LOG.debug("Request to save Customer : {}", customerDTO);
         Customer customer = customerMapper.toEntity(customerDTO);
         customer = customerRepository.save(customer);
+        kycStatusCounterService.customerChanged(null, KycStatusCounter.Key.of(customer));
+        onboardingStatisticsService.customerChanged(null, CustomerOnboardingDay.Key.of(customer));
         return customerMapper.toDto(customer);
     }
 
     @Override
     public CustomerDTO update(CustomerDTO customerDTO) {
         LOG.debug("Request to update Customer : {}", customerDTO);
+        Optional<Customer> existingCustomer = customerRepository.findByIdForUpdate(customerDTO.getId());
+        KycStatusCounter.Key before = existingCustomer.map(KycStatusCounter.Key::of).orElse(null);
+        CustomerOnboardingDay.Key onboardedBefore = existingCustomer.map(CustomerOnboardingDay.Key::of).orElse(null);
         Customer customer = customerMapper.toEntity(customerDTO);
         customer = customerRepository.save(customer);
+        kycStatusCounterService.customerChanged(before, KycStatusCounter.Key.of(customer));
+        onboardingStatisticsService.customerChanged(onboardedBefore, CustomerOnboardingDay.Key.of(customer));
         return customerMapper.toDto(customer);
     }
 
@@ -52,13 +74,16 @@ public class CustomerServiceImpl implements CustomerService {
         LOG.debug("Request to partially update Customer : {}", customerDTO);
 
         return customerRepository
-            .findById(customerDTO.getId())
+            .findByIdForUpdate(customerDTO.getId())
             .map(existingCustomer -> {
+                KycStatusCounter.Key before = KycStatusCounter.Key.of(existingCustomer);
+                CustomerOnboardingDay.Key onboardedBefore = CustomerOnboardingDay.Key.of(existingCustomer);
                 customerMapper.partialUpdate(existingCustomer, customerDTO);
-
-                return existingCustomer;
+                Customer customer = customerRepository.save(existingCustomer);
+                kycStatusCounterService.customerChanged(before, KycStatusCounter.Key.of(customer));
+                onboardingStatisticsService.customerChanged(onboardedBefore, CustomerOnboardingDay.Key.of(customer));
+                return customer;
             })
-            .map(customerRepository::save)
             .map(customerMapper::toDto);
     }
 
@@ -79,6 +104,13 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     public void delete(Long id) {
         LOG.debug("Request to delete Customer : {}", id);
-        customerRepository.deleteById(id);
+        customerRepository
+            .findByIdForUpdate(id)
+            .ifPresent(customer -> {
+                KycStatusCounter.Key before = KycStatusCounter.Key.of(customer);
+                customerRepository.delete(customer);
+                kycStatusCounterService.customerChanged(before, null);
+                onboardingStatisticsService.customerChanged(CustomerOnboardingDay.Key.of(customer), null);
+            });
     }
 }
@@ -121,8 +121,8 @@ public class KeycloakUserServiceImpl implements KeycloakUserService {
     public Integer getUsersCount() {
         try {
             log.info("Getting user count from realm: {}", realm);
-            List<UserRepresentation> users = getUsersResource().list();
-            int count = users.size();
+            // counted by Keycloak, rather than listing every user
+            int count = getUsersResource().count();
             log.info("Total users count: {}", count);
             return count;
         } catch (Exception e) {
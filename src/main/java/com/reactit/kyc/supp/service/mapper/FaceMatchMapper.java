@@ -14,6 +14,19 @@ public interface FaceMatchMapper extends EntityMapper<FaceMatchDTO, FaceMatch> {
     @Mapping(target = "customer", source = "customer", qualifiedByName = "customerId")
     FaceMatchDTO toDto(FaceMatch s);
 
+    // the job status is only written by the face-match jobs
+    @Mapping(target = "jobStatus", ignore = true)
+    @Mapping(target = "jobError", ignore = true)
+    @Mapping(target = "jobUpdatedAt", ignore = true)
+    FaceMatch toEntity(FaceMatchDTO dto);
+
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "jobStatus", ignore = true)
+    @Mapping(target = "jobError", ignore = true)
+    @Mapping(target = "jobUpdatedAt", ignore = true)
+    void partialUpdate(@MappingTarget FaceMatch entity, FaceMatchDTO dto);
+
     @Named("customerId")
     @BeanMapping(ignoreByDefault = true)
     @Mapping(target = "id", source = "id")
@@ -1,25 +1,187 @@
 package com.reactit.kyc.supp.web.rest;
 
+import com.reactit.kyc.supp.domain.enumeration.KycStatus;
 import com.reactit.kyc.supp.service.AdminDashboardService;
+import com.reactit.kyc.supp.service.OnboardingStatisticsService;
 import com.reactit.kyc.supp.service.dto.AdminDashboardDTO;
+import com.reactit.kyc.supp.service.dto.CustomerDocumentCountDTO;
+import com.reactit.kyc.supp.service.dto.DashboardChangesDTO;
+import com.reactit.kyc.supp.service.dto.OnboardingCountDTO;
+import com.reactit.kyc.supp.web.rest.errors.BadRequestAlertException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tech.jhipster.web.util.ResponseUtil;
 
 @RestController
 @RequestMapping("/api/admin/dashboard")
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminDashboardResource {
 
+    private static final String ENTITY_NAME = "customer";
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final int MAX_ONBOARDING_DAYS = 3660;
+
+    /**
+     * When the served snapshot was computed, to the millisecond; {@code Last-Modified} only has seconds.
+     */
+    static final String COMPUTED_AT_HEADER = "X-Dashboard-Computed-At";
+
     private final AdminDashboardService dashboardService;
 
-    public AdminDashboardResource(AdminDashboardService dashboardService) {
+    private final OnboardingStatisticsService onboardingStatisticsService;
+
+    public AdminDashboardResource(AdminDashboardService dashboardService, OnboardingStatisticsService onboardingStatisticsService) {
         this.dashboardService = dashboardService;
+        this.onboardingStatisticsService = onboardingStatisticsService;
     }
 
+    /**
+     * {@code GET  /} : get the latest dashboard snapshot.
+     * <p>
+     * When it was computed is given by the {@code Last-Modified} header, and as an ISO-8601 instant by
+     * {@code X-Dashboard-Computed-At}.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the dashboard in body.
+     */
     @GetMapping
     public ResponseEntity<AdminDashboardDTO> getDashboard() {
-        return ResponseEntity.ok(dashboardService.getDashboardData());
+        return snapshot(dashboardService.getDashboard());
+    }
+
+    /**
+     * {@code POST  /refresh} : compute the dashboard now, instead of waiting for the next scheduled snapshot.
+     * <p>
+     * A snapshot computed within {@code application.dashboard.refresh-coalescing} is served instead of computing another.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the new dashboard in body.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AdminDashboardDTO> refreshDashboard() {
+        return snapshot(dashboardService.refresh());
     }
-}
 
+    /**
+     * {@code GET  /changes} : get how the dashboard figures changed since an earlier time.
+     *
+     * @param since the earlier time, the oldest snapshot kept is compared with if there is none that old.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the changes in body, or with status
+     * {@code 404 (Not Found)} if no snapshot was computed yet.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<DashboardChangesDTO> getDashboardChanges(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since
+    ) {
+        return ResponseUtil.wrapOrNotFound(dashboardService.getChanges(since));
+    }
+
+    /**
+     * {@code GET  /customer-documents} : get a page of customers with their number of documents.
+     * <p>
+     * The next page is linked from the {@code Link} header, keyed on the last customer of this page. Customers whose number
+     * of documents changes while paging may be skipped or listed twice.
+     *
+     * @param status only customers in this status.
+     * @param partnerId only customers of this partner.
+     * @param direction {@code desc} for the customers with the most documents first, {@code asc} for the fewest.
+     * @param afterCount the document count of the last customer of the previous page.
+     * @param afterId the id of the last customer of the previous page.
+     * @param size the number of customers in the page, at most {@value #MAX_PAGE_SIZE}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the customers in body.
+     */
+    @GetMapping("/customer-documents")
+    public ResponseEntity<List<CustomerDocumentCountDTO>> getCustomerDocumentCounts(
+        @RequestParam(required = false) KycStatus status,
+        @RequestParam(required = false) Long partnerId,
+        @RequestParam(defaultValue = "desc") String direction,
+        @RequestParam(required = false) Long afterCount,
+        @RequestParam(required = false) Long afterId,
+        @RequestParam(defaultValue = "20") int size
+    ) {
+        if ((afterCount == null) != (afterId == null)) {
+            throw new BadRequestAlertException("afterCount and afterId go together", ENTITY_NAME, "keyinvalid");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestAlertException("size must be between 1 and " + MAX_PAGE_SIZE, ENTITY_NAME, "sizeinvalid");
+        }
+        Sort.Direction sort;
+        try {
+            sort = Sort.Direction.fromString(direction);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("direction must be asc or desc", ENTITY_NAME, "directioninvalid");
+        }
+        List<CustomerDocumentCountDTO> page = dashboardService.getCustomerDocumentCounts(
+            status,
+            partnerId,
+            sort,
+            afterCount,
+            afterId,
+            size
+        );
+        HttpHeaders headers = new HttpHeaders();
+        if (page.size() == size) {
+            CustomerDocumentCountDTO last = page.get(page.size() - 1);
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("afterCount", last.getDocumentCount())
+                .replaceQueryParam("afterId", last.getCustomerId())
+                .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return ResponseEntity.ok().headers(headers).body(page);
+    }
+
+    /**
+     * {@code GET  /onboarding} : get the number of customers created per day, week or month.
+     *
+     * @param interval {@code day}, {@code week} or {@code month}.
+     * @param from the first day, counted from the start of its period; 30 days before {@code to} by default.
+     * @param to the last day, included; today (UTC) by default.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the counts per period in body, oldest first.
+     */
+    @GetMapping("/onboarding")
+    public ResponseEntity<List<OnboardingCountDTO>> getOnboardingCounts(
+        @RequestParam(defaultValue = "day") String interval,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        OnboardingStatisticsService.Interval period;
+        try {
+            period = OnboardingStatisticsService.Interval.valueOf(interval.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("interval must be day, week or month", ENTITY_NAME, "intervalinvalid");
+        }
+        if (to == null) {
+            to = LocalDate.now(ZoneOffset.UTC);
+        }
+        if (from == null) {
+            from = to.minusDays(30);
+        }
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) > MAX_ONBOARDING_DAYS) {
+            throw new BadRequestAlertException(
+                "from must be before to, and at most " + MAX_ONBOARDING_DAYS + " days before",
+                ENTITY_NAME,
+                "windowinvalid"
+            );
+        }
+        return ResponseEntity.ok(onboardingStatisticsService.getOnboardingCounts(period, from, to));
+    }
+
+    private static ResponseEntity<AdminDashboardDTO> snapshot(AdminDashboardService.Snapshot snapshot) {
+        return ResponseEntity.ok()
+            .lastModified(snapshot.getComputedAt())
+            .header(COMPUTED_AT_HEADER, snapshot.getComputedAt().toString())
+            .body(snapshot.getData());
+    }
+}
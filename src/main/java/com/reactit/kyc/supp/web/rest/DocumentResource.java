@@ -2,11 +2,16 @@ package com.reactit.kyc.supp.web.rest;
 
 import com.reactit.kyc.supp.repository.DocumentRepository;
 import com.reactit.kyc.supp.service.DocumentService;
+import com.reactit.kyc.supp.service.DocumentUploadService;
 import com.reactit.kyc.supp.service.MinioService;
 import com.reactit.kyc.supp.service.dto.DocumentDTO;
+import com.reactit.kyc.supp.service.dto.DocumentUploadDTO;
+import com.reactit.kyc.supp.service.dto.DocumentUploadFinalizeDTO;
+import com.reactit.kyc.supp.service.dto.DocumentUploadRequestDTO;
 import com.reactit.kyc.supp.web.rest.errors.BadRequestAlertException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -45,10 +50,18 @@ public class DocumentResource {
 
     private final MinioService minioService;
 
-    public DocumentResource(DocumentService documentService, DocumentRepository documentRepository, MinioService minioService) {
+    private final DocumentUploadService documentUploadService;
+
+    public DocumentResource(
+        DocumentService documentService,
+        DocumentRepository documentRepository,
+        MinioService minioService,
+        DocumentUploadService documentUploadService
+    ) {
         this.documentService = documentService;
         this.documentRepository = documentRepository;
         this.minioService = minioService;
+        this.documentUploadService = documentUploadService;
     }
 
     /**
@@ -70,6 +83,38 @@ public class DocumentResource {
             .body(documentDTO);
     }
 
+    /**
+     * {@code POST  /documents/uploads} : Presign the upload of a document file straight to the storage.
+     *
+     * @param request the content type and size of the file.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the form to post the file with, or with
+     * status {@code 400 (Bad Request)} if the file type is not accepted or the file is too large.
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<DocumentUploadDTO> initiateDocumentUpload(@Valid @RequestBody DocumentUploadRequestDTO request) {
+        LOG.debug("REST request to presign a Document upload : {}", request);
+        return ResponseEntity.ok(documentUploadService.initiate(request));
+    }
+
+    /**
+     * {@code POST  /documents/uploads/finalize} : Create a new document from a file uploaded straight to the storage.
+     *
+     * @param request the uploaded object and its customer.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new documentDTO, or with status
+     * {@code 400 (Bad Request)} if the object is missing or does not match the upload constraints.
+     * @throws URISyntaxException if the Location URI syntax is incorrect.
+     * @throws IOException if the uploaded object could not be read.
+     */
+    @PostMapping("/uploads/finalize")
+    public ResponseEntity<DocumentDTO> finalizeDocumentUpload(@Valid @RequestBody DocumentUploadFinalizeDTO request)
+        throws URISyntaxException, IOException {
+        LOG.debug("REST request to finalize a Document upload : {}", request);
+        DocumentDTO documentDTO = documentUploadService.finalizeUpload(request);
+        return ResponseEntity.created(new URI("/api/documents/" + documentDTO.getId()))
+            .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, documentDTO.getId().toString()))
+            .body(documentDTO);
+    }
+
     /**
      * {@code PUT  /documents/:id} : Updates an existing document.
      *
@@ -171,7 +216,7 @@ public class DocumentResource {
         LOG.debug("REST request to get file URL for Document : {}", id);
         Optional<DocumentDTO> documentDTO = documentService.findOne(id);
         return documentDTO
-            .map(doc -> ResponseEntity.ok(minioService.getPresignedUrl(doc.getFileUrl())))
+            .map(doc -> ResponseEntity.ok(minioService.getPresignedUrl(minioService.objectNameOf(doc.getFileUrl()))))
             .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
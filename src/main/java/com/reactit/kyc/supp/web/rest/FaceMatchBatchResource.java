@@ -0,0 +1,59 @@
+package com.reactit.kyc.supp.web.rest;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.service.FaceMatchBatchService;
+import com.reactit.kyc.supp.service.dto.FaceMatchBatchDTO;
+import com.reactit.kyc.supp.service.dto.FaceMatchBatchRequestDTO;
+import com.reactit.kyc.supp.web.rest.errors.BadRequestAlertException;
+import jakarta.validation.Valid;
+import java.net.URI;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller for bulk re-screening of face matches.
+ */
+@RestController
+@RequestMapping("/api/verify_face_match/batch")
+@PreAuthorize("hasRole('ADMIN')")
+public class FaceMatchBatchResource {
+
+    private final FaceMatchBatchService faceMatchBatchService;
+
+    private final int maxItems;
+
+    public FaceMatchBatchResource(FaceMatchBatchService faceMatchBatchService, ApplicationProperties applicationProperties) {
+        this.faceMatchBatchService = faceMatchBatchService;
+        this.maxItems = applicationProperties.getFaceVerification().getBatch().getMaxItems();
+    }
+
+    /**
+     * {@code POST  /verify_face_match/batch} : Queue a re-screening batch.
+     *
+     * @param request the face matches to re-screen.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and the batch progress in body,
+     * with status {@code 400 (Bad Request)} if it lists more than {@code max-items} face matches and pairs,
+     * or with status {@code 503 (Service Unavailable)} if too many batches are queued.
+     */
+    @PostMapping
+    public ResponseEntity<FaceMatchBatchDTO> submitBatch(@Valid @RequestBody FaceMatchBatchRequestDTO request) {
+        if (request.getFaceMatchIds().size() + request.getPairs().size() > maxItems) {
+            throw new BadRequestAlertException("At most " + maxItems + " face matches per batch", "faceMatch", "toomanyfacematches");
+        }
+        FaceMatchBatchDTO batch = faceMatchBatchService.submit(request);
+        return ResponseEntity.accepted().location(URI.create("/api/verify_face_match/batch/" + batch.getBatchId())).body(batch);
+    }
+
+    /**
+     * {@code GET  /verify_face_match/batch/:batchId} : Get the progress and throughput of a batch.
+     *
+     * @param batchId the batch id.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the batch progress in body, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/{batchId}")
+    public ResponseEntity<FaceMatchBatchDTO> getBatch(@PathVariable("batchId") String batchId) {
+        return ResponseUtil.wrapOrNotFound(faceMatchBatchService.findBatch(batchId));
+    }
+}
@@ -1,20 +1,31 @@
 package com.reactit.kyc.supp.web.rest;
 
+import com.reactit.kyc.supp.service.FaceMatchJobService;
 import com.reactit.kyc.supp.service.FaceVerificationService;
+import com.reactit.kyc.supp.service.InvalidCallbackUrlException;
+import com.reactit.kyc.supp.service.dto.FaceMatchJobDTO;
+import com.reactit.kyc.supp.web.rest.errors.BadRequestAlertException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import tech.jhipster.web.util.ResponseUtil;
 
 import java.io.IOException;
+import java.net.URI;
 
 @RestController
 @RequestMapping("/api")
 public class FaceVerificationResource {
 
+    private static final String ENTITY_NAME = "faceMatchJob";
+
     @Autowired
     private FaceVerificationService faceVerificationService;
 
+    @Autowired
+    private FaceMatchJobService faceMatchJobService;
+
     @PostMapping("/verify_face_match")
     public ResponseEntity<String> verifyFace(
         @RequestParam("img1") MultipartFile img1,
@@ -23,4 +34,41 @@ public class FaceVerificationResource {
         String result = faceVerificationService.verifyFaceMatch(img1, img2);
         return ResponseEntity.ok(result);
     }
+
+    /**
+     * {@code POST  /verify_face_match/jobs} : Submit a face match to be run in the background.
+     *
+     * @param img1 the selfie.
+     * @param img2 the ID document photo.
+     * @param customerId the customer the face match belongs to, optional.
+     * @param callbackUrl the URL the job status is posted to once it is done, optional.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and the pending job in body,
+     * or with status {@code 503 (Service Unavailable)} if too many jobs are queued.
+     */
+    @PostMapping("/verify_face_match/jobs")
+    public ResponseEntity<FaceMatchJobDTO> submitFaceMatchJob(
+        @RequestParam("img1") MultipartFile img1,
+        @RequestParam("img2") MultipartFile img2,
+        @RequestParam(value = "customerId", required = false) Long customerId,
+        @RequestParam(value = "callbackUrl", required = false) String callbackUrl
+    ) throws IOException {
+        FaceMatchJobDTO job;
+        try {
+            job = faceMatchJobService.submit(img1, img2, customerId, callbackUrl);
+        } catch (InvalidCallbackUrlException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "callbackinvalid");
+        }
+        return ResponseEntity.accepted().location(URI.create("/api/verify_face_match/jobs/" + job.getJobId())).body(job);
+    }
+
+    /**
+     * {@code GET  /verify_face_match/jobs/:id} : Poll a face-match job.
+     *
+     * @param id the job id.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the job in body, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/verify_face_match/jobs/{id}")
+    public ResponseEntity<FaceMatchJobDTO> getFaceMatchJob(@PathVariable("id") Long id) {
+        return ResponseUtil.wrapOrNotFound(faceMatchJobService.findJob(id));
+    }
 }
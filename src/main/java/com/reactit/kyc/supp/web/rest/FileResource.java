@@ -1,58 +1,220 @@
 package com.reactit.kyc.supp.web.rest;
 
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.service.MinioService;
+import com.reactit.kyc.supp.service.ObjectDiskCache;
+import com.reactit.kyc.supp.service.RenditionService;
+import com.reactit.kyc.supp.web.rest.errors.BadRequestAlertException;
 import io.minio.GetObjectArgs;
 import io.minio.MinioClient;
 import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
 import io.minio.errors.MinioException;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+/**
+ * Serves stored files and their renditions with conditional and range requests.
+ * <p>
+ * Validators come from the object metadata, so a {@code 304} costs a single {@code statObject}; byte ranges are
+ * read from the {@link ObjectDiskCache}, or from MinIO with ranged {@code getObject} calls for objects too large to be cached,
+ * pinned to the ETag the response advertises.
+ */
 @RestController
 @RequestMapping("/api")
 public class FileResource {
 
+    /**
+     * Renditions of an object never change, browsers may keep them for a day before revalidating.
+     */
+    private static final CacheControl RENDITION_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(1)).cachePrivate();
+
     private final Logger log = LoggerFactory.getLogger(FileResource.class);
 
     private final MinioClient minioClient;
 
+    private final ObjectDiskCache objectCache;
+
+    private final RenditionService renditionService;
+
+    private final MinioService minioService;
+
+    private final int maxPresignBatchSize;
+
     @Value("${minio.bucket-name}")
     private String bucketName;
 
-    public FileResource(MinioClient minioClient) {
+    public FileResource(
+        MinioClient minioClient,
+        ObjectDiskCache objectCache,
+        RenditionService renditionService,
+        MinioService minioService,
+        ApplicationProperties applicationProperties
+    ) {
         this.minioClient = minioClient;
+        this.objectCache = objectCache;
+        this.renditionService = renditionService;
+        this.minioService = minioService;
+        this.maxPresignBatchSize = applicationProperties.getStorage().getPresign().getMaxBatchSize();
+    }
+
+    /**
+     * {@code POST /files/presigned-urls} : get presigned download URLs for a page of files in one call.
+     *
+     * @param references the stored file references, such as the {@code fileUrl} of documents or the {@code selfieUrl} of
+     * face matches.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the URL of each reference, or with status
+     * {@code 400 (Bad Request)} if there are too many references.
+     */
+    @PostMapping("/files/presigned-urls")
+    public ResponseEntity<Map<String, String>> getPresignedUrls(@RequestBody List<String> references) {
+        log.debug("REST request to presign {} files", references.size());
+        if (references.size() > maxPresignBatchSize) {
+            throw new BadRequestAlertException("At most " + maxPresignBatchSize + " files per request", "file", "toomanyfiles");
+        }
+        return ResponseEntity.ok(minioService.getPresignedUrls(references.stream().filter(Objects::nonNull).toList()));
     }
 
     @GetMapping("/files/{objectName:.+}")
-    public ResponseEntity<InputStreamResource> getFile(@PathVariable String objectName) {
+    public ResponseEntity<Resource> getFile(@PathVariable String objectName, ServletWebRequest webRequest) {
         log.debug("REST request to get file: {}/{}", bucketName, objectName);
-        try {
-            // Get metadata to determine content type
-            var stat = minioClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        return serve(objectName, webRequest, CacheControl.noCache().cachePrivate());
+    }
 
-            // Get the file's input stream
-            InputStream inputStream = minioClient.getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).build());
+    /**
+     * {@code GET /renditions/:rendition/:objectName} : get a downscaled JPEG copy of an image, generating it on first request.
+     *
+     * @param rendition {@code thumbnail} or {@code preview}.
+     * @param objectName the original image.
+     * @param webRequest the request.
+     * @return the {@link ResponseEntity} with the rendition, or with status {@code 404 (Not Found)} if the original is not an
+     * image, or with status {@code 503 (Service Unavailable)} if the rendition could not be generated in time.
+     */
+    @GetMapping("/renditions/{rendition}/{objectName:.+}")
+    public ResponseEntity<Resource> getRendition(
+        @PathVariable String rendition,
+        @PathVariable String objectName,
+        ServletWebRequest webRequest
+    ) {
+        log.debug("REST request to get the {} of file: {}/{}", rendition, bucketName, objectName);
+        RenditionService.Rendition kind = RenditionService.Rendition.of(rendition).orElseThrow(() ->
+            new BadRequestAlertException("Unknown rendition " + rendition, "file", "renditionunknown")
+        );
+        String renditionName = kind.objectName(objectName);
+        ResponseEntity<Resource> response = serve(renditionName, webRequest, RENDITION_CACHE_CONTROL);
+        if (response == null || response.getStatusCode() != HttpStatus.NOT_FOUND) {
+            return response;
+        }
+        if (!renditionService.await(objectName, kind)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return serve(renditionName, webRequest, RENDITION_CACHE_CONTROL);
+    }
+
+    private ResponseEntity<Resource> serve(String objectName, ServletWebRequest webRequest, CacheControl cacheControl) {
+        try {
+            // Get metadata to determine content type and validators
+            StatObjectResponse stat = minioClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+            String etag = "\"" + stat.etag() + "\"";
+            long lastModified = stat.lastModified().toInstant().toEpochMilli();
 
-            InputStreamResource resource = new InputStreamResource(inputStream);
+            // If-None-Match / If-Modified-Since, the 304 status and headers are set
+            if (webRequest.checkNotModified(etag, lastModified)) {
+                return null;
+            }
 
+            long length = stat.size();
+            MediaType contentType = MediaType.parseMediaType(stat.contentType());
             HttpHeaders headers = new HttpHeaders();
             headers.add(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + objectName + "\"");
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.setETag(etag);
+            headers.setLastModified(lastModified);
+            headers.setCacheControl(cacheControl);
+            boolean head = HttpMethod.HEAD.matches(webRequest.getRequest().getMethod());
+
+            List<HttpRange> ranges = requestedRanges(webRequest.getRequest(), etag, lastModified);
+            if (ranges.isEmpty()) {
+                headers.setContentType(contentType);
+                headers.setContentLength(length);
+                return ResponseEntity.ok().headers(headers).body(head ? null : object(objectName, stat.etag(), length, 0, -1));
+            }
+
+            List<long[]> satisfiable = new ArrayList<>();
+            for (HttpRange range : ranges) {
+                try {
+                    long start = range.getRangeStart(length);
+                    if (start < length) {
+                        satisfiable.add(new long[] { start, Math.min(range.getRangeEnd(length), length - 1) });
+                    }
+                } catch (IllegalArgumentException e) {
+                    // a range starting past the end, left out
+                }
+            }
+            if (satisfiable.isEmpty()) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+            }
 
-            return ResponseEntity.ok()
+            if (satisfiable.size() == 1) {
+                long start = satisfiable.get(0)[0];
+                long end = satisfiable.get(0)[1];
+                headers.setContentType(contentType);
+                headers.setContentLength(end - start + 1);
+                headers.set(HttpHeaders.CONTENT_RANGE, contentRange(start, end, length));
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(headers)
+                    .body(head ? null : object(objectName, stat.etag(), length, start, end - start + 1));
+            }
+
+            String boundary = UUID.randomUUID().toString();
+            headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
                 .headers(headers)
-                .contentLength(stat.size())
-                .contentType(MediaType.parseMediaType(stat.contentType()))
-                .body(resource);
+                .body(head ? null : new InputStreamResource(multipart(objectName, stat.etag(), contentType, length, satisfiable, boundary)));
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            log.error("Error retrieving file from MinIO: " + e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         } catch (MinioException e) {
             log.error("Error retrieving file from MinIO: " + e.getMessage(), e);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -61,4 +223,108 @@ public class FileResource {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    /**
+     * The ranges to serve, empty for the whole object: when there is no {@code Range}, when it is malformed, or when an
+     * {@code If-Range} validator does not match the current object.
+     */
+    private static List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null) {
+            return List.of();
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(ifRange.trim(), etag, lastModified)) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * {@code If-Range} holds either a strong entity tag or the exact {@code Last-Modified} date.
+     */
+    private static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() == (lastModified / 1000) * 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Open a byte range of the object, or all of it when {@code length} is negative, from the local cache when possible and
+     * otherwise from MinIO, failing if the object changed since its metadata was read.
+     */
+    private InputStreamResource object(String objectName, String etag, long size, long offset, long length) throws Exception {
+        Optional<InputStream> cached = objectCache.read(objectName, etag, size, offset, length, (rangeOffset, rangeLength) ->
+            getObject(objectName, etag, rangeOffset, rangeLength)
+        );
+        return new InputStreamResource(cached.isPresent() ? cached.get() : getObject(objectName, etag, offset, length));
+    }
+
+    private InputStream getObject(String objectName, String etag, long offset, long length) throws Exception {
+        GetObjectArgs.Builder args = GetObjectArgs.builder().bucket(bucketName).object(objectName).matchETag(etag);
+        if (length >= 0) {
+            args.offset(offset).length(length);
+        }
+        return minioClient.getObject(args.build());
+    }
+
+    /**
+     * A {@code multipart/byteranges} body; each range is only read from MinIO once the previous part has been sent.
+     */
+    private InputStream multipart(String objectName, String etag, MediaType contentType, long length, List<long[]> ranges, String boundary) {
+        Iterator<long[]> remaining = ranges.iterator();
+        Enumeration<InputStream> parts = new Enumeration<>() {
+            private long[] range;
+
+            @Override
+            public boolean hasMoreElements() {
+                return range != null || remaining.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (range == null) {
+                    range = remaining.next();
+                    return ascii(
+                        "\r\n--" +
+                        boundary +
+                        "\r\n" +
+                        HttpHeaders.CONTENT_TYPE +
+                        ": " +
+                        contentType +
+                        "\r\n" +
+                        HttpHeaders.CONTENT_RANGE +
+                        ": " +
+                        contentRange(range[0], range[1], length) +
+                        "\r\n\r\n"
+                    );
+                }
+                try {
+                    return object(objectName, etag, length, range[0], range[1] - range[0] + 1).getInputStream();
+                } catch (Exception e) {
+                    throw new UncheckedIOException(new IOException("Error reading " + objectName + " from MinIO", e));
+                } finally {
+                    range = null;
+                }
+            }
+        };
+        return new SequenceInputStream(new SequenceInputStream(parts), ascii("\r\n--" + boundary + "--\r\n"));
+    }
+
+    private static InputStream ascii(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String contentRange(long start, long end, long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
 }
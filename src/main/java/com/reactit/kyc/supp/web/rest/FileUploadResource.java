@@ -1,6 +1,12 @@
 package com.reactit.kyc.supp.web.rest;
 
+import com.reactit.kyc.supp.service.ImageRecompressionService;
 import com.reactit.kyc.supp.service.MinioService;
+import com.reactit.kyc.supp.service.RenditionService;
+import com.reactit.kyc.supp.service.UploadValidator;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
 import org.springframework.http.ResponseEntity;
@@ -16,13 +22,55 @@ public class FileUploadResource {
 
     private final MinioService minioService;
 
-    public FileUploadResource(MinioService minioService) {
+    private final RenditionService renditionService;
+
+    private final UploadValidator uploadValidator;
+
+    private final ImageRecompressionService imageRecompressionService;
+
+    public FileUploadResource(
+        MinioService minioService,
+        RenditionService renditionService,
+        UploadValidator uploadValidator,
+        ImageRecompressionService imageRecompressionService
+    ) {
         this.minioService = minioService;
+        this.renditionService = renditionService;
+        this.uploadValidator = uploadValidator;
+        this.imageRecompressionService = imageRecompressionService;
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<Map<String, String>> uploadFile(@RequestParam("file") MultipartFile file) {
-        String fileUrl = minioService.uploadFile(file);
-        return ResponseEntity.ok(Collections.singletonMap("fileUrl", fileUrl));
+    public ResponseEntity<Map<String, String>> uploadFile(@RequestParam("file") MultipartFile file) throws IOException {
+        UploadValidator.ValidatedUpload upload;
+        try (InputStream in = file.getInputStream()) {
+            upload = uploadValidator.validate(in, file.getSize());
+        }
+        String objectName = imageRecompressionService.store(file, upload.contentType());
+        renditionService.prepare(objectName);
+        // the object key, kept under the field name clients already read
+        return ResponseEntity.ok(Collections.singletonMap("fileUrl", objectName));
+    }
+
+    /**
+     * {@code POST /upload/stream} : upload a file sent as the raw request body.
+     * <p>
+     * Unlike {@code /upload}, the body is not spooled to disk first: it is checked from its first bytes and streamed on to
+     * MinIO, so that a file of the wrong type or size is refused before it is transferred.
+     *
+     * @param request the request, its body being the file.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the key of the stored object, or with status
+     * {@code 400 (Bad Request)} if the file is not accepted.
+     * @throws IOException if the body could not be read.
+     */
+    @PostMapping("/upload/stream")
+    public ResponseEntity<Map<String, String>> uploadStream(HttpServletRequest request) throws IOException {
+        String objectName;
+        try (InputStream in = request.getInputStream()) {
+            UploadValidator.ValidatedUpload upload = uploadValidator.validate(in, request.getContentLengthLong());
+            objectName = minioService.uploadStream(upload.content(), upload.contentType(), upload.size());
+        }
+        renditionService.prepare(objectName);
+        return ResponseEntity.ok(Collections.singletonMap("fileUrl", objectName));
     }
 }
@@ -1,7 +1,6 @@
 package com.reactit.kyc.supp.web.rest;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.service.ImageAnalysisService;
 import java.io.*;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,6 +16,12 @@ public class ImageAnalysisResource {
 
     private final Logger log = LoggerFactory.getLogger(ImageAnalysisResource.class);
 
+    private final ImageAnalysisService imageAnalysisService;
+
+    public ImageAnalysisResource(ImageAnalysisService imageAnalysisService) {
+        this.imageAnalysisService = imageAnalysisService;
+    }
+
     @PostMapping("/image-analysis")
     public ResponseEntity<Map<String, Object>> analyzeImage(@RequestParam("file") MultipartFile file) {
         Map<String, Object> result = new HashMap<>();
@@ -26,52 +31,19 @@ public class ImageAnalysisResource {
             return ResponseEntity.badRequest().body(result);
         }
 
-        // 1. Sauvegarder temporairement l'image
-        File tempFile;
-        try {
-            tempFile = File.createTempFile("uploaded-", file.getOriginalFilename());
-            file.transferTo(tempFile);
-        } catch (IOException e) {
-            log.error("Could not save uploaded file", e);
-            result.put("error", "Could not save uploaded file: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(result);
-        }
-
         try {
-            // 2. Lancer le script Python avec le chemin du fichier
-            String pythonExecutable = "python"; // ou "python3"
-            String scriptPath = "src/main/python/scripts/image-analyzer.py";
-            ProcessBuilder processBuilder = new ProcessBuilder(pythonExecutable, scriptPath, tempFile.getAbsolutePath());
-            Process process = processBuilder.start();
-
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            StringBuilder output = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line);
-            }
-
-            int exitCode = process.waitFor();
-            if (exitCode == 0) {
-                ObjectMapper mapper = new ObjectMapper();
-                Map<String, Object> parsed = mapper.readValue(output.toString(), new TypeReference<>() {});
+            // Analyse par un des processus Python du pool
+            Map<String, Object> parsed = imageAnalysisService.analyze(file);
+            if (parsed.get("error") != null) {
+                log.error("Python script error: {}", parsed.get("error"));
+                result.put("error", "Image analysis failed: " + parsed.get("error"));
+            } else {
                 result.put("qualityScore", parsed.get("qualityScore"));
                 result.put("issues", parsed.get("issues"));
-            } else {
-                BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-                StringBuilder errorOutput = new StringBuilder();
-                while ((line = errorReader.readLine()) != null) {
-                    errorOutput.append(line);
-                }
-                log.error("Python script error: {}", errorOutput);
-                result.put("error", "Image analysis failed: " + errorOutput);
             }
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             log.error("Error executing Python script", e);
             result.put("error", "Server error during image analysis: " + e.getMessage());
-        } finally {
-            // Supprimer le fichier temporaire
-            if (tempFile.exists()) tempFile.delete();
         }
 
         return ResponseEntity.ok(result);
@@ -2,6 +2,7 @@ package com.reactit.kyc.supp.web.rest.errors;
 
 import static org.springframework.core.annotation.AnnotatedElementUtils.findMergedAnnotation;
 
+import com.reactit.kyc.supp.service.FaceVerificationUnavailableException;
 import jakarta.servlet.http.HttpServletRequest;
 import java.net.URI;
 import java.util.Arrays;
@@ -217,6 +218,13 @@ public class ExceptionTranslator extends ResponseEntityExceptionHandler {
     }
 
     private HttpHeaders buildHeaders(Throwable err) {
+        if (err instanceof FaceVerificationUnavailableException unavailableException && unavailableException.getRetryAfter() != null) {
+            HttpHeaders headers = new HttpHeaders();
+            // Retry-After is in whole seconds, round up so that clients never come back too early
+            long seconds = Math.max(1, (unavailableException.getRetryAfter().toMillis() + 999) / 1000);
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+            return headers;
+        }
         return err instanceof BadRequestAlertException badRequestAlertException
             ? HeaderUtil.createFailureAlert(
                 applicationName,
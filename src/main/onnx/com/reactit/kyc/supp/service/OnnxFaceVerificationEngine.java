@@ -0,0 +1,156 @@
+package com.reactit.kyc.supp.service;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Face verification with an exported Facenet model run in the JVM by ONNX Runtime, on the CPU. Experimental, only built with
+ * the {@code onnx} Maven profile.
+ * <p>
+ * Images are center-cropped and resized to the 160x160 BGR input of Facenet, scaled to [0, 1] as DeepFace does. There is
+ * no face detection nor alignment step, so the images are expected to be framed on the face; failures fall back to the
+ * sidecar. Distances are not comparable with DeepFace's, so the engine only starts with a threshold calibrated for this
+ * preprocessing in {@code application.face-verification.onnx.threshold}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.face-verification", name = "engine", havingValue = OnnxFaceVerificationEngine.NAME)
+public class OnnxFaceVerificationEngine implements FaceVerificationEngine, AutoCloseable {
+
+    public static final String NAME = "onnx";
+
+    private static final Logger LOG = LoggerFactory.getLogger(OnnxFaceVerificationEngine.class);
+
+    private static final int INPUT_SIZE = 160;
+
+    private final OrtEnvironment environment;
+
+    private final OrtSession session;
+
+    private final String inputName;
+
+    private final boolean channelsFirst;
+
+    private final String model;
+
+    private final double threshold;
+
+    @Autowired
+    public OnnxFaceVerificationEngine(ApplicationProperties applicationProperties) throws OrtException {
+        this(
+            applicationProperties.getFaceVerification().getOnnx().getModelPath(),
+            applicationProperties.getFaceVerification().getOnnx().getModelName(),
+            applicationProperties.getFaceVerification().getOnnx().getThreshold(),
+            applicationProperties.getFaceVerification().getOnnx().getIntraOpThreads()
+        );
+    }
+
+    public OnnxFaceVerificationEngine(String modelPath, String modelName, Double threshold, int intraOpThreads) throws OrtException {
+        if (modelPath == null || modelPath.isBlank()) {
+            throw new IllegalStateException("application.face-verification.onnx.model-path is required by the onnx engine");
+        }
+        if (threshold == null) {
+            throw new IllegalStateException(
+                "application.face-verification.onnx.threshold is required by the onnx engine, calibrate it on known pairs first"
+            );
+        }
+        this.threshold = threshold;
+        this.environment = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            if (intraOpThreads > 0) {
+                options.setIntraOpNumThreads(intraOpThreads);
+            }
+            this.session = environment.createSession(modelPath, options);
+        }
+        NodeInfo input = session.getInputInfo().values().iterator().next();
+        long[] shape = ((TensorInfo) input.getInfo()).getShape();
+        this.inputName = input.getName();
+        // Keras exports are NHWC, PyTorch ones NCHW
+        this.channelsFirst = shape.length == 4 && shape[1] == 3;
+        this.model = modelName;
+        LOG.info("Loaded ONNX face model {} from {}, input {} {}", modelName, modelPath, inputName, channelsFirst ? "NCHW" : "NHWC");
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public double threshold() {
+        return threshold;
+    }
+
+    @Override
+    public float[] embed(StreamingMultipartBody.Part image) throws IOException {
+        BufferedImage source;
+        try (InputStream in = image.content().getInputStream()) {
+            source = ImageIO.read(in);
+        }
+        if (source == null) {
+            throw new FaceEmbeddingException("Unsupported image format for " + image.name());
+        }
+        long[] shape = channelsFirst ? new long[] { 1, 3, INPUT_SIZE, INPUT_SIZE } : new long[] { 1, INPUT_SIZE, INPUT_SIZE, 3 };
+        try (
+            OnnxTensor tensor = OnnxTensor.createTensor(environment, FloatBuffer.wrap(preprocess(source)), shape);
+            OrtSession.Result result = session.run(Map.of(inputName, tensor))
+        ) {
+            return ((float[][]) result.get(0).getValue())[0];
+        } catch (OrtException e) {
+            throw new IllegalStateException("ONNX inference failed for " + image.name(), e);
+        }
+    }
+
+    private float[] preprocess(BufferedImage source) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+        BufferedImage face = new BufferedImage(INPUT_SIZE, INPUT_SIZE, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = face.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, INPUT_SIZE, INPUT_SIZE, x, y, x + side, y + side, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        // TYPE_3BYTE_BGR rasters are already laid out as interleaved B, G, R bytes
+        byte[] bgr = ((DataBufferByte) face.getRaster().getDataBuffer()).getData();
+        float[] pixels = new float[bgr.length];
+        int plane = INPUT_SIZE * INPUT_SIZE;
+        for (int i = 0; i < bgr.length; i++) {
+            int target = channelsFirst ? (i % 3) * plane + i / 3 : i;
+            pixels[target] = (bgr[i] & 0xff) / 255f;
+        }
+        return pixels;
+    }
+
+    @Override
+    public void close() throws OrtException {
+        session.close();
+    }
+}
@@ -12,10 +12,14 @@ def load_local_image(path):
     except Exception as e:
         raise ValueError(f"Failed to load local image: {e}")
 
-def detect_blur(image):
+# Thresholds are set for full resolution images. A shrunk image (scale < 1) gets them scaled as the Java analyzer does:
+# the Laplacian variance and the gradients of soft edges grow as the image shrinks, Hough votes and borders are in pixels.
+BLUR_SCALE_EXPONENT = 2.5
+
+def detect_blur(image, scale=1.0):
     gray = cv2.cvtColor(image, cv2.COLOR_BGR2GRAY)
     laplacian_var = cv2.Laplacian(gray, cv2.CV_64F).var()
-    return laplacian_var < 100  # threshold for blur detection
+    return laplacian_var < 100 * scale ** -BLUR_SCALE_EXPONENT  # threshold for blur detection
 
 def detect_glare(image):
     hsv = cv2.cvtColor(image, cv2.COLOR_BGR2HSV)
@@ -24,10 +28,10 @@ def detect_glare(image):
     ratio = overexposed_pixels / (brightness.shape[0] * brightness.shape[1])
     return ratio > 0.05  # more than 5% of pixels are too bright
 
-def detect_rotation(image):
+def detect_rotation(image, scale=1.0):
     gray = cv2.cvtColor(image, cv2.COLOR_BGR2GRAY)
-    edges = cv2.Canny(gray, 50, 150)
-    lines = cv2.HoughLines(edges, 1, np.pi / 180, 150)
+    edges = cv2.Canny(gray, int(50 / scale + 0.5), int(150 / scale + 0.5))
+    lines = cv2.HoughLines(edges, 1, np.pi / 180, int(150 * scale + 0.5))
     if lines is None:
         return False
     angles = []
@@ -40,11 +44,12 @@ def detect_rotation(image):
     avg_angle = np.mean(angles)
     return abs(avg_angle - 0) > 5
 
-def detect_cutoff_edges(image):
+def detect_cutoff_edges(image, scale=1.0):
     gray = cv2.cvtColor(image, cv2.COLOR_BGR2GRAY)
     height, width = gray.shape
-    top, bottom = gray[0:10, :], gray[-10:, :]
-    left, right = gray[:, 0:10], gray[:, -10:]
+    border = max(1, int(10 * scale + 0.5))
+    top, bottom = gray[0:border, :], gray[-border:, :]
+    left, right = gray[:, 0:border], gray[:, -border:]
 
     def is_edge_cut(part):
         return np.mean(part) < 20
@@ -56,17 +61,17 @@ def detect_cutoff_edges(image):
         is_edge_cut(right)
     ])
 
-def analyze_image(image_path):
+def analyze_image(image_path, scale=1.0):
     image = load_local_image(image_path)
     issues = []
 
-    if detect_blur(image):
+    if detect_blur(image, scale):
         issues.append("Image is blurry")
     if detect_glare(image):
         issues.append("Glare detected")
-    if detect_rotation(image):
+    if detect_rotation(image, scale):
         issues.append("Image may be rotated")
-    if detect_cutoff_edges(image):
+    if detect_cutoff_edges(image, scale):
         issues.append("Some edges appear cut off")
 
     quality_score = 100 - len(issues) * 20
@@ -77,8 +82,35 @@ def analyze_image(image_path):
         "issues": issues or ["None"]
     }
 
+def serve():
+    """Answer one JSON request per stdin line, with one JSON response per stdout line.
+
+    Requests are {"id": ..., "path": ..., "scale": ...} to analyze an image, scale being the size of the image over
+    the size of the upload it was shrunk from, or {"id": ..., "ping": true} for a health check; every response
+    carries the id of its request.
+    """
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        request_id = None
+        try:
+            request = json.loads(line)
+            request_id = request.get("id")
+            if request.get("ping"):
+                response = {"pong": True}
+            else:
+                response = analyze_image(request["path"], float(request.get("scale", 1.0)))
+        except Exception as e:
+            response = {"error": str(e)}
+        response["id"] = request_id
+        sys.stdout.write(json.dumps(response) + "\n")
+        sys.stdout.flush()
+
 if __name__ == "__main__":
-    if len(sys.argv) > 1:
+    if len(sys.argv) > 1 and sys.argv[1] == "--serve":
+        serve()
+    elif len(sys.argv) > 1:
         image_path = sys.argv[1]
         try:
             result = analyze_image(image_path)
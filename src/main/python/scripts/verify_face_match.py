@@ -34,3 +34,24 @@ async def verify_face_match(img1: UploadFile = File(...), img2: UploadFile = Fil
 
     except Exception as e:
         return {"error": str(e)}
+
+
+@app.post("/api/represent")
+async def represent(img: UploadFile = File(...)):
+    try:
+        tmp = os.path.join(tempfile.gettempdir(), f"{uuid.uuid4()}.jpg")
+        with open(tmp, "wb") as f:
+            shutil.copyfileobj(img.file, f)
+
+        try:
+            faces = DeepFace.represent(
+                tmp,
+                model_name=model_name,
+                enforce_detection=False
+            )
+        finally:
+            os.remove(tmp)
+        return {"model": model_name, "embedding": faces[0]["embedding"]}
+
+    except Exception as e:
+        return {"error": str(e)}
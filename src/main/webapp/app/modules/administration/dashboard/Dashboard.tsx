@@ -1,5 +1,5 @@
 import React, { useEffect, useState } from 'react';
-import { Card, CardContent, Typography, Stack } from '@mui/material';
+import { Button, Card, CardContent, Typography, Stack } from '@mui/material';
 import { PieChart } from '@mui/x-charts/PieChart';
 import { BarChart } from '@mui/x-charts/BarChart';
 import {
@@ -9,15 +9,23 @@ import {
   Verified as VerifiedIcon,
   CheckCircle as CheckCircleIcon,
 } from '@mui/icons-material';
-import axios from 'axios';
+import axios, { AxiosResponse } from 'axios';
 
-type DocumentGroup = {
-  documents: number;
+type DocumentBucket = {
+  documentCount: number;
+  kycStatus: string;
   customers: number;
 };
 
 const Dashboard: React.FC = () => {
   const [data, setData] = useState<any>(null);
+  const [computedAt, setComputedAt] = useState<string | null>(null);
+  const [refreshing, setRefreshing] = useState(false);
+
+  const showSnapshot = (res: AxiosResponse) => {
+    setData(res.data);
+    setComputedAt(res.headers['last-modified'] ?? null);
+  };
 
   useEffect(() => {
     axios
@@ -25,11 +33,20 @@ const Dashboard: React.FC = () => {
       .then(res => {
         // eslint-disable-next-line no-console
         console.log('API Response:', res.data);
-        setData(res.data);
+        showSnapshot(res);
       })
       .catch(err => console.error(err));
   }, []);
 
+  const refresh = () => {
+    setRefreshing(true);
+    axios
+      .post('/api/admin/dashboard/refresh')
+      .then(showSnapshot)
+      .catch(err => console.error(err))
+      .finally(() => setRefreshing(false));
+  };
+
   if (!data) {
     return <Typography>Loading dashboard...</Typography>;
   }
@@ -41,18 +58,8 @@ const Dashboard: React.FC = () => {
     { id: 2, value: data.customerInfo.rejectedCustomers, label: 'Rejected', color: '#3c005a' },
   ];
 
-  // Bar chart data
-  const groupedDocs: DocumentGroup[] = data.customerDocumentCounts
-    ? Object.values(
-        data.customerDocumentCounts.reduce((acc: Record<number, DocumentGroup>, c: any) => {
-          if (!acc[c.documentCount]) {
-            acc[c.documentCount] = { documents: c.documentCount, customers: 0 };
-          }
-          acc[c.documentCount].customers += 1;
-          return acc;
-        }, {}),
-      )
-    : [];
+  // Bar chart data, customers per document count as computed by the server
+  const distribution: DocumentBucket[] = data.documentCountDistribution ?? [];
 
   type Status = 'Pending' | 'Verified' | 'Rejected';
 
@@ -74,12 +81,12 @@ const Dashboard: React.FC = () => {
     }
   };
 
-  const groupedByStatus: Record<number, Record<Status, number>> = data.customerDocumentCounts.reduce(
-    (acc, c: any) => {
-      const docCount = c.documentCount;
-      const status = mapKycStatus(c.kycStatus);
+  const groupedByStatus: Record<number, Record<Status, number>> = distribution.reduce(
+    (acc, b) => {
+      const docCount = b.documentCount;
+      const status = mapKycStatus(b.kycStatus);
       if (!acc[docCount]) acc[docCount] = { Pending: 0, Verified: 0, Rejected: 0 };
-      acc[docCount][status] += 1;
+      acc[docCount][status] += b.customers;
       return acc;
     },
     {} as Record<number, Record<Status, number>>,
@@ -92,6 +99,16 @@ const Dashboard: React.FC = () => {
 
   return (
     <Stack spacing={4} sx={{ padding: '24px' }}>
+      <Stack direction="row" alignItems="center" justifyContent="flex-end" sx={{ gap: 2 }}>
+        {computedAt && (
+          <Typography variant="body2" color="text.secondary">
+            Updated {new Date(computedAt).toLocaleString()}
+          </Typography>
+        )}
+        <Button variant="outlined" size="small" onClick={refresh} disabled={refreshing}>
+          Refresh
+        </Button>
+      </Stack>
       {/* Top Stats Cards */}
       <Stack direction={{ xs: 'column', sm: 'row' }} sx={{ gap: 3 }} flexWrap="wrap" justifyContent="space-between">
         {[
@@ -191,7 +208,7 @@ const Dashboard: React.FC = () => {
             <Typography variant="h6" gutterBottom>
               Customer Document Count
             </Typography>
-            {groupedDocs.length > 0 ? (
+            {barData.length > 0 ? (
               <BarChart
                 xAxis={[{ id: 'documentCounts', dataKey: 'documents', label: 'Number of Documents' }]}
                 yAxis={[{ id: 'customerCounts', label: 'Number of Customers' }]}
@@ -567,7 +567,7 @@ export const FaceMatch = () => {
               overflow: 'auto',
             }}
           >
-            <img src={`/api/files/${modalImageUrl}`} alt="Preview" style={{ maxWidth: '100%', maxHeight: '80vh' }} />
+            <img src={`/api/renditions/preview/${modalImageUrl}`} alt="Preview" style={{ maxWidth: '100%', maxHeight: '80vh' }} />
           </Box>
         </Modal>
       </Box>
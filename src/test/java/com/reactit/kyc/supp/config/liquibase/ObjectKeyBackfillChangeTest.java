@@ -0,0 +1,30 @@
+package com.reactit.kyc.supp.config.liquibase;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link ObjectKeyBackfillChange}.
+ */
+class ObjectKeyBackfillChangeTest {
+
+    @Test
+    void shouldExtractTheObjectKeyOfPresignedUrls() {
+        assertThat(
+            ObjectKeyBackfillChange.objectKeyOf(
+                "http://localhost:9000/kyc-documents/3f2a9c?X-Amz-Algorithm=AWS4-HMAC-SHA256&X-Amz-Expires=604800&X-Amz-Signature=ab"
+            )
+        ).isEqualTo("3f2a9c");
+        assertThat(ObjectKeyBackfillChange.objectKeyOf("https://minio.example.com/kyc-documents/uploads/1b2c%20scan+1.pdf?X-Amz-Date=1"))
+            .isEqualTo("uploads/1b2c scan+1.pdf");
+    }
+
+    @Test
+    void shouldLeaveObjectKeysAndOtherValuesAlone() {
+        assertThat(ObjectKeyBackfillChange.objectKeyOf("3f2a9c")).isEqualTo("3f2a9c");
+        assertThat(ObjectKeyBackfillChange.objectKeyOf("uploads/1b2c")).isEqualTo("uploads/1b2c");
+        assertThat(ObjectKeyBackfillChange.objectKeyOf("http://localhost:9000/kyc-documents")).isEqualTo("http://localhost:9000/kyc-documents");
+        assertThat(ObjectKeyBackfillChange.objectKeyOf(null)).isNull();
+    }
+}
@@ -0,0 +1,183 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.domain.DashboardSnapshot;
+import com.reactit.kyc.supp.domain.enumeration.KycStatus;
+import com.reactit.kyc.supp.repository.CustomerRepository;
+import com.reactit.kyc.supp.repository.DashboardSnapshotRepository;
+import com.reactit.kyc.supp.repository.FaceMatchRepository;
+import com.reactit.kyc.supp.repository.NotificationLogRepository;
+import com.reactit.kyc.supp.service.dto.AdminDashboardDTO;
+import com.reactit.kyc.supp.service.dto.CustomerDocumentCountDTO;
+import com.reactit.kyc.supp.service.dto.CustomerInfoDTO;
+import com.reactit.kyc.supp.service.dto.DashboardChangesDTO;
+import com.reactit.kyc.supp.service.dto.DocumentCountBucketDTO;
+import com.reactit.kyc.supp.service.dto.MailStatsDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class for the {@link AdminDashboardService}.
+ */
+class AdminDashboardServiceTest {
+
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+
+    private final KycStatusCounterService kycStatusCounterService = mock(KycStatusCounterService.class);
+
+    private final DashboardSnapshotRepository dashboardSnapshotRepository = mock(DashboardSnapshotRepository.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldServeTheLatestSnapshotWithoutComputingAgain() {
+        when(customerRepository.findCustomersWithMostDocuments(isNull(), isNull(), isNull(), isNull(), any())).thenReturn(List.of());
+        when(kycStatusCounterService.countByStatus()).thenReturn(
+            Map.of(KycStatus.PENDING, 1L, KycStatus.VERIFIED, 1L, KycStatus.REJECTED, 1L)
+        );
+        when(dashboardSnapshotRepository.findFirstByOrderByComputedAtDesc()).thenReturn(Optional.empty());
+        AdminDashboardService service = service();
+
+        AdminDashboardService.Snapshot first = service.getDashboard();
+
+        assertThat(service.getDashboard()).isSameAs(first);
+        assertThat(first.getData().getCustomerInfo().getTotalCustomers()).isEqualTo(3);
+        verify(kycStatusCounterService, times(1)).countByStatus();
+        verify(dashboardSnapshotRepository).save(any(DashboardSnapshot.class));
+        assertThat(meterRegistry.get("kyc.dashboard.refresh").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("kyc.dashboard.latency").tag("cache", "miss").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("kyc.dashboard.latency").tag("cache", "hit").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldComputeOnceForRefreshesAskedForAtTheSameTime() throws Exception {
+        when(customerRepository.findCustomersWithMostDocuments(isNull(), isNull(), isNull(), isNull(), any())).thenReturn(List.of());
+        when(kycStatusCounterService.countByStatus()).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return Map.of(KycStatus.PENDING, 1L, KycStatus.VERIFIED, 0L, KycStatus.REJECTED, 0L);
+        });
+        when(dashboardSnapshotRepository.findFirstByOrderByComputedAtDesc()).thenReturn(Optional.empty());
+        AdminDashboardService service = service();
+        ExecutorService admins = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<AdminDashboardService.Snapshot>> refreshes = admins.invokeAll(
+                List.of(service::refresh, service::refresh, service::refresh, service::refresh)
+            );
+            AdminDashboardService.Snapshot first = refreshes.get(0).get();
+            for (Future<AdminDashboardService.Snapshot> refresh : refreshes) {
+                assertThat(refresh.get()).isSameAs(first);
+            }
+        } finally {
+            admins.shutdownNow();
+        }
+
+        verify(kycStatusCounterService, times(1)).countByStatus();
+        assertThat(meterRegistry.get("kyc.dashboard.refresh").timer().count()).isEqualTo(1);
+        // the refreshes served the snapshot just computed never started a transaction
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void shouldServeARecentSnapshotOfAnotherInstanceOnRefresh() throws Exception {
+        Instant computedAt = Instant.now().minusSeconds(2);
+        when(dashboardSnapshotRepository.findFirstByOrderByComputedAtDesc()).thenReturn(
+            Optional.of(new DashboardSnapshot(computedAt, objectMapper.writeValueAsString(dashboard(5L, 10))))
+        );
+
+        AdminDashboardService.Snapshot snapshot = service().refresh();
+
+        assertThat(snapshot.getComputedAt()).isEqualTo(computedAt);
+        verify(kycStatusCounterService, never()).countByStatus();
+        verify(dashboardSnapshotRepository, never()).save(any(DashboardSnapshot.class));
+    }
+
+    @Test
+    void shouldServeASnapshotJustComputedByAnotherInstance() throws Exception {
+        Instant computedAt = Instant.now().minusSeconds(5);
+        when(dashboardSnapshotRepository.findFirstByOrderByComputedAtDesc()).thenReturn(
+            Optional.of(new DashboardSnapshot(computedAt, objectMapper.writeValueAsString(dashboard(5L, 10))))
+        );
+        AdminDashboardService service = service();
+
+        service.refreshIfStale();
+
+        verify(kycStatusCounterService, never()).countByStatus();
+        AdminDashboardService.Snapshot snapshot = service.getDashboard();
+        assertThat(snapshot.getComputedAt()).isEqualTo(computedAt);
+        assertThat(snapshot.getData().getCustomerInfo().getTotalCustomers()).isEqualTo(5);
+        assertThat(snapshot.getData().getCustomerDocumentCounts()).extracting(CustomerDocumentCountDTO::getFullName).containsExactly("Ada");
+        assertThat(snapshot.getData().getDocumentCountDistribution()).extracting(DocumentCountBucketDTO::getCustomers).containsExactly(5L);
+    }
+
+    @Test
+    void shouldTellHowFiguresChangedSinceAnEarlierSnapshot() throws Exception {
+        Instant now = Instant.now();
+        when(dashboardSnapshotRepository.findFirstByOrderByComputedAtDesc()).thenReturn(
+            Optional.of(new DashboardSnapshot(now, objectMapper.writeValueAsString(dashboard(12L, 40))))
+        );
+        Instant yesterday = now.minus(1, ChronoUnit.DAYS);
+        when(dashboardSnapshotRepository.findFirstByComputedAtLessThanEqualOrderByComputedAtDesc(yesterday)).thenReturn(
+            Optional.of(new DashboardSnapshot(yesterday.minusSeconds(30), objectMapper.writeValueAsString(dashboard(5L, 10))))
+        );
+
+        DashboardChangesDTO changes = service().getChanges(yesterday).orElseThrow();
+
+        assertThat(changes.getSince()).isEqualTo(yesterday.minusSeconds(30));
+        assertThat(changes.getUntil()).isEqualTo(now);
+        assertThat(changes.getTotalCustomers()).isEqualTo(7);
+        assertThat(changes.getPendingCustomers()).isEqualTo(7);
+        assertThat(changes.getEmailsSent()).isEqualTo(30);
+        assertThat(changes.getUsers()).isNull();
+    }
+
+    private static AdminDashboardDTO dashboard(Long customers, int emailsSent) {
+        return new AdminDashboardDTO(
+            List.of(new CustomerDocumentCountDTO(1L, "Ada", KycStatus.PENDING, 3L)),
+            List.of(new DocumentCountBucketDTO(3L, KycStatus.PENDING, customers)),
+            new CustomerInfoDTO(customers, customers, 0L, 0L, customers),
+            new MailStatsDTO(emailsSent),
+            2L,
+            null
+        );
+    }
+
+    private AdminDashboardService service() {
+        return new AdminDashboardService(
+            customerRepository,
+            mock(NotificationLogRepository.class),
+            mock(FaceMatchRepository.class),
+            mock(KeycloakUserService.class),
+            kycStatusCounterService,
+            dashboardSnapshotRepository,
+            objectMapper,
+            new TransactionTemplate(transactionManager),
+            new ApplicationProperties(),
+            meterRegistry
+        );
+    }
+}
@@ -0,0 +1,190 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Test class for the {@link DocumentImagePreprocessor}.
+ */
+class DocumentImagePreprocessorTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DocumentImagePreprocessorTest.class);
+
+    @Test
+    void shouldSubsampleLargeImages() throws IOException {
+        byte[] png = encode(halves(2000, 1000), "png");
+
+        DocumentImagePreprocessor.WorkingImage working = new DocumentImagePreprocessor(500).load(new ByteArrayInputStream(png));
+
+        assertThat(working.image().getWidth()).isEqualTo(500);
+        assertThat(working.image().getHeight()).isEqualTo(250);
+        assertThat(working.scale()).isEqualTo(0.25);
+        DocumentImagePreprocessor.WorkingImage full = new DocumentImagePreprocessor(0).load(new ByteArrayInputStream(png));
+        assertThat(full.image().getWidth()).isEqualTo(2000);
+        assertThat(full.scale()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAverageFineDetailInsteadOfAliasingIt() throws IOException {
+        // 2 pixel wide stripes: keeping one column in four would only keep white ones
+        BufferedImage stripes = new BufferedImage(2000, 1000, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = stripes.createGraphics();
+        graphics.setColor(Color.WHITE);
+        for (int x = 0; x < 2000; x += 4) {
+            graphics.fillRect(x, 0, 2, 1000);
+        }
+        graphics.dispose();
+
+        BufferedImage image = new DocumentImagePreprocessor(500).load(new ByteArrayInputStream(encode(stripes, "png"))).image();
+
+        assertThat(image.getWidth()).isEqualTo(500);
+        for (int x = 0; x < 500; x += 50) {
+            assertThat(image.getRGB(x, 100) & 0xff).isBetween(120, 135);
+        }
+    }
+
+    @Test
+    void shouldKeepColorsWhenShrinking() {
+        BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_3BYTE_BGR);
+        image.setRGB(0, 0, 0xff0000);
+        image.setRGB(1, 1, 0x0000ff);
+
+        BufferedImage shrunk = DocumentImagePreprocessor.shrink(image, 2);
+
+        assertThat(shrunk.getRGB(0, 0) & 0xffffff).isEqualTo(0x400040);
+    }
+
+    @Test
+    void shouldTurnImagesUprightFromExifOrientation() throws IOException {
+        // rotated 90° clockwise for display: the white left half ends up on top
+        byte[] jpeg = withOrientation(encode(halves(80, 40), "jpg"), 6);
+
+        BufferedImage image = new DocumentImagePreprocessor(0).load(new ByteArrayInputStream(jpeg)).image();
+
+        assertThat(image.getWidth()).isEqualTo(40);
+        assertThat(image.getHeight()).isEqualTo(80);
+        assertThat(image.getRGB(20, 10) & 0xff).isGreaterThan(200);
+        assertThat(image.getRGB(20, 70) & 0xff).isLessThan(50);
+    }
+
+    /**
+     * Reports how the checks at working resolution agree with a full resolution analysis on a local image set:
+     * <pre>
+     * ./mvnw test -Dtest=DocumentImagePreprocessorTest -Ddocument.quality.corpus=/path/to/images [-Ddocument.quality.max-dimension=1600] \
+     *     -Djunit.jupiter.execution.timeout.testable.method.default=30m
+     * </pre>
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "document.quality.corpus", matches = ".+")
+    void reportAccuracyAgainstFullResolution() throws IOException {
+        DocumentImagePreprocessor full = new DocumentImagePreprocessor(0);
+        DocumentImagePreprocessor working = new DocumentImagePreprocessor(Integer.getInteger("document.quality.max-dimension", 1600));
+        DocumentQualityAnalyzer analyzer = new DocumentQualityAnalyzer();
+        int images = 0;
+        int[] disagreements = new int[4];
+        long fullNanos = 0;
+        long workingNanos = 0;
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("document.quality.corpus")))) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                long start = System.nanoTime();
+                DocumentQualityAnalyzer.Report expected;
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    expected = analyzer.analyze(full.load(inputStream).image());
+                } catch (IOException e) {
+                    continue;
+                }
+                fullNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                DocumentQualityAnalyzer.Report actual;
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    DocumentImagePreprocessor.WorkingImage image = working.load(inputStream);
+                    actual = analyzer.analyze(image.image(), image.scale());
+                }
+                workingNanos += System.nanoTime() - start;
+
+                images++;
+                List<Boolean> expectedChecks = List.of(expected.blurry(), expected.glare(), expected.rotated(), expected.cutOff());
+                List<Boolean> actualChecks = List.of(actual.blurry(), actual.glare(), actual.rotated(), actual.cutOff());
+                for (int i = 0; i < disagreements.length; i++) {
+                    if (!expectedChecks.get(i).equals(actualChecks.get(i))) {
+                        disagreements[i]++;
+                    }
+                }
+                if (expected.qualityScore() != actual.qualityScore()) {
+                    LOG.info("{}: full resolution {}, working resolution {}", file.getFileName(), expected, actual);
+                }
+            }
+        }
+        assertThat(images).as("images in the corpus").isPositive();
+        LOG.info(
+            "{} images, disagreements: blur {}, glare {}, rotation {}, cut-off {}; {} ms per image at full resolution, {} ms at working resolution",
+            images,
+            disagreements[0],
+            disagreements[1],
+            disagreements[2],
+            disagreements[3],
+            fullNanos / images / 1_000_000,
+            workingNanos / images / 1_000_000
+        );
+    }
+
+    /**
+     * White left half, black right half.
+     */
+    private static BufferedImage halves(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(width / 2, 0, width - width / 2, height);
+        graphics.dispose();
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Insert a big-endian EXIF segment holding only an orientation tag after the JFIF segment.
+     */
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] exif = {
+            'E', 'x', 'i', 'f', 0, 0,
+            'M', 'M', 0, 42, 0, 0, 0, 8,
+            0, 1,
+            0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+            0, 0, 0, 0,
+        };
+        int app0End = 4 + (((jpeg[4] & 0xff) << 8) | (jpeg[5] & 0xff));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, app0End);
+        out.write(0xff);
+        out.write(0xe1);
+        out.write((exif.length + 2) >> 8);
+        out.write((exif.length + 2) & 0xff);
+        out.write(exif, 0, exif.length);
+        out.write(jpeg, app0End, jpeg.length - app0End);
+        return out.toByteArray();
+    }
+}
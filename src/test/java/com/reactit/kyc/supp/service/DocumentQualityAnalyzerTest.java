@@ -0,0 +1,141 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Test class for the {@link DocumentQualityAnalyzer}.
+ */
+class DocumentQualityAnalyzerTest {
+
+    private final DocumentQualityAnalyzer analyzer = new DocumentQualityAnalyzer();
+
+    @Test
+    void shouldFlagAFlatImageAsBlurry() {
+        DocumentQualityAnalyzer.Report report = analyzer.analyze(filled(new Color(128, 128, 128)));
+
+        assertThat(report.laplacianVariance()).isZero();
+        assertThat(report.issues()).containsExactly("Image is blurry");
+        assertThat(report.qualityScore()).isEqualTo(80);
+    }
+
+    @Test
+    void shouldFlagGlareAndCutOffEdges() {
+        assertThat(analyzer.analyze(filled(Color.WHITE)).issues()).containsExactly("Image is blurry", "Glare detected");
+        assertThat(analyzer.analyze(filled(Color.BLACK)).issues()).containsExactly("Image is blurry", "Some edges appear cut off");
+    }
+
+    @Test
+    void shouldAcceptASharpStraightDocument() {
+        DocumentQualityAnalyzer.Report report = analyzer.analyze(stripes(0));
+
+        assertThat(report.laplacianVariance()).isGreaterThan(100);
+        assertThat(report.averageAngle()).isLessThan(5.0);
+        assertThat(report.issues()).containsExactly("None");
+        assertThat(report.qualityScore()).isEqualTo(100);
+    }
+
+    @Test
+    void shouldFlagARotatedDocument() {
+        DocumentQualityAnalyzer.Report report = analyzer.analyze(stripes(30));
+
+        assertThat(report.averageAngle()).isBetween(25.0, 35.0);
+        assertThat(report.issues()).containsExactly("Image may be rotated");
+    }
+
+    @Test
+    void shouldNotDependOnTheTiling() {
+        BufferedImage image = stripes(30);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            assertThat(new DocumentQualityAnalyzer(single).analyze(image)).isEqualTo(analyzer.analyze(image));
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void shouldRejectAnUnreadableImage() {
+        assertThatThrownBy(() -> analyzer.analyze(new ByteArrayInputStream("not an image".getBytes()))).isInstanceOf(
+            IOException.class
+        );
+    }
+
+    /**
+     * Compares with {@code image-analyzer.py} on a local image set, which needs OpenCV:
+     * <pre>
+     * ./mvnw test -Dtest=DocumentQualityAnalyzerTest -Ddocument.quality.golden-images=/path/to/images [-Ddocument.quality.python=python3]
+     * </pre>
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "document.quality.golden-images", matches = ".+")
+    void shouldMatchThePythonAnalyzer() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String python = System.getProperty("document.quality.python", "python3");
+        List<String> mismatches = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("document.quality.golden-images")))) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                Process process = new ProcessBuilder(python, "src/main/python/scripts/image-analyzer.py", file.toString()).start();
+                JsonNode expected = objectMapper.readTree(process.getInputStream());
+                process.waitFor();
+                if (expected.has("error")) {
+                    continue;
+                }
+                DocumentQualityAnalyzer.Report report;
+                try (InputStream inputStream = Files.newInputStream(file)) {
+                    report = analyzer.analyze(inputStream);
+                }
+                List<String> expectedIssues = new ArrayList<>();
+                expected.get("issues").forEach(issue -> expectedIssues.add(issue.asText()));
+                if (!expectedIssues.equals(report.issues())) {
+                    mismatches.add(file.getFileName() + ": expected " + expectedIssues + " but was " + report);
+                }
+            }
+        }
+        assertThat(mismatches).isEmpty();
+    }
+
+    private static BufferedImage filled(Color color) {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Dark stripes on a light gray page, tilted by the given angle.
+     */
+    private static BufferedImage stripes(double degrees) {
+        BufferedImage image = filled(new Color(200, 200, 200));
+        Graphics2D graphics = image.createGraphics();
+        graphics.rotate(Math.toRadians(degrees), image.getWidth() / 2.0, image.getHeight() / 2.0);
+        graphics.setColor(new Color(40, 40, 40));
+        graphics.setStroke(new BasicStroke(4));
+        for (int x = -200; x < 520; x += 25) {
+            graphics.drawLine(x, -200, x, 440);
+        }
+        graphics.dispose();
+        return image;
+    }
+}
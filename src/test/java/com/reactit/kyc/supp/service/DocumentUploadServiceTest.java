@@ -0,0 +1,156 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.repository.DocumentRepository;
+import com.reactit.kyc.supp.service.dto.DocumentDTO;
+import com.reactit.kyc.supp.service.dto.DocumentUploadDTO;
+import com.reactit.kyc.supp.service.dto.DocumentUploadFinalizeDTO;
+import com.reactit.kyc.supp.service.dto.DocumentUploadRequestDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.StatObjectResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Test class for the {@link DocumentUploadService}.
+ */
+class DocumentUploadServiceTest {
+
+    private MinioService minioService;
+
+    private DocumentService documentService;
+
+    private DocumentRepository documentRepository;
+
+    private DocumentUploadService service;
+
+    @BeforeEach
+    void setUp() {
+        minioService = mock(MinioService.class);
+        documentService = mock(DocumentService.class);
+        documentRepository = mock(DocumentRepository.class);
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getStorage().getDirectUpload().setMaxSize(DataSize.ofMegabytes(1));
+        service = new DocumentUploadService(
+            minioService,
+            documentService,
+            documentRepository,
+            mock(RenditionService.class),
+            new UploadValidator(properties, new SimpleMeterRegistry()),
+            properties
+        );
+    }
+
+    @Test
+    void shouldPresignAnUploadBoundToTheDeclaredFile() {
+        when(minioService.getBucketUrl()).thenReturn("http://minio:9000/kyc-documents");
+        when(minioService.getPresignedPostFormData(anyString(), eq("image/jpeg"), eq(1000L), any())).thenReturn(Map.of("policy", "p"));
+
+        DocumentUploadDTO upload = service.initiate(new DocumentUploadRequestDTO("image/jpeg", 1000L));
+
+        assertThat(upload.objectName()).startsWith("upload-").doesNotContain("/");
+        assertThat(upload.url()).isEqualTo("http://minio:9000/kyc-documents");
+        assertThat(upload.formData()).containsEntry("policy", "p");
+    }
+
+    @Test
+    void shouldRefuseFilesOutsideTheConstraints() {
+        assertThatThrownBy(() -> service.initiate(new DocumentUploadRequestDTO("text/html", 1000L))).isInstanceOf(
+            InvalidDocumentUploadException.class
+        );
+        assertThatThrownBy(() -> service.initiate(new DocumentUploadRequestDTO("image/jpeg", 2L * 1024 * 1024))).isInstanceOf(
+            InvalidDocumentUploadException.class
+        );
+        verify(minioService, never()).getPresignedPostFormData(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void shouldRegisterAnUploadedObjectAsADocument() throws IOException {
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.contentType()).thenReturn("application/pdf");
+        when(stat.size()).thenReturn(5000L);
+        when(minioService.findObject("upload-abc")).thenReturn(Optional.of(stat));
+        when(minioService.getObject("upload-abc", 0, UploadValidator.HEADER_LIMIT)).thenReturn(content("%PDF-1.7\n"));
+        when(documentService.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        DocumentDTO document = service.finalizeUpload(new DocumentUploadFinalizeDTO("upload-abc", 7L));
+
+        assertThat(document.getFileUrl()).isEqualTo("upload-abc");
+        assertThat(document.getCustomer().getId()).isEqualTo(7L);
+        assertThat(document.getCreatedAt()).isNotNull();
+    }
+
+    @Test
+    void shouldNotFinalizeMissingForeignOrAlreadyRegisteredObjects() {
+        when(minioService.findObject("upload-missing")).thenReturn(Optional.empty());
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.contentType()).thenReturn("image/png");
+        when(stat.size()).thenReturn(10L);
+        when(minioService.findObject("upload-done")).thenReturn(Optional.of(stat));
+        when(documentRepository.existsByFileUrl("upload-done")).thenReturn(true);
+
+        assertThatThrownBy(() -> service.finalizeUpload(new DocumentUploadFinalizeDTO("upload-missing", null))).isInstanceOf(
+            InvalidDocumentUploadException.class
+        );
+        assertThatThrownBy(() -> service.finalizeUpload(new DocumentUploadFinalizeDTO("3f2a-passport.jpg", null))).isInstanceOf(
+            InvalidDocumentUploadException.class
+        );
+        assertThatThrownBy(() -> service.finalizeUpload(new DocumentUploadFinalizeDTO("upload-done", null))).isInstanceOf(
+            InvalidDocumentUploadException.class
+        );
+        verify(documentService, never()).save(any());
+    }
+
+    @Test
+    void shouldNotFinalizeAnObjectRegisteredAtTheSameTimeByAnotherRequest() throws IOException {
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.contentType()).thenReturn("application/pdf");
+        when(stat.size()).thenReturn(5000L);
+        when(minioService.findObject("upload-abc")).thenReturn(Optional.of(stat));
+        when(minioService.getObject("upload-abc", 0, UploadValidator.HEADER_LIMIT)).thenReturn(content("%PDF-1.7\n"));
+        when(documentService.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        doThrow(new DataIntegrityViolationException("ux_document__upload_file_url")).when(documentRepository).flush();
+
+        assertThatThrownBy(() -> service.finalizeUpload(new DocumentUploadFinalizeDTO("upload-abc", null)))
+            .isInstanceOf(InvalidDocumentUploadException.class)
+            .hasMessageContaining("already registered");
+    }
+
+    @Test
+    void shouldNotFinalizeAnObjectWhoseContentIsNotOfItsDeclaredType() throws IOException {
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.contentType()).thenReturn("image/jpeg");
+        when(stat.size()).thenReturn(20L);
+        when(minioService.findObject("upload-fake")).thenReturn(Optional.of(stat));
+        when(minioService.getObject("upload-fake", 0, UploadValidator.HEADER_LIMIT)).thenReturn(content("%PDF-1.7\n"));
+
+        assertThatThrownBy(() -> service.finalizeUpload(new DocumentUploadFinalizeDTO("upload-fake", null)))
+            .isInstanceOf(InvalidDocumentUploadException.class)
+            .hasMessageContaining("application/pdf");
+        verify(documentService, never()).save(any());
+    }
+
+    private static InputStream content(String header) {
+        return new ByteArrayInputStream(header.getBytes(StandardCharsets.US_ASCII));
+    }
+}
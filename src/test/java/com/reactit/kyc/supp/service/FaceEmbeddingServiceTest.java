@@ -0,0 +1,49 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.domain.FaceEmbedding;
+import com.reactit.kyc.supp.domain.FaceEmbeddingId;
+import com.reactit.kyc.supp.repository.FaceEmbeddingRepository;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link FaceEmbeddingService}.
+ */
+class FaceEmbeddingServiceTest {
+
+    @Test
+    void shouldComputeCosineDistance() {
+        float[] a = { 1, 0, 0 };
+
+        assertThat(FaceEmbeddingService.cosineDistance(a, new float[] { 2, 0, 0 })).isCloseTo(0, within(1e-9));
+        assertThat(FaceEmbeddingService.cosineDistance(a, new float[] { 0, 3, 0 })).isCloseTo(1, within(1e-9));
+        assertThat(FaceEmbeddingService.cosineDistance(a, new float[] { -1, 0, 0 })).isCloseTo(2, within(1e-9));
+    }
+
+    @Test
+    void shouldRoundTripStoredEmbeddings() {
+        float[] embedding = { 0.25f, -1.5f, 3.0e-7f, Float.MAX_VALUE };
+
+        assertThat(FaceEmbeddingService.decode(FaceEmbeddingService.encode(embedding))).containsExactly(embedding);
+    }
+
+    @Test
+    void shouldKeepTheEmbeddingsOfEachModel() {
+        FaceEmbeddingRepository repository = mock(FaceEmbeddingRepository.class);
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        when(repository.findById(new FaceEmbeddingId("hash", "Facenet"))).thenReturn(
+            Optional.of(new FaceEmbedding().contentHash("hash").model("Facenet").embedding(FaceEmbeddingService.encode(new float[] { 1, 2 })))
+        );
+        FaceEmbeddingService service = new FaceEmbeddingService(repository, new ApplicationProperties());
+
+        assertThat(service.find("hash", "Facenet")).hasValueSatisfying(embedding -> assertThat(embedding).containsExactly(1, 2));
+        assertThat(service.find("hash", "Facenet-onnx")).isEmpty();
+    }
+}
@@ -0,0 +1,131 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.domain.FaceMatch;
+import com.reactit.kyc.supp.repository.FaceMatchRepository;
+import com.reactit.kyc.supp.service.dto.FaceMatchBatchDTO;
+import com.reactit.kyc.supp.service.dto.FaceMatchBatchRequestDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.StatObjectResponse;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Test class for the {@link FaceMatchBatchService}.
+ */
+class FaceMatchBatchServiceTest {
+
+    private FaceVerificationService faceVerificationService;
+
+    private FaceMatchRepository faceMatchRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private FaceMatchBatchService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        faceVerificationService = mock(FaceVerificationService.class);
+        MinioService minioService = mock(MinioService.class);
+        faceMatchRepository = mock(FaceMatchRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.contentType()).thenReturn("image/jpeg");
+        when(minioService.objectNameOf(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(minioService.statObject(anyString())).thenReturn(stat);
+        when(faceVerificationService.verifyFaceMatch(any(StreamingMultipartBody.Part.class), any(StreamingMultipartBody.Part.class))).thenReturn(
+            "{\"verified\":true,\"distance\":0.2}"
+        );
+        service = new FaceMatchBatchService(
+            faceVerificationService,
+            minioService,
+            faceMatchRepository,
+            jdbcTemplate,
+            new ObjectMapper(),
+            Runnable::run,
+            new SimpleMeterRegistry(),
+            new ApplicationProperties()
+        );
+    }
+
+    @Test
+    void shouldReportFaceMatchesThatDoNotExist() {
+        when(faceMatchRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(faceMatch(1L)));
+
+        FaceMatchBatchDTO batch = service.submit(request(List.of(1L, 2L)));
+
+        FaceMatchBatchDTO progress = service.findBatch(batch.getBatchId()).orElseThrow();
+        assertThat(progress.getStatus()).isEqualTo(FaceMatchBatchDTO.Status.COMPLETED);
+        assertThat(progress.getMissingIds()).containsExactly(2L);
+        assertThat(progress.getProcessed()).isEqualTo(progress.getTotal()).isEqualTo(2);
+        assertThat(progress.getSucceeded()).isEqualTo(1);
+        assertThat(progress.getFailed()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldWriteTheScoresAlreadyComputedWhenTheBatchFails() {
+        FaceMatchBatchRequestDTO request = request(List.of(1L, 2L));
+        request.setBatchSize(1);
+        when(faceMatchRepository.findAllById(List.of(1L))).thenReturn(List.of(faceMatch(1L)));
+        when(faceMatchRepository.findAllById(List.of(2L))).thenThrow(new IllegalStateException("database gone"));
+
+        FaceMatchBatchDTO batch = service.submit(request);
+
+        FaceMatchBatchDTO progress = service.findBatch(batch.getBatchId()).orElseThrow();
+        assertThat(progress.getStatus()).isEqualTo(FaceMatchBatchDTO.Status.FAILED);
+        assertThat(progress.getError()).isEqualTo("database gone");
+        verify(jdbcTemplate).batchUpdate(eq("update face_match set match = ?, score = ? where id = ?"), anyList());
+    }
+
+    @Test
+    void shouldTreatMissingListsAsEmpty() {
+        FaceMatchBatchRequestDTO request = new FaceMatchBatchRequestDTO();
+        request.setFaceMatchIds(null);
+        request.setPairs(null);
+
+        FaceMatchBatchDTO batch = service.submit(request);
+
+        FaceMatchBatchDTO progress = service.findBatch(batch.getBatchId()).orElseThrow();
+        assertThat(progress.getStatus()).isEqualTo(FaceMatchBatchDTO.Status.COMPLETED);
+        assertThat(progress.getTotal()).isZero();
+    }
+
+    @Test
+    void shouldPassOnTheContentHashImagesAreStoredUnder() throws Exception {
+        String selfieHash = "a".repeat(64);
+        when(faceMatchRepository.findAllById(List.of(1L))).thenReturn(
+            List.of(faceMatch(1L).selfieUrl(selfieHash).idPhotoUrl("id-photos/1.jpg"))
+        );
+
+        service.submit(request(List.of(1L)));
+
+        ArgumentCaptor<StreamingMultipartBody.Part> selfie = ArgumentCaptor.forClass(StreamingMultipartBody.Part.class);
+        ArgumentCaptor<StreamingMultipartBody.Part> idPhoto = ArgumentCaptor.forClass(StreamingMultipartBody.Part.class);
+        verify(faceVerificationService).verifyFaceMatch(selfie.capture(), idPhoto.capture());
+        assertThat(selfie.getValue().contentHash()).isEqualTo(selfieHash);
+        assertThat(idPhoto.getValue().contentHash()).isNull();
+    }
+
+    private static FaceMatchBatchRequestDTO request(List<Long> ids) {
+        FaceMatchBatchRequestDTO request = new FaceMatchBatchRequestDTO();
+        request.setFaceMatchIds(ids);
+        return request;
+    }
+
+    private static FaceMatch faceMatch(Long id) {
+        return new FaceMatch().id(id).selfieUrl("selfies/" + id + ".jpg").idPhotoUrl("id-photos/" + id + ".jpg");
+    }
+}
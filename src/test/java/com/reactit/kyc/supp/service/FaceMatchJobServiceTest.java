@@ -0,0 +1,257 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.domain.FaceMatch;
+import com.reactit.kyc.supp.domain.enumeration.FaceMatchJobStatus;
+import com.reactit.kyc.supp.repository.CustomerRepository;
+import com.reactit.kyc.supp.repository.FaceMatchRepository;
+import com.reactit.kyc.supp.service.dto.FaceMatchDTO;
+import com.reactit.kyc.supp.service.dto.FaceMatchJobDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Test class for the submission of jobs by the {@link FaceMatchJobService}.
+ */
+class FaceMatchJobServiceTest {
+
+    private final List<Path> spooled = new ArrayList<>();
+
+    private byte[] jpeg;
+
+    private ImageRecompressionService imageRecompressionService;
+
+    private RenditionService renditionService;
+
+    private FaceMatchRepository faceMatchRepository;
+
+    private TaskExecutor executor;
+
+    private FaceVerificationService faceVerificationService;
+
+    private FaceMatchService faceMatchService;
+
+    private FaceMatchJobService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        imageRecompressionService = mock(ImageRecompressionService.class);
+        renditionService = mock(RenditionService.class);
+        faceMatchRepository = mock(FaceMatchRepository.class);
+        executor = mock(TaskExecutor.class);
+        faceVerificationService = mock(FaceVerificationService.class);
+        faceMatchService = mock(FaceMatchService.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_3BYTE_BGR), "jpg", out);
+        jpeg = out.toByteArray();
+        when(imageRecompressionService.store(any(), anyString())).thenReturn("key");
+        when(faceMatchRepository.save(any(FaceMatch.class))).thenAnswer(invocation -> invocation.<FaceMatch>getArgument(0).id(42L));
+        service = new FaceMatchJobService(
+            faceVerificationService,
+            imageRecompressionService,
+            new UploadValidator(new ApplicationProperties(), new SimpleMeterRegistry()),
+            renditionService,
+            faceMatchRepository,
+            mock(CustomerRepository.class),
+            faceMatchService,
+            executor,
+            mock(RestTemplate.class),
+            new ObjectMapper(),
+            new ApplicationProperties()
+        );
+    }
+
+    @Test
+    void shouldDiscardTheJobWhenTheQueueIsFull() {
+        doThrow(new RejectedExecutionException()).when(executor).execute(any());
+
+        assertThatThrownBy(() -> service.submit(upload("selfie"), upload("id"), null, null)).isInstanceOf(
+            FaceVerificationUnavailableException.class
+        );
+
+        verify(faceMatchRepository).deleteById(42L);
+        assertThat(spooled).hasSize(2).noneMatch(Files::exists);
+    }
+
+    @Test
+    void shouldDiscardTheJobWhenPreparingItFails() {
+        doThrow(new IllegalStateException("boom")).when(renditionService).prepare(eq("key"));
+
+        assertThatThrownBy(() -> service.submit(upload("selfie"), upload("id"), null, null)).hasMessage("boom");
+
+        verify(faceMatchRepository).deleteById(42L);
+        verify(executor, never()).execute(any());
+        assertThat(spooled).hasSize(2).noneMatch(Files::exists);
+    }
+
+    @Test
+    void shouldNotStoreAnythingWhenAnUploadCannotBeSpooled() throws IOException {
+        MultipartFile unreadable = new MockMultipartFile("idPhoto", "id.jpg", "image/jpeg", jpeg) {
+            @Override
+            public void transferTo(Path dest) throws IOException {
+                throw new IOException("gone");
+            }
+        };
+
+        assertThatThrownBy(() -> service.submit(upload("selfie"), unreadable, null, null)).hasMessage("gone");
+
+        verify(imageRecompressionService, never()).store(any(), anyString());
+        verify(faceMatchRepository, never()).save(any(FaceMatch.class));
+        assertThat(spooled).hasSize(1).noneMatch(Files::exists);
+    }
+
+    @Test
+    void shouldRefuseUploadsThatAreNotImagesBeforeStoringAnything() {
+        MultipartFile pdf = new MockMultipartFile("idPhoto", "id.jpg", "image/jpeg", "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII));
+
+        assertThatThrownBy(() -> service.submit(upload("selfie"), pdf, null, null)).isInstanceOf(InvalidDocumentUploadException.class);
+
+        verify(imageRecompressionService, never()).store(any(), anyString());
+        assertThat(spooled).isEmpty();
+    }
+
+    @Test
+    void shouldRefuseCallbacksToHostsThatAreNotAllowedBeforeStoringAnything() {
+        assertThatThrownBy(() -> service.submit(upload("selfie"), upload("id"), null, "https://attacker.example/hook")).isInstanceOf(
+            InvalidCallbackUrlException.class
+        );
+        assertThatThrownBy(() -> service.submit(upload("selfie"), upload("id"), null, "not a url")).isInstanceOf(
+            InvalidCallbackUrlException.class
+        );
+
+        verify(imageRecompressionService, never()).store(any(), anyString());
+        assertThat(spooled).isEmpty();
+    }
+
+    @Test
+    void shouldRecordTheJobAsPendingWhenSubmitted() throws IOException {
+        service.submit(upload("selfie"), upload("id"), null, null);
+
+        ArgumentCaptor<FaceMatch> saved = ArgumentCaptor.forClass(FaceMatch.class);
+        verify(faceMatchRepository).save(saved.capture());
+        assertThat(saved.getValue().getJobStatus()).isEqualTo(FaceMatchJobStatus.PENDING);
+        assertThat(saved.getValue().getJobUpdatedAt()).isNotNull();
+    }
+
+    @Test
+    void shouldRecordTheResultOfTheJob() throws IOException {
+        when(faceMatchRepository.moveJob(eq(42L), eq(FaceMatchJobStatus.PENDING), eq(FaceMatchJobStatus.RUNNING), any())).thenReturn(1);
+        when(faceVerificationService.verifyFaceMatch(any(StreamingMultipartBody.Part.class), any(StreamingMultipartBody.Part.class)))
+            .thenReturn("{\"verified\": true, \"distance\": 0.2}");
+
+        queued(service.submit(upload("selfie"), upload("id"), null, null)).run();
+
+        verify(faceMatchRepository).completeJob(eq(42L), eq(true), eq(0.2), eq(FaceMatchJobStatus.COMPLETED), any());
+        verify(faceMatchRepository, never()).failJob(any(), any(), any(), any());
+        assertThat(spooled).hasSize(2).noneMatch(Files::exists);
+    }
+
+    @Test
+    void shouldRecordTheErrorOfAFailedJob() throws IOException {
+        when(faceMatchRepository.moveJob(eq(42L), eq(FaceMatchJobStatus.PENDING), eq(FaceMatchJobStatus.RUNNING), any())).thenReturn(1);
+        when(faceVerificationService.verifyFaceMatch(any(StreamingMultipartBody.Part.class), any(StreamingMultipartBody.Part.class)))
+            .thenThrow(new IOException("DeepFace is down"));
+
+        queued(service.submit(upload("selfie"), upload("id"), null, null)).run();
+
+        verify(faceMatchRepository).failJob(eq(42L), eq(FaceMatchJobStatus.FAILED), eq("DeepFace is down"), any());
+        assertThat(spooled).hasSize(2).noneMatch(Files::exists);
+    }
+
+    @Test
+    void shouldNotRunAJobFailedWhileQueued() throws IOException {
+        when(faceMatchRepository.moveJob(eq(42L), eq(FaceMatchJobStatus.PENDING), eq(FaceMatchJobStatus.RUNNING), any())).thenReturn(0);
+
+        queued(service.submit(upload("selfie"), upload("id"), null, null)).run();
+
+        verify(faceVerificationService, never()).verifyFaceMatch(
+            any(StreamingMultipartBody.Part.class),
+            any(StreamingMultipartBody.Part.class)
+        );
+        verify(faceMatchRepository, never()).completeJob(any(), any(), any(), any(), any());
+        assertThat(spooled).hasSize(2).noneMatch(Files::exists);
+    }
+
+    @Test
+    void shouldTellThePersistedStatusOfAJob() {
+        Instant updatedAt = Instant.parse("2026-10-18T10:00:00Z");
+        FaceMatchDTO faceMatch = new FaceMatchDTO();
+        faceMatch.setId(42L);
+        faceMatch.setJobStatus(FaceMatchJobStatus.FAILED);
+        faceMatch.setJobError(FaceMatchJobService.ORPHANED_ERROR);
+        faceMatch.setJobUpdatedAt(updatedAt);
+        when(faceMatchService.findOne(42L)).thenReturn(Optional.of(faceMatch));
+
+        assertThat(service.findJob(42L)).hasValueSatisfying(job -> {
+            assertThat(job.getStatus()).isEqualTo(FaceMatchJobDTO.Status.FAILED);
+            assertThat(job.getError()).isEqualTo(FaceMatchJobService.ORPHANED_ERROR);
+            assertThat(job.getUpdatedAt()).isEqualTo(updatedAt);
+        });
+    }
+
+    @Test
+    void shouldFailJobsWithoutProgressForTheOrphanTimeout() {
+        when(faceMatchRepository.failStaleJobs(any(), any(), any(), any(), any())).thenReturn(3);
+        Instant before = Instant.now();
+
+        assertThat(service.failOrphanedJobs()).isEqualTo(3);
+
+        ArgumentCaptor<Instant> staleBefore = ArgumentCaptor.forClass(Instant.class);
+        verify(faceMatchRepository).failStaleJobs(
+            eq(List.of(FaceMatchJobStatus.PENDING, FaceMatchJobStatus.RUNNING)),
+            staleBefore.capture(),
+            eq(FaceMatchJobStatus.FAILED),
+            eq(FaceMatchJobService.ORPHANED_ERROR),
+            any()
+        );
+        assertThat(staleBefore.getValue()).isBeforeOrEqualTo(before.minus(Duration.ofMinutes(15)).plusSeconds(1));
+    }
+
+    private Runnable queued(FaceMatchJobDTO job) {
+        assertThat(job.getStatus()).isEqualTo(FaceMatchJobDTO.Status.PENDING);
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(task.capture());
+        return task.getValue();
+    }
+
+    private MultipartFile upload(String name) {
+        return new MockMultipartFile(name, name + ".jpg", "image/jpeg", jpeg) {
+            @Override
+            public void transferTo(Path dest) throws IOException {
+                spooled.add(dest);
+                super.transferTo(dest);
+            }
+        };
+    }
+}
@@ -0,0 +1,155 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.FileSystemResource;
+
+/**
+ * Compares the latency and throughput of the face verification engines on a local image set.
+ * <p>
+ * Not picked up by the regular test run, start it with:
+ * <pre>
+ * ./mvnw test [-Pdev,onnx] -Dtest=FaceVerificationEngineBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dface.benchmark.images=/path/to/images [-Dface.benchmark.url=http://localhost:8000] \
+ *     [-Dface.benchmark.onnx-model=/path/to/facenet.onnx] [-Dface.benchmark.threads=4] [-Dface.benchmark.rounds=3]
+ * </pre>
+ * The HTTP engine needs the sidecar running, the ONNX engine is skipped when no model is given and needs the {@code onnx}
+ * Maven profile.
+ */
+@EnabledIfSystemProperty(named = "face.benchmark.images", matches = ".+")
+class FaceVerificationEngineBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FaceVerificationEngineBenchmark.class);
+
+    @Test
+    void compareEngines() throws Exception {
+        List<StreamingMultipartBody.Part> images = loadImages(Paths.get(System.getProperty("face.benchmark.images")));
+        assertThat(images).as("images to benchmark").isNotEmpty();
+        int threads = Integer.getInteger("face.benchmark.threads", Runtime.getRuntime().availableProcessors());
+        int rounds = Integer.getInteger("face.benchmark.rounds", 3);
+
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getFaceVerification().setUrl(System.getProperty("face.benchmark.url", "http://localhost:8000"));
+        properties.getFaceVerification().getClient().setMaxConcurrentRequests(threads);
+        HttpFaceVerificationEngine httpEngine = new HttpFaceVerificationEngine(
+            new RestTemplateBuilder().rootUri(properties.getFaceVerification().getUrl()).build(),
+            new ObjectMapper(),
+            new SimpleMeterRegistry(),
+            properties
+        );
+        run(httpEngine, images, threads, rounds);
+
+        String onnxModel = System.getProperty("face.benchmark.onnx-model");
+        if (onnxModel != null) {
+            // only built with the onnx profile; only embeddings are timed, the threshold is never used
+            FaceVerificationEngine onnxEngine = (FaceVerificationEngine) Class.forName(
+                "com.reactit.kyc.supp.service.OnnxFaceVerificationEngine"
+            )
+                .getConstructor(String.class, String.class, Double.class, int.class)
+                .newInstance(onnxModel, "Facenet-onnx", 0.0, 0);
+            try (AutoCloseable closing = (AutoCloseable) onnxEngine) {
+                run(onnxEngine, images, threads, rounds);
+            }
+        }
+    }
+
+    private static void run(FaceVerificationEngine engine, List<StreamingMultipartBody.Part> images, int threads, int rounds)
+        throws Exception {
+        // warm up connections, JIT and model
+        for (StreamingMultipartBody.Part image : images.subList(0, Math.min(3, images.size()))) {
+            embedQuietly(engine, image);
+        }
+
+        long[] latencies = new long[images.size() * rounds];
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < images.size(); i++) {
+                long start = System.nanoTime();
+                embedQuietly(engine, images.get(i));
+                latencies[round * images.size() + i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(latencies);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger next = new AtomicInteger();
+        int total = images.size() * rounds;
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(
+                    executor.submit(() -> {
+                        int i;
+                        while ((i = next.getAndIncrement()) < total) {
+                            embedQuietly(engine, images.get(i % images.size()));
+                        }
+                        return null;
+                    })
+                );
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        LOG.info(
+            "{} engine: {} images, latency p50 {} ms, p95 {} ms, max {} ms; throughput {} images/s with {} threads",
+            engine.name(),
+            latencies.length,
+            String.format("%.1f", percentile(latencies, 0.50)),
+            String.format("%.1f", percentile(latencies, 0.95)),
+            String.format("%.1f", latencies[latencies.length - 1] / 1e6),
+            String.format("%.2f", total / seconds),
+            threads
+        );
+    }
+
+    private static void embedQuietly(FaceVerificationEngine engine, StreamingMultipartBody.Part image) throws IOException {
+        try {
+            engine.embed(image);
+        } catch (FaceEmbeddingException e) {
+            // no face found still costs a full inference, it is measured like the others
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+
+    private static List<StreamingMultipartBody.Part> loadImages(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<StreamingMultipartBody.Part> images = new ArrayList<>();
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                String name = file.getFileName().toString().toLowerCase();
+                if (name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png")) {
+                    String contentType = name.endsWith(".png") ? "image/png" : "image/jpeg";
+                    images.add(new StreamingMultipartBody.Part(name, name, contentType, Files.size(file), new FileSystemResource(file)));
+                }
+            }
+            return images;
+        }
+    }
+}
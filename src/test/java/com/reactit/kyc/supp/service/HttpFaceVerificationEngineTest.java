@@ -0,0 +1,172 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.web.client.HttpServerErrorException;
+
+/**
+ * Test class for the resilience of the {@link HttpFaceVerificationEngine}, against a local stub of the sidecar.
+ */
+class HttpFaceVerificationEngineTest {
+
+    private static final String EMBEDDING = "{\"model\":\"Facenet\",\"embedding\":[1.0,0.0]}";
+
+    private static final StreamingMultipartBody.Part IMAGE = new StreamingMultipartBody.Part(
+        "img1",
+        "selfie.jpg",
+        "image/jpeg",
+        3,
+        new ByteArrayResource(new byte[] { 1, 2, 3 })
+    );
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private volatile int status = 200;
+
+    private volatile long delayMillis;
+
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    private ApplicationProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/represent", this::represent);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        properties = new ApplicationProperties();
+        properties.getFaceVerification().setUrl("http://localhost:" + server.getAddress().getPort());
+        properties.getFaceVerification().getClient().setMaxConcurrentRequests(2);
+        properties.getFaceVerification().getClient().setAcquireTimeout(Duration.ofMillis(100));
+        ApplicationProperties.FaceVerification.Resilience resilience = properties.getFaceVerification().getResilience();
+        resilience.setSlidingWindowSize(4);
+        resilience.setMinimumCalls(4);
+        resilience.setOpenDuration(Duration.ofMillis(300));
+        resilience.setHalfOpenCalls(1);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void stopStub() {
+        release.countDown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void shouldOpenTheCircuitAndFailFastWithRetryAfter() throws Exception {
+        HttpFaceVerificationEngine engine = engine();
+        status = 500;
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> engine.embed(IMAGE)).isInstanceOf(HttpServerErrorException.class);
+        }
+
+        assertThatThrownBy(() -> engine.embed(IMAGE))
+            .isInstanceOfSatisfying(FaceVerificationUnavailableException.class, e ->
+                assertThat(e.getRetryAfter()).isPositive().isLessThanOrEqualTo(Duration.ofMillis(300))
+            );
+        assertThat(hits.get()).isEqualTo(4);
+        assertThat(engine.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(meterRegistry.get("kyc.face.verification.rejected").tag("reason", "circuit_open").counter().count()).isEqualTo(1);
+
+        status = 200;
+        Thread.sleep(350);
+        assertThat(engine.embed(IMAGE)).containsExactly(1f, 0f);
+        assertThat(engine.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void shouldRejectCallsOverTheConcurrencyLimit() throws Exception {
+        HttpFaceVerificationEngine engine = engine();
+        release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            callers.submit(() -> engine.embed(IMAGE));
+            callers.submit(() -> engine.embed(IMAGE));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (hits.get() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertThat(engine.getLimiter().getInFlight()).isEqualTo(2);
+            assertThatThrownBy(() -> engine.embed(IMAGE))
+                .isInstanceOfSatisfying(FaceVerificationUnavailableException.class, e ->
+                    assertThat(e.getRetryAfter()).isEqualTo(Duration.ofMillis(100))
+                );
+            assertThat(hits.get()).isEqualTo(2);
+        } finally {
+            release.countDown();
+            callers.shutdown();
+            callers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        assertThat(engine.getLimiter().getInFlight()).isZero();
+    }
+
+    @Test
+    void shouldShrinkTheLimitWhenTheSidecarSlowsDown() throws Exception {
+        properties.getFaceVerification().getResilience().setLatencyThreshold(Duration.ofMillis(50));
+        HttpFaceVerificationEngine engine = engine();
+        assertThat(engine.getLimiter().getLimit()).isEqualTo(2);
+
+        delayMillis = 100;
+        engine.embed(IMAGE);
+
+        assertThat(engine.getLimiter().getLimit()).isEqualTo(1);
+        assertThat(meterRegistry.get("kyc.face.verification.concurrency.limit").gauge().value()).isEqualTo(1);
+    }
+
+    private HttpFaceVerificationEngine engine() {
+        return new HttpFaceVerificationEngine(
+            new RestTemplateBuilder().rootUri(properties.getFaceVerification().getUrl()).build(),
+            new ObjectMapper(),
+            meterRegistry,
+            properties
+        );
+    }
+
+    private void represent(HttpExchange exchange) throws IOException {
+        hits.incrementAndGet();
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = (status == 200 ? EMBEDDING : "{\"detail\":\"boom\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+}
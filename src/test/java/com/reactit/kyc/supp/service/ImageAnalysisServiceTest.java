@@ -0,0 +1,122 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Test class for the {@link ImageAnalysisService} worker pool, against a stub analyzer speaking the same protocol.
+ */
+class ImageAnalysisServiceTest {
+
+    private static final String PYTHON = "python3";
+
+    /**
+     * Answers like {@code image-analyzer.py --serve}, with its pid as score; images containing "crash" or "hang" make it
+     * exit or stall.
+     */
+    private static final String STUB_ANALYZER = String.join(
+        "\n",
+        "import json, os, sys, time",
+        "for line in sys.stdin:",
+        "    request = json.loads(line)",
+        "    if request.get('ping'):",
+        "        response = {'pong': True}",
+        "    else:",
+        "        content = open(request['path']).read()",
+        "        if content == 'crash':",
+        "            sys.exit(1)",
+        "        if content == 'hang':",
+        "            time.sleep(60)",
+        "        response = {'qualityScore': os.getpid(), 'issues': ['None']}",
+        "    response['id'] = request['id']",
+        "    sys.stdout.write(json.dumps(response) + '\\n')",
+        "    sys.stdout.flush()",
+        ""
+    );
+
+    private ImageAnalysisService service;
+
+    @BeforeEach
+    void setUp(@TempDir Path directory) throws Exception {
+        assumeTrue(pythonAvailable(), "python3 is required");
+        Path script = Files.writeString(directory.resolve("analyzer.py"), STUB_ANALYZER);
+
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getImageAnalysis().setPythonExecutable(PYTHON);
+        properties.getImageAnalysis().setScriptPath(script.toString());
+        properties.getImageAnalysis().setPoolSize(1);
+        properties.getImageAnalysis().setRequestTimeout(Duration.ofSeconds(2));
+        service = new ImageAnalysisService(
+            new ObjectMapper(),
+            new DocumentImagePreprocessor(0),
+            new DocumentQualityAnalyzer(),
+            properties
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.destroy();
+        }
+    }
+
+    @Test
+    void shouldReuseTheSameAnalyzerProcess() throws IOException {
+        Map<String, Object> first = service.analyze(image("ok"));
+        Map<String, Object> second = service.analyze(image("ok"));
+
+        assertThat(first).containsEntry("issues", List.of("None")).doesNotContainKey("id");
+        assertThat(second.get("qualityScore")).isEqualTo(first.get("qualityScore"));
+    }
+
+    @Test
+    void shouldRestartAnAnalyzerThatCrashed() throws IOException {
+        Object pid = service.analyze(image("ok")).get("qualityScore");
+
+        assertThatThrownBy(() -> service.analyze(image("crash"))).isInstanceOf(IOException.class).hasMessageContaining("exited");
+
+        assertThat(service.analyze(image("ok")).get("qualityScore")).isNotEqualTo(pid);
+    }
+
+    @Test
+    void shouldRestartAnAnalyzerThatTimedOut() throws IOException {
+        Object pid = service.analyze(image("ok")).get("qualityScore");
+
+        assertThatThrownBy(() -> service.analyze(image("hang"))).isInstanceOf(IOException.class).hasMessageContaining("did not answer");
+
+        assertThat(service.analyze(image("ok")).get("qualityScore")).isNotEqualTo(pid);
+    }
+
+    private static MockMultipartFile image(String content) {
+        return new MockMultipartFile("file", "id.jpg", "image/jpeg", content.getBytes());
+    }
+
+    private static boolean pythonAvailable() {
+        try {
+            Process process = new ProcessBuilder(PYTHON, "--version").start();
+            return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.mock.web.MockMultipartFile;
+
+/**
+ * Test class for the {@link ImageRecompressionService}.
+ */
+class ImageRecompressionServiceTest {
+
+    private MinioService minioService;
+
+    private ApplicationProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ImageRecompressionService service;
+
+    @BeforeEach
+    void setUp() {
+        minioService = mock(MinioService.class);
+        properties = new ApplicationProperties();
+        properties.getStorage().getRecompression().setEnabled(true);
+        properties.getStorage().getRecompression().setMaxDimension(200);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ImageRecompressionService(minioService, new TaskExecutorAdapter(Runnable::run), properties, meterRegistry);
+    }
+
+    @Test
+    void shouldStoreADownscaledJpeg() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "id.png", "image/png", noise(600, 400));
+        when(minioService.uploadContent(any(), eq("image/jpeg"), anyMap())).thenReturn("recompressed");
+
+        assertThat(service.store(file, "image/png")).isEqualTo("recompressed");
+
+        ArgumentCaptor<byte[]> jpeg = ArgumentCaptor.forClass(byte[].class);
+        verify(minioService).uploadContent(jpeg.capture(), eq("image/jpeg"), eq(Map.of()));
+        verify(minioService, never()).uploadFile(any(), any());
+        BufferedImage stored = ImageIO.read(new ByteArrayInputStream(jpeg.getValue()));
+        assertThat(stored.getWidth()).isEqualTo(200);
+        assertThat(stored.getHeight()).isEqualTo(133);
+        assertThat(meterRegistry.get("kyc.storage.recompression.saved").summary().totalAmount()).isEqualTo(
+            file.getSize() - jpeg.getValue().length
+        );
+    }
+
+    @Test
+    void shouldReferenceTheOriginalWhenItIsKept() throws IOException {
+        properties.getStorage().getRecompression().setKeepOriginal(true);
+        MockMultipartFile file = new MockMultipartFile("file", "id.png", "image/png", noise(600, 400));
+        when(minioService.uploadFile(file, "image/png")).thenReturn("original");
+
+        service.store(file, "image/png");
+
+        verify(minioService).uploadContent(any(), eq("image/jpeg"), eq(Map.of("original", "original")));
+    }
+
+    @Test
+    void shouldStoreFilesThatWouldNotShrinkAsReceived() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_3BYTE_BGR), "png", png);
+        MockMultipartFile small = new MockMultipartFile("file", "dot.png", "image/png", png.toByteArray());
+        MockMultipartFile pdf = new MockMultipartFile("file", "contract.pdf", "application/pdf", new byte[1000]);
+
+        service.store(small, "image/png");
+        service.store(pdf, "application/pdf");
+
+        verify(minioService).uploadFile(small, "image/png");
+        verify(minioService).uploadFile(pdf, "application/pdf");
+        verify(minioService, never()).uploadContent(any(), any(), anyMap());
+        assertThat(meterRegistry.get("kyc.storage.recompression.uploads").tag("outcome", "unchanged").counter().count()).isEqualTo(1);
+    }
+
+    private static byte[] noise(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
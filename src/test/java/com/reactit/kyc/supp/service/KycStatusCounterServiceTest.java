@@ -0,0 +1,117 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.reactit.kyc.supp.domain.KycStatusCounter;
+import com.reactit.kyc.supp.domain.enumeration.KycStatus;
+import com.reactit.kyc.supp.repository.KycStatusCounterRepository;
+import com.reactit.kyc.supp.repository.PartnerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class for the {@link KycStatusCounterService}.
+ */
+class KycStatusCounterServiceTest {
+
+    private KycStatusCounterRepository repository;
+
+    private PartnerRepository partnerRepository;
+
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private KycStatusCounterService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(KycStatusCounterRepository.class);
+        partnerRepository = mock(PartnerRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new KycStatusCounterService(repository, partnerRepository, new TransactionTemplate(transactionManager), meterRegistry);
+    }
+
+    @Test
+    void shouldMoveACustomerBetweenCountersOnlyWhenItsStatusOrPartnerChanges() {
+        KycStatusCounter.Key pending = new KycStatusCounter.Key(7L, KycStatus.PENDING);
+        KycStatusCounter.Key verified = new KycStatusCounter.Key(7L, KycStatus.VERIFIED);
+
+        service.customerChanged(pending, new KycStatusCounter.Key(7L, KycStatus.PENDING));
+        verify(repository, never()).add(anyLong(), anyString(), anyLong());
+
+        service.customerChanged(pending, verified);
+        verify(repository).add(7L, "PENDING", -1);
+        verify(repository).add(7L, "VERIFIED", 1);
+
+        service.customerChanged(null, new KycStatusCounter.Key(KycStatusCounter.NO_PARTNER, KycStatus.REJECTED));
+        verify(repository).add(0L, "REJECTED", 1);
+    }
+
+    @Test
+    void shouldUpdateCountersInKeyOrderWhicheverWayTheCustomerMoves() {
+        KycStatusCounter.Key pending = new KycStatusCounter.Key(7L, KycStatus.PENDING);
+        KycStatusCounter.Key verified = new KycStatusCounter.Key(7L, KycStatus.VERIFIED);
+        KycStatusCounter.Key otherPartner = new KycStatusCounter.Key(3L, KycStatus.VERIFIED);
+
+        service.customerChanged(verified, pending);
+        service.customerChanged(pending, otherPartner);
+
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).add(7L, "PENDING", 1);
+        inOrder.verify(repository).add(7L, "VERIFIED", -1);
+        inOrder.verify(repository).add(3L, "VERIFIED", 1);
+        inOrder.verify(repository).add(7L, "PENDING", -1);
+    }
+
+    @Test
+    void shouldCorrectDriftedCountersOnePartnerAtATime() {
+        KycStatusCounter pending = new KycStatusCounter(1L, KycStatus.PENDING, 10L);
+        KycStatusCounter verified = new KycStatusCounter(1L, KycStatus.VERIFIED, 4L);
+        when(partnerRepository.findAllIds()).thenReturn(List.of(1L));
+        when(repository.findPartnerIds()).thenReturn(List.of(1L, 9L));
+        when(repository.findByKeyPartnerId(1L)).thenReturn(List.of(pending, verified));
+        when(repository.countCustomersOfPartner(1L)).thenReturn(
+            List.of(new KycStatusCounter(1L, KycStatus.PENDING, 8L), new KycStatusCounter(1L, KycStatus.VERIFIED, 4L))
+        );
+
+        assertThat(service.reconcile()).isEqualTo(2);
+
+        assertThat(pending.getCustomerCount()).isEqualTo(8);
+        assertThat(verified.getCustomerCount()).isEqualTo(4);
+        assertThat(meterRegistry.get("kyc.customers.status.counter.drift").counter().count()).isEqualTo(2);
+        // no partner, partner 1 and the deleted partner 9, each in its own transaction
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void shouldLockTheCountersOfThePartnerInKeyOrderBeforeCounting() {
+        service.reconcile();
+
+        InOrder inOrder = inOrder(repository);
+        KycStatus[] statuses = KycStatus.values();
+        Arrays.sort(statuses, Comparator.comparing(KycStatus::name));
+        for (KycStatus status : statuses) {
+            inOrder.verify(repository).add(KycStatusCounter.NO_PARTNER, status.name(), 0);
+        }
+        inOrder.verify(repository).countCustomersOfPartner(KycStatusCounter.NO_PARTNER);
+        inOrder.verify(repository).findByKeyPartnerId(KycStatusCounter.NO_PARTNER);
+    }
+}
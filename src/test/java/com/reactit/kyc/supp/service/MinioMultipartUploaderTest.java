@@ -0,0 +1,217 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioAsyncClient;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Test class for the {@link MinioMultipartUploader}, against a local stand-in implementing the S3 multipart calls.
+ */
+class MinioMultipartUploaderTest {
+
+    private static final String XMLNS = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+
+    private final AtomicInteger maxConcurrentParts = new AtomicInteger();
+
+    private final AtomicInteger concurrentParts = new AtomicInteger();
+
+    private final Set<String> aborted = ConcurrentHashMap.newKeySet();
+
+    private volatile byte[] completed;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MinioMultipartUploader uploader;
+
+    private MinioMultipartUploader singleThreadUploader;
+
+    private MinioAsyncClient client;
+
+    private ApplicationProperties.Storage.Multipart properties;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        properties = new ApplicationProperties().getStorage().getMultipart();
+        properties.setPartSize(DataSize.ofKilobytes(4));
+        properties.setConcurrency(3);
+        properties.setMaxAttempts(2);
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        meterRegistry = new SimpleMeterRegistry();
+        client = MinioAsyncClient.builder()
+            .endpoint("http://localhost:" + server.getAddress().getPort())
+            .region("us-east-1")
+            .credentials("minioadmin", "minioadmin")
+            .build();
+        uploader = new MinioMultipartUploader(client, properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (singleThreadUploader != null) {
+            singleThreadUploader.close();
+        }
+        uploader.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void shouldUploadPartsInParallelAndRetryFailedOnes() throws IOException {
+        byte[] content = new byte[4096 * 10 + 123];
+        new Random(42).nextBytes(content);
+        failuresLeft.set(1);
+
+        uploader.upload("kyc-documents", "video.mp4", "video/mp4", new ByteArrayInputStream(content));
+
+        assertThat(parts).hasSize(11);
+        assertThat(completed).isEqualTo(content);
+        assertThat(maxConcurrentParts.get()).isBetween(2, 3);
+        assertThat(meterRegistry.get("kyc.storage.multipart.part.retries").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("kyc.storage.multipart.part.duration").tag("outcome", "success").timer().count()).isEqualTo(11);
+        assertThat(meterRegistry.get("kyc.storage.multipart.part.throughput").summary().count()).isEqualTo(11);
+        assertThat(meterRegistry.get("kyc.storage.multipart.uploads").tag("outcome", "completed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAbortTheUploadWhenAPartKeepsFailing() {
+        byte[] content = new byte[4096 * 3];
+        failuresLeft.set(Integer.MAX_VALUE);
+
+        assertThatThrownBy(() -> uploader.upload("kyc-documents", "video.mp4", null, new ByteArrayInputStream(content))).isInstanceOf(
+            IOException.class
+        );
+
+        assertThat(completed).isNull();
+        assertThat(aborted).containsExactly("upload-1");
+        assertThat(meterRegistry.get("kyc.storage.multipart.uploads").tag("outcome", "aborted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldGiveBackTheBuffersOfPartsCancelledBeforeTheyStarted() {
+        // one thread for three buffers: parts wait in the queue while the failing one is retried
+        singleThreadUploader = new MinioMultipartUploader(client, properties, meterRegistry, Executors.newSingleThreadExecutor());
+        byte[] content = new byte[4096 * 10];
+        failuresLeft.set(Integer.MAX_VALUE);
+
+        assertThatThrownBy(() ->
+            singleThreadUploader.upload("kyc-documents", "video.mp4", null, new ByteArrayInputStream(content))
+        ).isInstanceOf(IOException.class);
+
+        assertThat(aborted).containsExactly("upload-1");
+        assertThat(singleThreadUploader.availableBuffers()).isEqualTo(3);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+            if ("POST".equals(method) && query.containsKey("uploads")) {
+                respond(
+                    exchange,
+                    200,
+                    "<InitiateMultipartUploadResult xmlns=\"" +
+                    XMLNS +
+                    "\"><Bucket>kyc-documents</Bucket><Key>video.mp4</Key><UploadId>upload-1</UploadId></InitiateMultipartUploadResult>"
+                );
+            } else if ("PUT".equals(method) && query.containsKey("partNumber")) {
+                uploadPart(exchange, Integer.parseInt(query.get("partNumber")), body);
+            } else if ("POST".equals(method) && query.containsKey("uploadId")) {
+                ByteArrayOutputStream object = new ByteArrayOutputStream();
+                new TreeMap<>(parts).values().forEach(part -> object.write(part, 0, part.length));
+                completed = object.toByteArray();
+                respond(
+                    exchange,
+                    200,
+                    "<CompleteMultipartUploadResult xmlns=\"" +
+                    XMLNS +
+                    "\"><Location>/kyc-documents/video.mp4</Location><Bucket>kyc-documents</Bucket><Key>video.mp4</Key>" +
+                    "<ETag>\"final\"</ETag></CompleteMultipartUploadResult>"
+                );
+            } else if ("DELETE".equals(method) && query.containsKey("uploadId")) {
+                aborted.add(query.get("uploadId"));
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                respond(exchange, 400, error("InvalidRequest"));
+            }
+        }
+    }
+
+    private void uploadPart(HttpExchange exchange, int partNumber, byte[] body) throws IOException {
+        int concurrent = concurrentParts.incrementAndGet();
+        maxConcurrentParts.accumulateAndGet(concurrent, Math::max);
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrentParts.decrementAndGet();
+        }
+        if (partNumber == 2 && failuresLeft.getAndDecrement() > 0) {
+            respond(exchange, 500, error("InternalError"));
+            return;
+        }
+        parts.put(partNumber, body);
+        exchange.getResponseHeaders().set("ETag", "\"etag-" + partNumber + "\"");
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private static String error(String code) {
+        return "<Error><Code>" + code + "</Code><Message>stand-in failure</Message><RequestId>1</RequestId></Error>";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new TreeMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                query.put(equals < 0 ? parameter : parameter.substring(0, equals), equals < 0 ? "" : parameter.substring(equals + 1));
+            }
+        }
+        return query;
+    }
+}
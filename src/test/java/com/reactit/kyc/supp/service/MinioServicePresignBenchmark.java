@@ -0,0 +1,90 @@
+package com.reactit.kyc.supp.service;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Signing throughput of a page of 20 documents: one URL at a time without cache, from the cache, and as a batch.
+ * <p>
+ * Signing is local (HMAC-SHA256 with a configured region), no MinIO server is needed. Not picked up by the regular test run,
+ * start it with:
+ * <pre>
+ * ./mvnw test -Dtest=MinioServicePresignBenchmark -Dsurefire.failIfNoSpecifiedTests=false -Dpresign.benchmark=true
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class MinioServicePresignBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private MinioService minioService;
+
+    private List<String> page;
+
+    @Setup
+    public void setUp() {
+        minioService = new MinioService(
+            "http://localhost:9000",
+            "minioadmin",
+            "minioadmin",
+            "us-east-1",
+            new ApplicationProperties(),
+            new SimpleMeterRegistry()
+        );
+        ReflectionTestUtils.setField(minioService, "bucketName", "kyc-documents");
+        page = IntStream.range(0, PAGE_SIZE).mapToObj(i -> "uploads/document-" + i).toList();
+    }
+
+    @Benchmark
+    public void signPageUncached(Blackhole blackhole) {
+        for (String objectName : page) {
+            blackhole.consume(minioService.presign(objectName));
+        }
+    }
+
+    @Benchmark
+    public void signPageCached(Blackhole blackhole) {
+        for (String objectName : page) {
+            blackhole.consume(minioService.getPresignedUrl(objectName));
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> signPageBatch() {
+        return minioService.getPresignedUrls(page);
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.MINUTES)
+    @EnabledIfSystemProperty(named = "presign.benchmark", matches = "true")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder().include(MinioServicePresignBenchmark.class.getSimpleName()).build()).run();
+    }
+}
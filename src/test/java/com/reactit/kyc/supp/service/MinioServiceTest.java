@@ -0,0 +1,59 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test class for the presigned URLs of the {@link MinioService}.
+ */
+class MinioServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MinioService minioService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        minioService = new MinioService(
+            "http://localhost:9000",
+            "minioadmin",
+            "minioadmin",
+            "us-east-1",
+            new ApplicationProperties(),
+            meterRegistry
+        );
+        ReflectionTestUtils.setField(minioService, "bucketName", "kyc-documents");
+    }
+
+    @Test
+    void shouldReuseSignedUrlsUntilTheyNearExpiry() {
+        String url = minioService.getPresignedUrl("uploads/id");
+
+        assertThat(url).startsWith("http://localhost:9000/kyc-documents/uploads/id?").contains("X-Amz-Expires=3600");
+        assertThat(minioService.getPresignedUrl("uploads/id")).isSameAs(url);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "kyc.storage.presigned.urls").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldSignAPageOfReferencesInOneCall() {
+        String cached = minioService.getPresignedUrl("uploads/a");
+
+        Map<String, String> urls = minioService.getPresignedUrls(
+            List.of("uploads/a", "http://localhost:9000/kyc-documents/3f2a?X-Amz-Signature=old", "uploads/b")
+        );
+
+        assertThat(urls).containsOnlyKeys("uploads/a", "http://localhost:9000/kyc-documents/3f2a?X-Amz-Signature=old", "uploads/b");
+        assertThat(urls.get("uploads/a")).isSameAs(cached);
+        assertThat(urls.get("http://localhost:9000/kyc-documents/3f2a?X-Amz-Signature=old")).startsWith(
+            "http://localhost:9000/kyc-documents/3f2a?X-Amz-Algorithm="
+        );
+    }
+}
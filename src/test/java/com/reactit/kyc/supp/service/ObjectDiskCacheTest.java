@@ -0,0 +1,171 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Test class for the {@link ObjectDiskCache}.
+ */
+class ObjectDiskCacheTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final AtomicInteger rangeReads = new AtomicInteger();
+
+    // copies to disk, run when the test says so
+    private final Queue<Runnable> fills = new ConcurrentLinkedQueue<>();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ObjectDiskCache cache;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationProperties.Storage.Cache properties = new ApplicationProperties().getStorage().getCache();
+        properties.setDirectory(directory.toString());
+        properties.setMaxSize(DataSize.ofBytes(25));
+        properties.setMaxEntries(3);
+        properties.setMaxObjectSize(DataSize.ofBytes(20));
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ObjectDiskCache(properties, fills::add, meterRegistry);
+    }
+
+    @Test
+    void shouldReadObjectsFromMinioOnlyOnce() throws IOException {
+        assertThat(read("a", "v1", 0, -1)).isEqualTo("0123456789");
+        assertThat(read("a", "v1", 2, 3)).isEqualTo("234");
+        assertThat(read("a", "v1", 8, 10)).isEqualTo("89");
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("kyc.storage.cache.requests").tag("result", "hit").counter().count()).isEqualTo(2);
+        assertThat(cache.getTotalSize()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldReloadAnOverwrittenObject() throws IOException {
+        read("a", "v1", 0, -1);
+        read("a", "v2", 0, -1);
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.getEntryCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("kyc.storage.cache.evictions").tag("cause", "stale").counter().count()).isEqualTo(1);
+        try (var files = Files.list(directory)) {
+            assertThat(files).hasSize(1);
+        }
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyReadObjects() throws IOException {
+        read("a", "v1", 0, -1);
+        read("b", "v1", 0, -1);
+        read("a", "v1", 0, -1);
+        read("c", "v1", 0, -1);
+
+        assertThat(cache.getTotalSize()).isEqualTo(20);
+        read("a", "v1", 0, -1);
+        read("b", "v1", 0, -1);
+        assertThat(loads.get()).isEqualTo(4);
+        assertThat(meterRegistry.get("kyc.storage.cache.evictions").tag("cause", "capacity").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldStreamLargeObjectsFromMinio() throws IOException {
+        assertThat(cache.read("video", "v1", 1_000, 0, -1, this::open)).isEmpty();
+        assertThat(loads.get()).isZero();
+    }
+
+    @Test
+    void shouldServeRangesOfUncachedObjectsFromMinioWhileCopyingThemOnce() throws IOException {
+        assertThat(readRange("a", "v1", 2, 3)).isEqualTo("234");
+        assertThat(readRange("a", "v1", 5, 2)).isEqualTo("56");
+
+        assertThat(rangeReads.get()).isEqualTo(2);
+        assertThat(fills).hasSize(1);
+        assertThat(cache.getEntryCount()).isZero();
+
+        fills.poll().run();
+        assertThat(readRange("a", "v1", 8, 2)).isEqualTo("89");
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(rangeReads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldLetReadsOfTheWholeObjectWaitForTheCopyInProgress() throws Exception {
+        readRange("a", "v1", 0, 1);
+        CompletableFuture<String> whole = CompletableFuture.supplyAsync(() -> {
+            try {
+                return readRange("a", "v1", 0, -1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        Thread.sleep(100);
+        assertThat(whole).isNotDone();
+        assertThat(fills).hasSize(1);
+        fills.poll().run();
+
+        assertThat(whole.get(5, TimeUnit.SECONDS)).isEqualTo("0123456789");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    /**
+     * Read, running copies to disk as soon as they are queued.
+     */
+    private String read(String objectName, String etag, long offset, long length) throws IOException {
+        CompletableFuture<String> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return readRange(objectName, etag, offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        while (!read.isDone()) {
+            Runnable fill = fills.poll();
+            if (fill != null) {
+                fill.run();
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        return read.join();
+    }
+
+    private String readRange(String objectName, String etag, long offset, long length) throws IOException {
+        try (InputStream in = cache.read(objectName, etag, CONTENT.length, offset, length, this::open).orElseThrow()) {
+            return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private InputStream open(long offset, long length) {
+        if (offset == 0 && length < 0) {
+            loads.incrementAndGet();
+            return new ByteArrayInputStream(CONTENT);
+        }
+        rangeReads.incrementAndGet();
+        return new ByteArrayInputStream(CONTENT, (int) offset, (int) Math.min(length, CONTENT.length - offset));
+    }
+}
@@ -0,0 +1,150 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.reactit.kyc.supp.domain.Customer;
+import com.reactit.kyc.supp.domain.CustomerOnboardingDay;
+import com.reactit.kyc.supp.domain.KycStatusCounter;
+import com.reactit.kyc.supp.domain.Partner;
+import com.reactit.kyc.supp.repository.CustomerOnboardingDayRepository;
+import com.reactit.kyc.supp.repository.PartnerRepository;
+import com.reactit.kyc.supp.service.dto.OnboardingCountDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class for the {@link OnboardingStatisticsService}.
+ */
+class OnboardingStatisticsServiceTest {
+
+    private CustomerOnboardingDayRepository repository;
+
+    private PartnerRepository partnerRepository;
+
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OnboardingStatisticsService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(CustomerOnboardingDayRepository.class);
+        partnerRepository = mock(PartnerRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new OnboardingStatisticsService(
+            repository,
+            partnerRepository,
+            new TransactionTemplate(transactionManager),
+            meterRegistry
+        );
+    }
+
+    @Test
+    void shouldMoveACustomerBetweenDaysOnlyWhenItsUtcDayOrPartnerChanges() {
+        service.customerChanged(key("2026-10-01T01:00:00Z", 7L), key("2026-10-01T23:00:00Z", 7L));
+        verify(repository, never()).add(any(), anyLong(), anyLong());
+
+        service.customerChanged(key("2026-10-01T23:00:00Z", 7L), key("2026-10-02T00:00:00Z", 7L));
+        verify(repository).add(LocalDate.of(2026, 10, 1), 7L, -1);
+        verify(repository).add(LocalDate.of(2026, 10, 2), 7L, 1);
+
+        service.customerChanged(key("2026-10-03T12:00:00Z", 7L), key("2026-10-03T12:00:00Z", null));
+        verify(repository).add(LocalDate.of(2026, 10, 3), 7L, -1);
+        verify(repository).add(LocalDate.of(2026, 10, 3), KycStatusCounter.NO_PARTNER, 1);
+
+        service.customerChanged(key("2026-10-04T12:00:00Z", 7L), null);
+        verify(repository).add(LocalDate.of(2026, 10, 4), 7L, -1);
+    }
+
+    @Test
+    void shouldUpdateDaysInKeyOrderWhicheverWayTheCustomerMoves() {
+        service.customerChanged(key("2026-10-02T00:00:00Z", 7L), key("2026-10-01T00:00:00Z", 7L));
+
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).add(LocalDate.of(2026, 10, 1), 7L, 1);
+        inOrder.verify(repository).add(LocalDate.of(2026, 10, 2), 7L, -1);
+    }
+
+    @Test
+    void shouldCountCustomersPerWeekIncludingEmptyWeeks() {
+        // 2026-10-05 is a Monday
+        when(repository.sumByDayBetween(LocalDate.of(2026, 10, 5), LocalDate.of(2026, 10, 25))).thenReturn(
+            List.of(
+                new OnboardingCountDTO(LocalDate.of(2026, 10, 5), 2L),
+                new OnboardingCountDTO(LocalDate.of(2026, 10, 11), 3L),
+                new OnboardingCountDTO(LocalDate.of(2026, 10, 20), 1L)
+            )
+        );
+
+        List<OnboardingCountDTO> counts = service.getOnboardingCounts(
+            OnboardingStatisticsService.Interval.WEEK,
+            LocalDate.of(2026, 10, 7),
+            LocalDate.of(2026, 10, 25)
+        );
+
+        assertThat(counts)
+            .extracting(OnboardingCountDTO::getPeriodStart, OnboardingCountDTO::getCustomers)
+            .containsExactly(
+                tuple(LocalDate.of(2026, 10, 5), 5L),
+                tuple(LocalDate.of(2026, 10, 12), 0L),
+                tuple(LocalDate.of(2026, 10, 19), 1L)
+            );
+    }
+
+    @Test
+    void shouldCorrectDriftedDaysOnePartnerAtATime() {
+        CustomerOnboardingDay first = new CustomerOnboardingDay(LocalDate.of(2026, 10, 1), 7L, 5L);
+        CustomerOnboardingDay missing = new CustomerOnboardingDay(LocalDate.of(2026, 10, 2), 7L, 0L);
+        CustomerOnboardingDay otherPartner = new CustomerOnboardingDay(LocalDate.of(2026, 10, 1), 8L, 1L);
+        when(partnerRepository.findAllIds()).thenReturn(List.of(7L, 8L));
+        // the missing day is created by the lock
+        when(repository.findByKeyPartnerId(7L)).thenReturn(List.of(first), List.of(first, missing));
+        when(repository.findByKeyPartnerId(8L)).thenReturn(List.of(otherPartner));
+        when(repository.countCustomersOfPartner(7L)).thenReturn(
+            List.of(
+                new CustomerOnboardingDay(LocalDate.of(2026, 10, 1), 7L, 4L),
+                new CustomerOnboardingDay(LocalDate.of(2026, 10, 2), 7L, 2L)
+            )
+        );
+        when(repository.countCustomersOfPartner(8L)).thenReturn(List.of(new CustomerOnboardingDay(LocalDate.of(2026, 10, 1), 8L, 1L)));
+
+        assertThat(service.reconcile()).isEqualTo(3);
+
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).add(LocalDate.of(2026, 10, 1), 7L, 0);
+        inOrder.verify(repository).add(LocalDate.of(2026, 10, 2), 7L, 0);
+        inOrder.verify(repository).countCustomersOfPartner(7L);
+        assertThat(first.getCustomerCount()).isEqualTo(4);
+        assertThat(missing.getCustomerCount()).isEqualTo(2);
+        assertThat(otherPartner.getCustomerCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("kyc.customers.onboarding.counter.drift").counter().count()).isEqualTo(3);
+        // no partner, partners 7 and 8, each in its own transaction
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    private static CustomerOnboardingDay.Key key(String createdAt, Long partnerId) {
+        Customer customer = new Customer().createdAt(Instant.parse(createdAt));
+        if (partnerId != null) {
+            customer.setPartner(new Partner().id(partnerId));
+        }
+        return CustomerOnboardingDay.Key.of(customer);
+    }
+}
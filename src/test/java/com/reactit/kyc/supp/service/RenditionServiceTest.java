@@ -0,0 +1,80 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.minio.StatObjectResponse;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.SyncTaskExecutor;
+
+/**
+ * Test class for the {@link RenditionService}.
+ */
+class RenditionServiceTest {
+
+    private MinioService minioService;
+
+    private RenditionService service;
+
+    @BeforeEach
+    void setUp() {
+        minioService = mock(MinioService.class);
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getStorage().getRenditions().setThumbnailSize(100);
+        service = new RenditionService(minioService, new SyncTaskExecutor(), properties);
+    }
+
+    @Test
+    void shouldStoreADownscaledJpegNextToTheOriginal() throws IOException {
+        stat("uploads/id", "image/png");
+        when(minioService.findObject("renditions/thumbnail/uploads/id.jpg")).thenReturn(Optional.empty());
+        when(minioService.getObject("uploads/id")).thenReturn(new ByteArrayInputStream(png(800, 600)));
+
+        assertThat(service.await("uploads/id", RenditionService.Rendition.THUMBNAIL)).isTrue();
+
+        ArgumentCaptor<byte[]> jpeg = ArgumentCaptor.forClass(byte[].class);
+        verify(minioService).putObject(eq("renditions/thumbnail/uploads/id.jpg"), jpeg.capture(), eq("image/jpeg"));
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(jpeg.getValue()));
+        assertThat(thumbnail.getWidth()).isEqualTo(100);
+        assertThat(thumbnail.getHeight()).isEqualTo(75);
+    }
+
+    @Test
+    void shouldNotRenderDocumentsThatAreNotImages() throws IOException {
+        stat("uploads/contract", "application/pdf");
+        when(minioService.findObject("renditions/preview/uploads/contract.jpg")).thenReturn(Optional.empty());
+
+        assertThat(service.await("uploads/contract", RenditionService.Rendition.PREVIEW)).isFalse();
+        assertThat(service.await("renditions/preview/uploads/id.jpg", RenditionService.Rendition.PREVIEW)).isFalse();
+
+        verify(minioService, never()).getObject(anyString());
+        verify(minioService, never()).putObject(anyString(), any(), anyString());
+    }
+
+    private void stat(String objectName, String contentType) {
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.contentType()).thenReturn(contentType);
+        when(minioService.findObject(objectName)).thenReturn(Optional.of(stat));
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,156 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.config.FaceVerificationClientConfiguration;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Test class for the {@link StreamingMultipartBody}.
+ */
+class StreamingMultipartBodyTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void shouldDeclareTheExactContentLength() throws IOException {
+        MockMultipartFile img1 = new MockMultipartFile("img1", "selfie.jpg", "image/jpeg", new byte[] { 1, 2, 3 });
+        MockMultipartFile img2 = new MockMultipartFile("img2", "id \"card\".png", "image/png", new byte[1000]);
+        StreamingMultipartBody body = new StreamingMultipartBody(
+            List.of(StreamingMultipartBody.Part.of("img1", img1), StreamingMultipartBody.Part.of("img2", img2))
+        );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+
+        assertThat(out.size()).isEqualTo(body.getContentLength());
+        String written = out.toString(StandardCharsets.UTF_8);
+        String boundary = body.getContentType().getParameter("boundary");
+        assertThat(written).startsWith("--" + boundary + "\r\n").endsWith("--" + boundary + "--\r\n");
+        assertThat(written).contains("name=\"img1\"; filename=\"selfie.jpg\"").contains("filename=\"id %22card%22.png\"");
+    }
+
+    @Test
+    void shouldRejectPartsShorterThanDeclared() {
+        StreamingMultipartBody body = new StreamingMultipartBody(
+            List.of(new StreamingMultipartBody.Part("img1", "a.jpg", "image/jpeg", 10, () -> new GeneratedInputStream(5)))
+        );
+
+        assertThatThrownBy(() -> body.writeTo(OutputStream.nullOutputStream())).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldKeepHeapAllocationBoundedRegardlessOfImageSize() throws Exception {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+        // a sidecar stub draining the request, so that the body goes through the pooled client and the socket
+        AtomicLong received = new AtomicLong();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/verify_face_match", exchange -> drain(exchange, received));
+        ExecutorService serverExecutor = Executors.newSingleThreadExecutor();
+        server.setExecutor(serverExecutor);
+        server.start();
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getFaceVerification().setUrl("http://localhost:" + server.getAddress().getPort());
+        FaceVerificationClientConfiguration configuration = new FaceVerificationClientConfiguration();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (CloseableHttpClient httpClient = configuration.faceVerificationHttpClient(properties, meterRegistry)) {
+            RestTemplate restTemplate = configuration.faceVerificationRestTemplate(httpClient, properties, new RestTemplateBuilder());
+            HttpFaceVerificationEngine engine = new HttpFaceVerificationEngine(restTemplate, new ObjectMapper(), meterRegistry, properties);
+
+            // warm up class loading, JIT and the connection pool so that only the per-request cost is measured
+            for (int i = 0; i < 5; i++) {
+                verify(engine, MB);
+            }
+
+            long small = allocatedWhile(threadMXBean, engine, MB);
+            long large = allocatedWhile(threadMXBean, engine, 15 * MB);
+
+            assertThat(received.get()).isGreaterThan(2 * 15 * MB);
+            assertThat(small).isLessThan(512 * 1024);
+            assertThat(large).isLessThan(512 * 1024);
+            assertThat(large - small).isLessThan(64 * 1024);
+        } finally {
+            server.stop(0);
+            serverExecutor.shutdownNow();
+        }
+    }
+
+    private static long allocatedWhile(com.sun.management.ThreadMXBean threadMXBean, HttpFaceVerificationEngine engine, long imageSize) {
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        verify(engine, imageSize);
+        return threadMXBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static void verify(HttpFaceVerificationEngine engine, long imageSize) {
+        engine.verify(
+            new StreamingMultipartBody.Part("img1", "selfie.jpg", "image/jpeg", imageSize, () -> new GeneratedInputStream(imageSize)),
+            new StreamingMultipartBody.Part("img2", "id.jpg", "image/jpeg", imageSize, () -> new GeneratedInputStream(imageSize))
+        );
+    }
+
+    private static void drain(HttpExchange exchange, AtomicLong received) throws IOException {
+        try (exchange) {
+            received.addAndGet(exchange.getRequestBody().transferTo(OutputStream.nullOutputStream()));
+            byte[] body = "{\"verified\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    /**
+     * Produces {@code size} bytes without holding them in memory, like a file-backed upload would.
+     */
+    private static final class GeneratedInputStream extends InputStream {
+
+        private long remaining;
+
+        private GeneratedInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return 0x5A;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = (int) Math.min(len, remaining);
+            remaining -= n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.reactit.kyc.supp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Test class for the {@link UploadValidator}.
+ */
+class UploadValidatorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private UploadValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getStorage().getUpload().getTypes().get("image/png").setMaxWidth(1000);
+        properties.getStorage().getUpload().getTypes().get("application/pdf").setMaxSize(DataSize.ofBytes(100));
+        meterRegistry = new SimpleMeterRegistry();
+        validator = new UploadValidator(properties, meterRegistry);
+    }
+
+    @Test
+    void shouldReadImageDimensionsFromTheHeader() throws IOException {
+        byte[] jpeg = image("jpeg", 640, 480);
+        UploadValidator.ValidatedUpload upload = validator.validate(new ByteArrayInputStream(jpeg), jpeg.length);
+
+        assertThat(upload.contentType()).isEqualTo("image/jpeg");
+        assertThat(upload.width()).isEqualTo(640);
+        assertThat(upload.height()).isEqualTo(480);
+        assertThat(upload.content().readAllBytes()).isEqualTo(jpeg);
+
+        byte[] png = image("png", 800, 20);
+        upload = validator.validate(new ByteArrayInputStream(png), -1);
+        assertThat(upload.contentType()).isEqualTo("image/png");
+        assertThat(upload.width()).isEqualTo(800);
+        assertThat(upload.height()).isEqualTo(20);
+    }
+
+    @Test
+    void shouldRefuseFilesOfAnUnknownType() {
+        byte[] script = "#!/bin/sh\nrm -rf /\n".getBytes(StandardCharsets.US_ASCII);
+
+        assertThatThrownBy(() -> validator.validate(new ByteArrayInputStream(script), script.length)).isInstanceOf(
+            InvalidDocumentUploadException.class
+        );
+        assertThat(meterRegistry.get("kyc.storage.upload.rejected").tag("reason", "type").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRefuseImagesLargerThanTheirLimitBeforeReadingThePixels() throws IOException {
+        byte[] png = image("png", 1200, 10);
+        // only the header is available, the rest of the file would fail to read
+        InputStream headerOnly = new ByteArrayInputStream(Arrays.copyOf(png, 24));
+
+        assertThatThrownBy(() -> validator.validate(headerOnly, -1))
+            .isInstanceOf(InvalidDocumentUploadException.class)
+            .hasMessageContaining("1200x10");
+    }
+
+    @Test
+    void shouldCutContentGrowingPastTheSizeLimit() throws IOException {
+        byte[] pdf = new byte[200];
+        System.arraycopy("%PDF-1.7".getBytes(StandardCharsets.US_ASCII), 0, pdf, 0, 8);
+
+        assertThatThrownBy(() -> validator.validate(new ByteArrayInputStream(pdf), pdf.length)).isInstanceOf(
+            InvalidDocumentUploadException.class
+        );
+
+        // a length is not always declared
+        UploadValidator.ValidatedUpload upload = validator.validate(new ByteArrayInputStream(pdf), -1);
+        assertThatThrownBy(() -> upload.content().readAllBytes()).isInstanceOf(InvalidDocumentUploadException.class);
+        assertThat(meterRegistry.get("kyc.storage.upload.rejected").tag("reason", "size").counter().count()).isEqualTo(2);
+    }
+
+    private static byte[] image(String format, int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR), format, out);
+        return out.toByteArray();
+    }
+}
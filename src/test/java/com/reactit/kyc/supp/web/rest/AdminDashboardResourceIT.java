@@ -0,0 +1,181 @@
+package com.reactit.kyc.supp.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.reactit.kyc.supp.IntegrationTest;
+import com.reactit.kyc.supp.domain.Customer;
+import com.reactit.kyc.supp.domain.Document;
+import com.reactit.kyc.supp.domain.Partner;
+import com.reactit.kyc.supp.domain.enumeration.KycStatus;
+import com.reactit.kyc.supp.security.AuthoritiesConstants;
+import jakarta.persistence.EntityManager;
+import java.net.URI;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the {@link AdminDashboardResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+class AdminDashboardResourceIT {
+
+    private static final String CUSTOMER_DOCUMENTS_API_URL = "/api/admin/dashboard/customer-documents";
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restAdminDashboardMockMvc;
+
+    private Partner partner;
+
+    private Customer threeDocuments;
+
+    private Customer oneDocument;
+
+    private Customer oneDocumentVerified;
+
+    private Customer noDocument;
+
+    /**
+     * Customers of a partner of their own, so that customers left by other tests are filtered out: inserted in id order
+     * {@code oneDocumentVerified < oneDocument < threeDocuments < noDocument}, and a customer of another partner with more
+     * documents than any of them.
+     */
+    @BeforeEach
+    void initTest() {
+        partner = PartnerResourceIT.createEntity();
+        em.persist(partner);
+        Partner otherPartner = PartnerResourceIT.createEntity();
+        em.persist(otherPartner);
+
+        oneDocumentVerified = insertCustomer(partner, KycStatus.VERIFIED, 1);
+        oneDocument = insertCustomer(partner, KycStatus.PENDING, 1);
+        threeDocuments = insertCustomer(partner, KycStatus.PENDING, 3);
+        noDocument = insertCustomer(partner, KycStatus.PENDING, 0);
+        insertCustomer(otherPartner, KycStatus.PENDING, 5);
+        em.flush();
+    }
+
+    @Test
+    @Transactional
+    void getCustomerDocumentCountsMostDocumentsFirst() throws Exception {
+        MvcResult first = restAdminDashboardMockMvc
+            .perform(get(CUSTOMER_DOCUMENTS_API_URL + "?partnerId={partnerId}&size=2", partner.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(
+                jsonPath("$.[*].customerId").value(contains(threeDocuments.getId().intValue(), oneDocumentVerified.getId().intValue()))
+            )
+            .andExpect(jsonPath("$.[*].documentCount").value(contains(3, 1)))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("afterCount=1")))
+            .andReturn();
+
+        MvcResult second = restAdminDashboardMockMvc
+            .perform(get(next(first)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].customerId").value(contains(oneDocument.getId().intValue(), noDocument.getId().intValue())))
+            .andExpect(jsonPath("$.[*].documentCount").value(contains(1, 0)))
+            .andReturn();
+
+        restAdminDashboardMockMvc
+            .perform(get(next(second)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    @Transactional
+    void getCustomerDocumentCountsFewestDocumentsFirst() throws Exception {
+        MvcResult first = restAdminDashboardMockMvc
+            .perform(get(CUSTOMER_DOCUMENTS_API_URL + "?partnerId={partnerId}&direction=asc&size=2", partner.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].customerId").value(contains(noDocument.getId().intValue(), oneDocumentVerified.getId().intValue())))
+            .andExpect(jsonPath("$.[*].documentCount").value(contains(0, 1)))
+            .andReturn();
+
+        restAdminDashboardMockMvc
+            .perform(get(next(first)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].customerId").value(contains(oneDocument.getId().intValue(), threeDocuments.getId().intValue())))
+            .andExpect(jsonPath("$.[*].documentCount").value(contains(1, 3)));
+    }
+
+    @Test
+    @Transactional
+    void getCustomerDocumentCountsInAStatus() throws Exception {
+        restAdminDashboardMockMvc
+            .perform(get(CUSTOMER_DOCUMENTS_API_URL + "?partnerId={partnerId}&status=PENDING", partner.getId()))
+            .andExpect(status().isOk())
+            .andExpect(
+                jsonPath("$.[*].customerId").value(
+                    contains(threeDocuments.getId().intValue(), oneDocument.getId().intValue(), noDocument.getId().intValue())
+                )
+            )
+            .andExpect(jsonPath("$.[*].kycStatus").value(contains("PENDING", "PENDING", "PENDING")))
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+
+        restAdminDashboardMockMvc
+            .perform(get(CUSTOMER_DOCUMENTS_API_URL + "?partnerId={partnerId}&status=VERIFIED", partner.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].customerId").value(contains(oneDocumentVerified.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    void getCustomerDocumentCountsWithInvalidParameters() throws Exception {
+        restAdminDashboardMockMvc.perform(get(CUSTOMER_DOCUMENTS_API_URL + "?afterCount=1")).andExpect(status().isBadRequest());
+        restAdminDashboardMockMvc.perform(get(CUSTOMER_DOCUMENTS_API_URL + "?size=0")).andExpect(status().isBadRequest());
+        restAdminDashboardMockMvc.perform(get(CUSTOMER_DOCUMENTS_API_URL + "?size=101")).andExpect(status().isBadRequest());
+        restAdminDashboardMockMvc.perform(get(CUSTOMER_DOCUMENTS_API_URL + "?direction=sideways")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getDashboardTellsWhenItWasComputed() throws Exception {
+        restAdminDashboardMockMvc
+            .perform(get("/api/admin/dashboard"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+            .andExpect(header().exists(AdminDashboardResource.COMPUTED_AT_HEADER))
+            .andExpect(header().doesNotExist(HttpHeaders.AGE));
+    }
+
+    @Test
+    @Transactional
+    @WithMockUser
+    void getCustomerDocumentCountsAsUser() throws Exception {
+        restAdminDashboardMockMvc.perform(get(CUSTOMER_DOCUMENTS_API_URL)).andExpect(status().isForbidden());
+    }
+
+    private Customer insertCustomer(Partner partner, KycStatus status, int documents) {
+        Customer customer = CustomerResourceIT.createEntity().kycStatus(status).partner(partner);
+        em.persist(customer);
+        for (int i = 0; i < documents; i++) {
+            Document document = DocumentResourceIT.createEntity().customer(customer);
+            em.persist(document);
+        }
+        return customer;
+    }
+
+    private static URI next(MvcResult result) {
+        String link = result.getResponse().getHeader(HttpHeaders.LINK);
+        assertThat(link).endsWith(">; rel=\"next\"");
+        return URI.create(link.substring(1, link.indexOf('>')));
+    }
+}
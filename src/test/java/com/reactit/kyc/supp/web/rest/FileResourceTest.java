@@ -0,0 +1,178 @@
+package com.reactit.kyc.supp.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.reactit.kyc.supp.config.ApplicationProperties;
+import com.reactit.kyc.supp.service.MinioService;
+import com.reactit.kyc.supp.service.ObjectDiskCache;
+import com.reactit.kyc.supp.service.RenditionService;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioClient;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Test class for the conditional and range requests of the {@link FileResource}, against a local stand-in for MinIO.
+ */
+class FileResourceTest {
+
+    private static final byte[] CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String ETAG = "\"5d41402abc4b2a76\"";
+
+    private static final String LAST_MODIFIED = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+        ZonedDateTime.of(2026, 10, 12, 8, 0, 0, 0, ZoneOffset.UTC)
+    );
+
+    private HttpServer server;
+
+    private final AtomicInteger objectReads = new AtomicInteger();
+
+    private MockMvc mockMvc;
+
+    @TempDir
+    Path cacheDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/kyc-documents/id.pdf", this::handle);
+        server.start();
+
+        MinioClient minioClient = MinioClient.builder()
+            .endpoint("http://localhost:" + server.getAddress().getPort())
+            .region("us-east-1")
+            .credentials("minioadmin", "minioadmin")
+            .build();
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getStorage().getCache().setDirectory(cacheDirectory.toString());
+        FileResource resource = new FileResource(
+            minioClient,
+            new ObjectDiskCache(properties, new SyncTaskExecutor(), new SimpleMeterRegistry()),
+            mock(RenditionService.class),
+            mock(MinioService.class),
+            properties
+        );
+        ReflectionTestUtils.setField(resource, "bucketName", "kyc-documents");
+        mockMvc = MockMvcBuilders.standaloneSetup(resource).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void shouldServeTheWholeFileWithValidators() throws Exception {
+        mockMvc
+            .perform(get("/api/files/id.pdf"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+            .andExpect(header().string(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(content().bytes(CONTENT));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutReadingTheObject() throws Exception {
+        mockMvc.perform(get("/api/files/id.pdf").header(HttpHeaders.IF_NONE_MATCH, ETAG)).andExpect(status().isNotModified());
+        mockMvc
+            .perform(get("/api/files/id.pdf").header(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED))
+            .andExpect(status().isNotModified());
+
+        assertThat(objectReads.get()).isZero();
+    }
+
+    @Test
+    void shouldStreamOnlyTheRequestedRange() throws Exception {
+        mockMvc
+            .perform(get("/api/files/id.pdf").header(HttpHeaders.RANGE, "bytes=10-19"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/36"))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+            .andExpect(content().string("abcdefghij"));
+        mockMvc
+            .perform(get("/api/files/id.pdf").header(HttpHeaders.RANGE, "bytes=-6"))
+            .andExpect(status().isPartialContent())
+            .andExpect(content().string("uvwxyz"));
+        mockMvc
+            .perform(get("/api/files/id.pdf").header(HttpHeaders.RANGE, "bytes=100-"))
+            .andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */36"));
+    }
+
+    @Test
+    void shouldIgnoreTheRangeWhenIfRangeDoesNotMatch() throws Exception {
+        mockMvc
+            .perform(get("/api/files/id.pdf").header(HttpHeaders.RANGE, "bytes=10-19").header(HttpHeaders.IF_RANGE, "\"stale\""))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(CONTENT));
+        mockMvc
+            .perform(get("/api/files/id.pdf").header(HttpHeaders.RANGE, "bytes=10-19").header(HttpHeaders.IF_RANGE, LAST_MODIFIED))
+            .andExpect(status().isPartialContent());
+    }
+
+    @Test
+    void shouldServeSeveralRangesAsMultipart() throws Exception {
+        MvcResult result = mockMvc
+            .perform(get("/api/files/id.pdf").header(HttpHeaders.RANGE, "bytes=0-1,30-31"))
+            .andExpect(status().isPartialContent())
+            .andReturn();
+        String body = result.getResponse().getContentAsString();
+        assertThat(result.getResponse().getContentType()).startsWith("multipart/byteranges;boundary=");
+        assertThat(body).contains("Content-Range: bytes 0-1/36\r\n\r\n01").contains("Content-Range: bytes 30-31/36\r\n\r\nuv");
+    }
+
+    /**
+     * Answers MinIO's {@code HEAD} and (ranged) {@code GET} for a single object.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", ETAG);
+            headers.set("Last-Modified", LAST_MODIFIED);
+            headers.set("Content-Type", "application/pdf");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                headers.set("Content-Length", String.valueOf(CONTENT.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            objectReads.incrementAndGet();
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range == null) {
+                exchange.sendResponseHeaders(200, CONTENT.length);
+                exchange.getResponseBody().write(CONTENT);
+                return;
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            int from = Integer.parseInt(bounds[0]);
+            int to = bounds[1].isEmpty() ? CONTENT.length : Integer.parseInt(bounds[1]) + 1;
+            exchange.sendResponseHeaders(206, to - from);
+            exchange.getResponseBody().write(CONTENT, from, to - from);
+        }
+    }
+}